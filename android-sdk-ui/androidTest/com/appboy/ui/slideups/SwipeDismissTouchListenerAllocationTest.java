@@ -0,0 +1,103 @@
+package com.appboy.ui.slideups;
+
+import android.os.Build;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+/**
+ * Checks that a swipe in progress doesn't allocate while the finger moves. This runs on a device, where the framework
+ * methods the listener calls are native, rather than on Robolectric, whose shadows of them allocate.
+ */
+public class SwipeDismissTouchListenerAllocationTest extends AndroidTestCase {
+  private static final int MOVE_EVENT_COUNT = 10000;
+
+  private View mView;
+  private SwipeDismissTouchListener mSwipeListener;
+  private MotionEvent mDownEvent;
+  private MotionEvent[] mMoveEvents;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    FrameLayout parent = new FrameLayout(getContext());
+    mView = new View(getContext());
+    parent.addView(mView);
+    mView.layout(0, 0, 400, 100);
+    mSwipeListener = new SwipeDismissTouchListener(mView, null, new SwipeDismissTouchListener.DismissCallbacks() {
+      @Override
+      public boolean canDismiss(Object token) {
+        return true;
+      }
+
+      @Override
+      public void onDismiss(View view, Object token) {}
+    });
+
+    // The events are obtained up front, so that only onTouch is measured. A finger drags the view back and forth,
+    // well past the touch slop.
+    mDownEvent = MotionEvent.obtain(0l, 0l, MotionEvent.ACTION_DOWN, 0f, 0f, 0);
+    mMoveEvents = new MotionEvent[MOVE_EVENT_COUNT];
+    for (int i = 0; i < MOVE_EVENT_COUNT; i++) {
+      mMoveEvents[i] = MotionEvent.obtain(0l, i, MotionEvent.ACTION_MOVE, 100f + (i % 100), 0f, 0);
+    }
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    mDownEvent.recycle();
+    for (MotionEvent moveEvent : mMoveEvents) {
+      moveEvent.recycle();
+    }
+    super.tearDown();
+  }
+
+  public void testSwipeMovesDoNotAllocate() {
+    if (Build.VERSION.SDK_INT < 12) {
+      // The listener translates the view, which needs API 12.
+      return;
+    }
+    final int[] emptyLoopSum = new int[1];
+    Runnable emptyLoop = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 1; i < MOVE_EVENT_COUNT; i++) {
+          emptyLoopSum[0] += mMoveEvents[i] == null ? 0 : 1;
+        }
+      }
+    };
+    Runnable moves = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 1; i < MOVE_EVENT_COUNT; i++) {
+          mSwipeListener.onTouch(mView, mMoveEvents[i]);
+        }
+      }
+    };
+    mSwipeListener.onTouch(mView, mDownEvent);
+    // The first move starts the swipe, which cancels the parent's touch handling once with a new event.
+    assertTrue(mSwipeListener.onTouch(mView, mMoveEvents[0]));
+    // Warms up the JIT and anything the listener creates lazily.
+    moves.run();
+    emptyLoop.run();
+
+    long emptyLoopBytes = measureAllocatedBytes(emptyLoop);
+    long movesBytes = measureAllocatedBytes(moves);
+
+    assertEquals(0l, Math.max(0l, movesBytes - emptyLoopBytes));
+  }
+
+  /**
+   * @return The number of bytes allocated by the current thread while running the given code.
+   */
+  private static long measureAllocatedBytes(Runnable runnable) {
+    Debug.startAllocCounting();
+    Debug.resetThreadAllocSize();
+    runnable.run();
+    long allocatedBytes = Debug.getThreadAllocSize();
+    Debug.stopAllocCounting();
+    return allocatedBytes;
+  }
+}
@@ -1,28 +1,50 @@
 package com.appboy;
 
+import android.annotation.TargetApi;
 import android.app.Notification;
-import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.media.ThumbnailUtils;
 import android.os.Build;
 import android.os.Bundle;
 import android.support.v4.app.NotificationCompat;
-import android.util.Log;
+import android.util.DisplayMetrics;
 import android.widget.RemoteViews;
 import com.appboy.configuration.XmlAppConfigurationProvider;
+import com.appboy.ui.images.NotificationImageLoader;
+import com.appboy.ui.support.AppboyLogger;
 import com.appboy.ui.support.StringUtils;
-import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Receives GCM registration results and Appboy push messages.
+ *
+ * From Honeycomb on, messages are handled on a single background thread, one at a time and in the order they were
+ * received, so that parsing the payload and building notifications doesn't block the main thread. The broadcast is
+ * kept alive with {@link BroadcastReceiver#goAsync()} until its message has been handled, which for a notification
+ * message means until it has been added to its coalesced notification, not until a deferred update of that
+ * notification has been posted. Older devices, where the
+ * process may be killed as soon as onReceive returns, handle messages on the main thread.
+ *
+ * A notification message with an image waits for its image to be loaded, for at most
+ * {@link #NOTIFICATION_IMAGE_TIMEOUT_MS}, before it is added to its notification and its broadcast is finished. Its
+ * broadcast is kept alive meanwhile, so that the push isn't lost if the process is killed, and the messages behind it
+ * wait, so that they are still added in the order they were received.
+ */
 public final class AppboyGcmReceiver extends BroadcastReceiver {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, AppboyGcmReceiver.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(AppboyGcmReceiver.class);
   private static final String GCM_RECEIVE_INTENT_ACTION = "com.google.android.c2dm.intent.RECEIVE";
   private static final String GCM_REGISTRATION_INTENT_ACTION = "com.google.android.c2dm.intent.REGISTRATION";
   private static final String GCM_ERROR_KEY = "error";
@@ -32,10 +54,87 @@ public final class AppboyGcmReceiver extends BroadcastReceiver {
   private static final String GCM_DELETED_MESSAGES_KEY = "deleted_messages";
   private static final String GCM_NUMBER_OF_MESSAGES_DELETED_KEY = "total_deleted";
   public static final String CAMPAIGN_ID_KEY = Constants.APPBOY_GCM_CAMPAIGN_ID_KEY;
+  // The key of the Appboy data extra holding the URL of an image to show in the notification.
+  public static final String NOTIFICATION_IMAGE_URL_KEY = "appboy_image_url";
+  // How long a push waits for its image to be downloaded before it is shown without one.
+  private static final long NOTIFICATION_IMAGE_TIMEOUT_MS = 5000l;
+  // The height of the picture of a BigPictureStyle notification.
+  private static final int BIG_PICTURE_HEIGHT_DP = 256;
+  // The system delivers the next message once the previous one is finished, so the queue only fills up when messages
+  // are handed to onReceive directly. Messages beyond this are dropped, rather than handled on the main thread.
+  private static final int MAX_QUEUED_MESSAGES = 1000;
+  private static final ExecutorService sMessageExecutor = new ThreadPoolExecutor(1, 1, 0l, TimeUnit.MILLISECONDS,
+      new LinkedBlockingQueue<Runnable>(MAX_QUEUED_MESSAGES), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          return new Thread(runnable, "AppboyGcmReceiver");
+        }
+      });
+  private static final NotificationCoalescer sNotificationCoalescer = new NotificationCoalescer(sMessageExecutor);
+
+  /**
+   * Groups push notifications by the value of the given Appboy data extra, rather than by campaign. Pushes of a group
+   * that arrive within the coalescing window of each other are shown in a single notification.
+   *
+   * @param groupKeyExtra The key of the data extra, or null to group push notifications by campaign. Pushes without
+   *                      the extra are grouped by campaign.
+   */
+  public static void setNotificationGroupKeyExtra(String groupKeyExtra) {
+    sNotificationCoalescer.setGroupKeyExtra(groupKeyExtra);
+  }
+
+  /**
+   * Sets how long after a push the next push of its group is added to the same notification. Defaults to 5 minutes.
+   *
+   * @param coalescingWindowMillis The coalescing window, or 0 for every push to replace the notification of its
+   *                               group.
+   */
+  public static void setNotificationCoalescingWindowMillis(long coalescingWindowMillis) {
+    sNotificationCoalescer.setCoalescingWindowMillis(coalescingWindowMillis);
+  }
 
   @Override
   public void onReceive(Context context, Intent intent) {
-    Log.i(TAG, String.format("Received GCM message. Message: %s", intent.toString()));
+    AppboyLogger.i(TAG, "Received GCM message. Message: %s", intent);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+      handleIntentInBackground(context.getApplicationContext(), intent);
+    } else {
+      handleIntent(context, intent);
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+  private void handleIntentInBackground(final Context context, final Intent intent) {
+    // The pending result is null when onReceive is called directly rather than by the system.
+    final PendingResult pendingResult = goAsync();
+    final Runnable finishRunnable = new Runnable() {
+      @Override
+      public void run() {
+        if (pendingResult != null) {
+          pendingResult.finish();
+        }
+      }
+    };
+    Runnable handleIntentRunnable = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          handleIntent(context, intent);
+        } finally {
+          finishRunnable.run();
+        }
+      }
+    };
+    try {
+      sMessageExecutor.execute(handleIntentRunnable);
+    } catch (RejectedExecutionException e) {
+      AppboyLogger.e(TAG, "%d GCM messages are already waiting to be handled. Dropping this one: %s",
+          MAX_QUEUED_MESSAGES, intent);
+      finishRunnable.run();
+    }
+  }
+
+  private void handleIntent(Context context, Intent intent) {
     String action = intent.getAction();
     if (GCM_REGISTRATION_INTENT_ACTION.equals(action)) {
       XmlAppConfigurationProvider appConfigurationProvider = new XmlAppConfigurationProvider(context);
@@ -43,7 +142,7 @@ public final class AppboyGcmReceiver extends BroadcastReceiver {
     } else if (GCM_RECEIVE_INTENT_ACTION.equals(action) && isAppboyGcmMessage(intent)) {
       handleAppboyGcmMessage(context, intent);
     } else {
-      Log.w(TAG, String.format("The GCM receiver received a message not sent from Appboy. Ignoring the message."));
+      AppboyLogger.w(TAG, "The GCM receiver received a message not sent from Appboy. Ignoring the message.");
     }
   }
 
@@ -59,30 +158,30 @@ public final class AppboyGcmReceiver extends BroadcastReceiver {
 
     if (error != null) {
       if ("SERVICE_NOT_AVAILABLE".equals(error)) {
-        Log.e(TAG, "Unable to connect to the GCM registration server. Try again later.");
+        AppboyLogger.e(TAG, "Unable to connect to the GCM registration server. Try again later.");
         // TODO(martin) - We should try to register again.
       } else if ("ACCOUNT_MISSING".equals(error)) {
-        Log.e(TAG, "No Google account found on the phone. For pre-3.0 devices, a Google account is required on the device.");
+        AppboyLogger.e(TAG, "No Google account found on the phone. For pre-3.0 devices, a Google account is required on the device.");
       } else if ("AUTHENTICATION_FAILED".equals(error)) {
-        Log.e(TAG, "Unable to authenticate Google account. For Android versions <4.0.4, a valid Google Play account " +
+        AppboyLogger.e(TAG, "Unable to authenticate Google account. For Android versions <4.0.4, a valid Google Play account " +
           "is required for Google Cloud Messaging to function. This phone will be unable to receive Google Cloud " +
           "Messages until the user logs in with a valid Google Play account or upgrades the operating system on this device.");
       } else if ("INVALID_SENDER".equals(error)) {
-        Log.e(TAG, "One or multiple of the sender IDs provided are invalid.");
+        AppboyLogger.e(TAG, "One or multiple of the sender IDs provided are invalid.");
       } else if ("PHONE_REGISTRATION_ERROR".equals(error)) {
-        Log.e(TAG, "Device does not support GCM.");
+        AppboyLogger.e(TAG, "Device does not support GCM.");
       } else if ("INVALID_PARAMETERS".equals(error)) {
-        Log.e(TAG, "The request sent by the device does not contain the expected parameters. This phone does not " +
+        AppboyLogger.e(TAG, "The request sent by the device does not contain the expected parameters. This phone does not " +
           "currently support GCM.");
       } else {
-        Log.w(TAG, String.format("Received an unrecognised GCM registration error type. Ignoring. Error: %s", error));
+        AppboyLogger.w(TAG, "Received an unrecognised GCM registration error type. Ignoring. Error: %s", error);
       }
     } else if (registrationId != null) {
       Appboy.getInstance(context).registerAppboyGcmMessages(registrationId);
     } else if (intent.hasExtra(GCM_UNREGISTERED_KEY)) {
       Appboy.getInstance(context).unregisterAppboyGcmMessages();
     } else {
-      Log.w(TAG, "The GCM registration message is missing error information, registration id, and unregistration " +
+      AppboyLogger.w(TAG, "The GCM registration message is missing error information, registration id, and unregistration " +
         "confirmation. Ignoring.");
       return false;
     }
@@ -96,14 +195,13 @@ public final class AppboyGcmReceiver extends BroadcastReceiver {
    * center, although the payload is forwarded to the application via an Intent as well.
    */
   boolean handleAppboyGcmMessage(Context context, Intent intent) {
-    NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
     String messageType = intent.getStringExtra(GCM_MESSAGE_TYPE_KEY);
     if (GCM_DELETED_MESSAGES_KEY.equals(messageType)) {
       int totalDeleted = intent.getIntExtra(GCM_NUMBER_OF_MESSAGES_DELETED_KEY, -1);
       if (totalDeleted == -1) {
-        Log.e(TAG, String.format("Unable to parse GCM message. Intent: %s", intent.toString()));
+        AppboyLogger.e(TAG, "Unable to parse GCM message. Intent: %s", intent);
       } else {
-        Log.i(TAG, String.format("GCM deleted %d messages. Fetch them from Appboy.", totalDeleted));
+        AppboyLogger.i(TAG, "GCM deleted %d messages. Fetch them from Appboy.", totalDeleted);
       }
       return false;
     } else {
@@ -115,12 +213,10 @@ public final class AppboyGcmReceiver extends BroadcastReceiver {
       extras.putBundle(Constants.APPBOY_GCM_EXTRAS_KEY, appboyExtrasData);
 
       if (isNotificationMessage(intent)) {
-        int notificationId = extras.getString(Constants.APPBOY_GCM_MESSAGE_TYPE_KEY).hashCode();
-        extras.putInt(Constants.APPBOY_GCM_NOTIFICATION_ID, notificationId);
         XmlAppConfigurationProvider appConfigurationProvider = new XmlAppConfigurationProvider(context);
-        Notification notification = createNotification(appConfigurationProvider, context,
-            extras.getString(Constants.APPBOY_GCM_TITLE_KEY), extras.getString(Constants.APPBOY_GCM_CONTENT_KEY), extras);
-        notificationManager.notify(Constants.APPBOY_GCM_NOTIFICATION_TAG, notificationId, notification);
+        String imageUrl = getNotificationImageUrl(appboyExtrasData);
+        Bitmap image = imageUrl != null ? loadNotificationImage(context, imageUrl) : null;
+        sNotificationCoalescer.add(context, appConfigurationProvider, extras, image);
         sendGcmMessageReceivedBroadcast(context, extras);
         return true;
       } else {
@@ -130,22 +226,65 @@ public final class AppboyGcmReceiver extends BroadcastReceiver {
     }
   }
 
-  public static Bundle createExtrasBundle(String jsonString) {
+  /**
+   * Images are only shown from Honeycomb on, where pushes are handled in the background.
+   *
+   * @return The URL of the image in the Appboy data extras, or null if there is none or it can't be shown.
+   */
+  private static String getNotificationImageUrl(Bundle appboyExtras) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB || appboyExtras == null) {
+      return null;
+    }
+    String imageUrl = appboyExtras.getString(NOTIFICATION_IMAGE_URL_KEY);
+    return StringUtils.isNullOrBlank(imageUrl) ? null : imageUrl;
+  }
+
+  /**
+   * Loads the notification image, decoded to the size it is shown at: as a big picture from Jelly Bean on, and as the
+   * large icon before that. Blocks until the image is loaded or {@link #NOTIFICATION_IMAGE_TIMEOUT_MS} has passed.
+   *
+   * @return The image, or null if it couldn't be loaded in time.
+   */
+  private static Bitmap loadNotificationImage(Context context, String imageUrl) {
+    Resources resources = context.getResources();
+    int maxWidth;
+    int maxHeight;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      DisplayMetrics displayMetrics = resources.getDisplayMetrics();
+      maxWidth = Math.min(displayMetrics.widthPixels, displayMetrics.heightPixels);
+      maxHeight = (int) (BIG_PICTURE_HEIGHT_DP * displayMetrics.density);
+    } else {
+      maxWidth = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+      maxHeight = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+    }
     try {
-      Bundle bundle = new Bundle();
-      JSONObject json = new JSONObject(jsonString);
-      Iterator keys = json.keys();
-      while (keys.hasNext()) {
-        String key = (String) keys.next();
-        bundle.putString(key, json.getString(key));
-      }
-      return bundle;
-    } catch (JSONException e) {
-      Log.e(TAG, String.format("Unable to parse the Appboy GCM data extras."));
+      return NotificationImageLoader.getInstance(context).loadImage(imageUrl, maxWidth, maxHeight,
+          NOTIFICATION_IMAGE_TIMEOUT_MS);
+    } catch (RuntimeException e) {
+      AppboyLogger.e(TAG, "Unable to load the notification image at " + imageUrl + ".", e);
       return null;
     }
   }
 
+  /**
+   * Parses the Appboy GCM data extras into a Bundle of strings. Nested objects and arrays are kept as their JSON text.
+   *
+   * @return The extras, or null if they aren't a valid JSON object or are too large.
+   */
+  public static Bundle createExtrasBundle(String jsonString) {
+    return PushExtrasParser.parse(jsonString, false);
+  }
+
+  /**
+   * Parses the Appboy GCM data extras into a Bundle, keeping numbers and booleans as such and nested objects as
+   * sub-bundles. Arrays are kept as their JSON text.
+   *
+   * @return The extras, or null if they aren't a valid JSON object or are too large.
+   */
+  public static Bundle createTypedExtrasBundle(String jsonString) {
+    return PushExtrasParser.parse(jsonString, true);
+  }
+
   /**
    * Checks the intent to determine whether this is an Appboy GCM message.
    *
@@ -182,9 +321,26 @@ public final class AppboyGcmReceiver extends BroadcastReceiver {
    */
   public static Notification createNotification(XmlAppConfigurationProvider appConfigurationProvider,
                                                 Context context, String title, String content, Bundle intentExtras) {
+    return createNotification(appConfigurationProvider, context, title, content, intentExtras, 0, null, 1, null);
+  }
+
+  /**
+   * Creates the notification of one or more coalesced pushes. From Jelly Bean on, the notification of several pushes
+   * lists their most recent messages with the InboxStyle.
+   *
+   * @param requestCode The request code of the notification's content intent. Notifications that are shown at the
+   *                    same time need different request codes, or they share the extras of their content intent.
+   * @param inboxLines The most recent messages, most recent first. May be null.
+   * @param messageCount The number of pushes shown by the notification.
+   * @param image The image of a single push, shown as the big picture from Jelly Bean on and as the large icon before
+   *              that. May be null.
+   */
+  static Notification createNotification(XmlAppConfigurationProvider appConfigurationProvider, Context context,
+                                         String title, String content, Bundle intentExtras, int requestCode,
+                                         List<CharSequence> inboxLines, int messageCount, Bitmap image) {
     int smallNotificationIconResourceId = appConfigurationProvider.getSmallNotificationIconResourceId();
     if (smallNotificationIconResourceId == 0) {
-      Log.d(TAG, "Small notification icon resource was not found. Will use the app icon when " +
+      AppboyLogger.d(TAG, "Small notification icon resource was not found. Will use the app icon when " +
           "displaying notifications.");
       smallNotificationIconResourceId = appConfigurationProvider.getApplicationIconResourceId();
     }
@@ -201,8 +357,15 @@ public final class AppboyGcmReceiver extends BroadcastReceiver {
     if (intentExtras != null) {
       pushOpenedIntent.putExtras(intentExtras);
     }
-    PendingIntent pushOpenedPendingIntent = PendingIntent.getBroadcast(context, 0, pushOpenedIntent, PendingIntent.FLAG_ONE_SHOT);
+    // A notification that is updated must open with the extras of its most recent push.
+    int pendingIntentFlags = requestCode != 0 ? PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_UPDATE_CURRENT
+        : PendingIntent.FLAG_ONE_SHOT;
+    PendingIntent pushOpenedPendingIntent = PendingIntent.getBroadcast(context, requestCode, pushOpenedIntent,
+        pendingIntentFlags);
     notificationBuilder.setContentIntent(pushOpenedPendingIntent);
+    if (messageCount > 1) {
+      notificationBuilder.setNumber(messageCount);
+    }
     // Sets the icon used in the notification bar itself.
     notificationBuilder.setSmallIcon(smallNotificationIconResourceId);
     notificationBuilder.setContentTitle(title);
@@ -211,50 +374,53 @@ public final class AppboyGcmReceiver extends BroadcastReceiver {
     // From Honeycomb to ICS, we can use a custom view for our notifications which will allow them to be taller than
     // the standard one line of text.
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
-      Resources resources = context.getResources();
-      String packageName = context.getPackageName();
-
-      int layoutResourceId = resources.getIdentifier("com_appboy_notification", "layout", packageName);
-      int titleResourceId = resources.getIdentifier("com_appboy_notification_title", "id", packageName);
-      int contentResourceId = resources.getIdentifier("com_appboy_notification_content", "id", packageName);
-      int iconResourceId = resources.getIdentifier("com_appboy_notification_icon", "id", packageName);
-      int timeViewResourceId = resources.getIdentifier("com_appboy_notification_time", "id", packageName);
-      int twentyFourHourFormatResourceId = resources.getIdentifier("com_appboy_push_notification_twenty_four_hour_format", "string", packageName);
-      int twelveHourFormatResourceId = resources.getIdentifier("com_appboy_push_notification_twelve_hour_format", "string", packageName);
-
-      String twentyFourHourTimeFormat = StringUtils.getOptionalStringResource(resources,
-        twentyFourHourFormatResourceId, Constants.DEFAULT_TWENTY_FOUR_HOUR_TIME_FORMAT);
-      String twelveHourTimeFormat = StringUtils.getOptionalStringResource(resources,
-        twelveHourFormatResourceId, Constants.DEFAULT_TWELVE_HOUR_TIME_FORMAT);
-
-      if (layoutResourceId == 0 || titleResourceId == 0 || contentResourceId == 0 || iconResourceId == 0
-        || timeViewResourceId == 0) {
-        Log.w(TAG, String.format("Couldn't find all resource IDs for custom notification view, extended view will " +
-          "not be used for push notifications. Received %d for layout, %d for title, %d for content, %d for icon, " +
-          "and %d for time.",
-          layoutResourceId, titleResourceId, contentResourceId, iconResourceId, timeViewResourceId));
-      } else {
-        Log.d(TAG, "Using RemoteViews for rendering of push notification.");
-        RemoteViews remoteViews = new RemoteViews(packageName, layoutResourceId);
-        remoteViews.setTextViewText(titleResourceId, title);
-        remoteViews.setTextViewText(contentResourceId, content);
-        remoteViews.setImageViewResource(iconResourceId, smallNotificationIconResourceId);
+      NotificationViewTemplate template = NotificationViewTemplate.getInstance(context);
+      if (template.isComplete()) {
+        AppboyLogger.d(TAG, "Using RemoteViews for rendering of push notification.");
+        RemoteViews remoteViews = new RemoteViews(context.getPackageName(), template.mLayoutResourceId);
+        remoteViews.setTextViewText(template.mTitleResourceId, title);
+        remoteViews.setTextViewText(template.mContentResourceId, content);
+        if (image != null) {
+          remoteViews.setImageViewBitmap(template.mIconResourceId, image);
+        } else {
+          remoteViews.setImageViewResource(template.mIconResourceId, smallNotificationIconResourceId);
+        }
 
         // Custom views cannot be used as part of a RemoteViews so we're using a TextView widget instead. This
         // view will always display the time without date information (even after the day has changed).
-        SimpleDateFormat timeFormat = new SimpleDateFormat(
-          android.text.format.DateFormat.is24HourFormat(context) ? twentyFourHourTimeFormat : twelveHourTimeFormat);
-        String notificationTime = timeFormat.format(new Date());
-        remoteViews.setTextViewText(timeViewResourceId, notificationTime);
+        remoteViews.setTextViewText(template.mTimeViewResourceId, template.formatTime(context, new Date()));
         notificationBuilder.setContent(remoteViews);
         return notificationBuilder.build();
       }
     }
 
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN && image != null) {
+      // The custom view wasn't available, so the image is shown as the large icon instead.
+      notificationBuilder.setLargeIcon(image);
+    }
+
     // If we're using Jelly Bean, we can use the BigTextStyle, which lets the notification layout size grow to
-    // accommodate longer text.
+    // accommodate longer text. Coalesced pushes are listed with the InboxStyle, and an image is shown with the
+    // BigPictureStyle.
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN && inboxLines != null && inboxLines.size() > 1) {
+      AppboyLogger.d(TAG, "Rendering %d coalesced push notifications with InboxStyle", messageCount);
+      NotificationCompat.InboxStyle inboxStyle = new NotificationCompat.InboxStyle(notificationBuilder);
+      for (CharSequence inboxLine : inboxLines) {
+        inboxStyle.addLine(inboxLine);
+      }
+      return inboxStyle.build();
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN && image != null) {
+      AppboyLogger.d(TAG, "Rendering push notification with BigPictureStyle");
+      Resources resources = context.getResources();
+      notificationBuilder.setLargeIcon(ThumbnailUtils.extractThumbnail(image,
+          resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width),
+          resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)));
+      return new NotificationCompat.BigPictureStyle(notificationBuilder)
+        .bigPicture(image).setSummaryText(content).build();
+    }
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-      Log.d(TAG, "Rendering push notification with BigTextStyle");
+      AppboyLogger.d(TAG, "Rendering push notification with BigTextStyle");
       return new NotificationCompat.BigTextStyle(notificationBuilder)
         .bigText(content).build();
     }
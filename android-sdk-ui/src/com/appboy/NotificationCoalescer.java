@@ -0,0 +1,432 @@
+package com.appboy;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.appboy.configuration.XmlAppConfigurationProvider;
+import com.appboy.ui.support.AppboyLogger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Coalesces Appboy push notifications, so that a burst of pushes updates a single notification instead of posting one
+ * notification per push.
+ *
+ * Pushes are grouped by campaign, or by the value of a configurable Appboy data extra. Every group is posted with its
+ * own notification ID, which is allocated once and saved, so that it stays the same across process restarts and is
+ * never shared with another group. A push that arrives within the coalescing window of the group's previous push is
+ * added to the group's notification, which then shows the most recent messages in an inbox-style list along with the
+ * number of messages. A push that arrives later replaces the notification.
+ *
+ * The notification of a group is updated at most once per {@link #MIN_NOTIFY_INTERVAL_MS}. Pushes arriving faster
+ * than that are merged into a single update, which is posted on the given executor at the end of the interval. The
+ * broadcast of a push doesn't wait for that update: GCM delivers the next push only once the previous one is finished,
+ * so a burst could never be merged otherwise. Instead, a deferred update is saved along with the notification IDs, and
+ * if the process is killed before it is posted, it is posted the next time a push is received.
+ *
+ * This class is thread safe.
+ */
+final class NotificationCoalescer {
+  private static final String TAG = AppboyLogger.getAppboyTag(NotificationCoalescer.class);
+  static final long DEFAULT_COALESCING_WINDOW_MS = 5 * 60 * 1000l;
+  static final long MIN_NOTIFY_INTERVAL_MS = 1000l;
+  // The number of messages shown in the inbox-style list of a group's notification.
+  private static final int MAX_INBOX_LINES = 5;
+  // The number of groups whose notification ID is kept. The least recently used group is forgotten beyond this.
+  private static final int MAX_REMEMBERED_GROUPS = 64;
+  private static final String PREFERENCES_NAME = "com.appboy.notification_ids";
+  private static final String NEXT_ID_KEY = "next_id";
+  private static final String GROUP_KEY_PREFIX = "group.";
+  // Followed by the notification ID of a group whose deferred update hasn't been posted yet.
+  private static final String PENDING_UPDATE_KEY_PREFIX = "pending.";
+  private static final String GROUP_KEY_KEY = "group_key";
+  private static final String MESSAGE_COUNT_KEY = "message_count";
+  private static final String INBOX_LINES_KEY = "inbox_lines";
+  private static final String EXTRAS_KEY = "extras";
+  private static final String LAST_MESSAGE_AT_KEY = "last_message_at";
+
+  private final Executor mExecutor;
+  private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+  // Guarded by this.
+  private final Map<String, Group> mGroups = new HashMap<String, Group>();
+  // The notification ID of every remembered group, least recently used first. Guarded by this.
+  private final LinkedHashMap<String, Integer> mGroupNotificationIds =
+      new LinkedHashMap<String, Integer>(16, 0.75f, true);
+  private SharedPreferences mPreferences;
+  private int mNextNotificationId;
+  private String mGroupKeyExtra;
+  private long mCoalescingWindowMillis = DEFAULT_COALESCING_WINDOW_MS;
+
+  /**
+   * @param executor Runs the deferred notification updates.
+   */
+  NotificationCoalescer(Executor executor) {
+    mExecutor = executor;
+  }
+
+  /**
+   * @param groupKeyExtra The key of the Appboy data extra whose value groups pushes, or null to group them by campaign.
+   *                      Pushes without the extra are grouped by campaign.
+   */
+  synchronized void setGroupKeyExtra(String groupKeyExtra) {
+    mGroupKeyExtra = groupKeyExtra;
+  }
+
+  /**
+   * @param coalescingWindowMillis How long after a push the next push of its group is added to the same notification.
+   *                               With 0, every push replaces the notification of its group.
+   */
+  synchronized void setCoalescingWindowMillis(long coalescingWindowMillis) {
+    mCoalescingWindowMillis = Math.max(0l, coalescingWindowMillis);
+  }
+
+  /**
+   * Adds a notification push to its group, and posts or schedules the update of the group's notification. The group's
+   * notification ID is put into the extras under {@link Constants#APPBOY_GCM_NOTIFICATION_ID}. Once this method
+   * returns, the push is either posted or saved, so the broadcast of the push can be finished.
+   *
+   * @param extras The extras of the push, with the Appboy data extras already parsed into a Bundle.
+   * @param image The image of the push, or null. It is only shown while the push is alone in its notification, and
+   *              is lost if the process is killed before the push is posted.
+   */
+  synchronized void add(Context context, XmlAppConfigurationProvider appConfigurationProvider, Bundle extras,
+                        Bitmap image) {
+    context = context.getApplicationContext();
+    if (mPreferences == null) {
+      loadNotificationIds(context);
+      postSavedUpdates(context, appConfigurationProvider);
+    }
+    String groupKey = getGroupKey(extras);
+    int notificationId = getNotificationId(context, groupKey);
+    extras.putInt(Constants.APPBOY_GCM_NOTIFICATION_ID, notificationId);
+
+    long now = SystemClock.elapsedRealtime();
+    // Pushes without a group get a group of their own.
+    Group group = groupKey != null ? mGroups.get(groupKey) : null;
+    if (group == null || now - group.mLastMessageAt > mCoalescingWindowMillis) {
+      Group previousGroup = group;
+      group = new Group(groupKey, notificationId);
+      if (previousGroup != null) {
+        // The new group updates the same notification, so it is rate limited along with the previous one, whose
+        // scheduled update is now stale.
+        group.mLastNotifiedAt = previousGroup.mLastNotifiedAt;
+        previousGroup.mSuperseded = true;
+      }
+      if (groupKey != null) {
+        mGroups.put(groupKey, group);
+      }
+    }
+    String title = extras.getString(Constants.APPBOY_GCM_TITLE_KEY);
+    String content = extras.getString(Constants.APPBOY_GCM_CONTENT_KEY);
+    group.add(title, content, extras, appConfigurationProvider, image, now);
+    pruneGroups(now);
+
+    long nextNotifyAt = group.mLastNotifiedAt + MIN_NOTIFY_INTERVAL_MS;
+    if (group.mLastNotifiedAt < 0 || now >= nextNotifyAt) {
+      postNotification(context, group, now);
+    } else {
+      saveUpdate(group, now);
+      if (!group.mNotifyScheduled) {
+        group.mNotifyScheduled = true;
+        scheduleNotify(context, group, nextNotifyAt - now);
+      }
+    }
+  }
+
+  private String getGroupKey(Bundle extras) {
+    if (mGroupKeyExtra != null) {
+      Bundle appboyExtras = extras.getBundle(Constants.APPBOY_GCM_EXTRAS_KEY);
+      String groupKey = appboyExtras != null ? appboyExtras.getString(mGroupKeyExtra) : null;
+      if (groupKey != null) {
+        return "extra:" + groupKey;
+      }
+    }
+    String campaignId = extras.getString(Constants.APPBOY_GCM_CAMPAIGN_ID_KEY);
+    if (campaignId != null) {
+      return "campaign:" + campaignId;
+    }
+    String collapseKey = extras.getString(Constants.APPBOY_GCM_MESSAGE_TYPE_KEY);
+    return collapseKey != null ? "collapse_key:" + collapseKey : null;
+  }
+
+  /**
+   * @return The saved notification ID of the group, or a newly allocated one. Pushes without a group get a new ID
+   *         every time.
+   */
+  private int getNotificationId(Context context, String groupKey) {
+    Integer notificationId = groupKey != null ? mGroupNotificationIds.get(groupKey) : null;
+    if (notificationId != null) {
+      return notificationId;
+    }
+
+    notificationId = mNextNotificationId;
+    mNextNotificationId = mNextNotificationId == Integer.MAX_VALUE ? 1 : mNextNotificationId + 1;
+    // The preferences are only written from background threads, except before Honeycomb, where pushes are handled on
+    // the main thread and the SDK can't rely on SharedPreferences.Editor.apply() either.
+    SharedPreferences.Editor editor = mPreferences.edit().putInt(NEXT_ID_KEY, mNextNotificationId);
+    if (groupKey != null) {
+      mGroupNotificationIds.put(groupKey, notificationId);
+      editor.putInt(GROUP_KEY_PREFIX + groupKey, notificationId);
+      if (mGroupNotificationIds.size() > MAX_REMEMBERED_GROUPS) {
+        Iterator<String> leastRecentlyUsed = mGroupNotificationIds.keySet().iterator();
+        editor.remove(GROUP_KEY_PREFIX + leastRecentlyUsed.next());
+        leastRecentlyUsed.remove();
+      }
+    }
+    editor.commit();
+    return notificationId;
+  }
+
+  private void loadNotificationIds(Context context) {
+    mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    mNextNotificationId = mPreferences.getInt(NEXT_ID_KEY, 1);
+    // The saved order of use is lost, so the groups loaded are forgotten in an arbitrary order.
+    for (Map.Entry<String, ?> entry : mPreferences.getAll().entrySet()) {
+      if (entry.getKey().startsWith(GROUP_KEY_PREFIX) && entry.getValue() instanceof Integer) {
+        mGroupNotificationIds.put(entry.getKey().substring(GROUP_KEY_PREFIX.length()), (Integer) entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Posts the updates that were deferred by a previous process, which was killed before posting them. Their groups
+   * are restored, so that the pushes that follow are added to them.
+   */
+  private void postSavedUpdates(Context context, XmlAppConfigurationProvider appConfigurationProvider) {
+    long now = SystemClock.elapsedRealtime();
+    for (Map.Entry<String, ?> entry : mPreferences.getAll().entrySet()) {
+      if (!entry.getKey().startsWith(PENDING_UPDATE_KEY_PREFIX) || !(entry.getValue() instanceof String)) {
+        continue;
+      }
+      Group group;
+      try {
+        int notificationId = Integer.parseInt(entry.getKey().substring(PENDING_UPDATE_KEY_PREFIX.length()));
+        group = Group.fromJson(notificationId, new JSONObject((String) entry.getValue()), appConfigurationProvider, now);
+      } catch (NumberFormatException e) {
+        AppboyLogger.e(TAG, "Unable to restore the saved notification update " + entry.getKey() + ".", e);
+        mPreferences.edit().remove(entry.getKey()).commit();
+        continue;
+      } catch (JSONException e) {
+        AppboyLogger.e(TAG, "Unable to restore the saved notification update " + entry.getKey() + ".", e);
+        mPreferences.edit().remove(entry.getKey()).commit();
+        continue;
+      }
+      if (group.mGroupKey != null) {
+        mGroups.put(group.mGroupKey, group);
+      }
+      postNotification(context, group, now);
+    }
+  }
+
+  /**
+   * Saves the state of a group whose update is deferred, so that the update can be posted even if the process is
+   * killed first.
+   */
+  private void saveUpdate(Group group, long now) {
+    try {
+      mPreferences.edit()
+          .putString(PENDING_UPDATE_KEY_PREFIX + group.mNotificationId, group.toJson(now).toString())
+          .commit();
+    } catch (JSONException e) {
+      AppboyLogger.e(TAG, "Unable to save the update of notification " + group.mNotificationId + ".", e);
+    }
+  }
+
+  /**
+   * Forgets the groups whose coalescing window is over, and whose notification is up to date.
+   */
+  private void pruneGroups(long now) {
+    Iterator<Group> groups = mGroups.values().iterator();
+    while (groups.hasNext()) {
+      Group group = groups.next();
+      if (!group.mNotifyScheduled && now - group.mLastMessageAt > mCoalescingWindowMillis) {
+        groups.remove();
+      }
+    }
+  }
+
+  private void scheduleNotify(final Context context, final Group group, long delayMillis) {
+    final Runnable notifyRunnable = new Runnable() {
+      @Override
+      public void run() {
+        synchronized (NotificationCoalescer.this) {
+          group.mNotifyScheduled = false;
+          if (!group.mSuperseded) {
+            postNotification(context, group, SystemClock.elapsedRealtime());
+          }
+        }
+      }
+    };
+    mMainThreadHandler.postDelayed(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          mExecutor.execute(notifyRunnable);
+        } catch (RejectedExecutionException e) {
+          notifyRunnable.run();
+        }
+      }
+    }, delayMillis);
+  }
+
+  /**
+   * Posts the notification of the group, and forgets its saved update, if any. An update that can't be posted isn't
+   * retried.
+   */
+  private void postNotification(Context context, Group group, long now) {
+    group.mLastNotifiedAt = now;
+    String pendingUpdateKey = PENDING_UPDATE_KEY_PREFIX + group.mNotificationId;
+    if (mPreferences.contains(pendingUpdateKey)) {
+      mPreferences.edit().remove(pendingUpdateKey).commit();
+    }
+    try {
+      Notification notification = AppboyGcmReceiver.createNotification(group.mAppConfigurationProvider, context,
+          group.mTitle, group.mContent, group.mExtras, group.mNotificationId, group.mInboxLines, group.mMessageCount,
+          group.mImage);
+      NotificationManager notificationManager =
+          (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+      notificationManager.notify(Constants.APPBOY_GCM_NOTIFICATION_TAG, group.mNotificationId, notification);
+      AppboyLogger.d(TAG, "Posted notification %d with %d messages.", group.mNotificationId, group.mMessageCount);
+    } catch (RuntimeException e) {
+      AppboyLogger.e(TAG, "Unable to post notification " + group.mNotificationId + ".", e);
+    } finally {
+      // The image is only needed until it has been handed to the system.
+      group.mImage = null;
+    }
+  }
+
+  /**
+   * The pushes of a group received within the coalescing window.
+   */
+  private static class Group {
+    // Null for a push without a group.
+    final String mGroupKey;
+    final int mNotificationId;
+    final List<CharSequence> mInboxLines = new LinkedList<CharSequence>();
+    int mMessageCount;
+    // The most recent push, which the notification opens.
+    String mTitle;
+    String mContent;
+    Bundle mExtras;
+    XmlAppConfigurationProvider mAppConfigurationProvider;
+    // The image of the group's only push, until it has been posted.
+    Bitmap mImage;
+    long mLastMessageAt;
+    long mLastNotifiedAt = -1l;
+    boolean mNotifyScheduled;
+    // Whether a newer group took over the notification.
+    boolean mSuperseded;
+
+    Group(String groupKey, int notificationId) {
+      mGroupKey = groupKey;
+      mNotificationId = notificationId;
+    }
+
+    /**
+     * Restores a group saved by {@link #toJson(long)}. The times of the group are saved as wall clock times, since the
+     * device may have rebooted since.
+     */
+    static Group fromJson(int notificationId, JSONObject json, XmlAppConfigurationProvider appConfigurationProvider,
+                          long now) throws JSONException {
+      Group group = new Group(json.has(GROUP_KEY_KEY) ? json.getString(GROUP_KEY_KEY) : null, notificationId);
+      group.mMessageCount = json.getInt(MESSAGE_COUNT_KEY);
+      JSONArray inboxLines = json.getJSONArray(INBOX_LINES_KEY);
+      for (int i = 0; i < inboxLines.length(); i++) {
+        group.mInboxLines.add(inboxLines.getString(i));
+      }
+      group.mExtras = jsonToBundle(json.getJSONObject(EXTRAS_KEY));
+      group.mExtras.putInt(Constants.APPBOY_GCM_NOTIFICATION_ID, notificationId);
+      group.mTitle = group.mExtras.getString(Constants.APPBOY_GCM_TITLE_KEY);
+      group.mContent = group.mExtras.getString(Constants.APPBOY_GCM_CONTENT_KEY);
+      group.mAppConfigurationProvider = appConfigurationProvider;
+      long millisSinceLastMessage = Math.max(0l, System.currentTimeMillis() - json.getLong(LAST_MESSAGE_AT_KEY));
+      group.mLastMessageAt = now - millisSinceLastMessage;
+      return group;
+    }
+
+    JSONObject toJson(long now) throws JSONException {
+      JSONObject json = new JSONObject()
+          .put(MESSAGE_COUNT_KEY, mMessageCount)
+          .put(INBOX_LINES_KEY, new JSONArray(toStrings(mInboxLines)))
+          .put(EXTRAS_KEY, bundleToJson(mExtras))
+          .put(LAST_MESSAGE_AT_KEY, System.currentTimeMillis() - (now - mLastMessageAt));
+      if (mGroupKey != null) {
+        json.put(GROUP_KEY_KEY, mGroupKey);
+      }
+      return json;
+    }
+
+    void add(String title, String content, Bundle extras, XmlAppConfigurationProvider appConfigurationProvider,
+             Bitmap image, long now) {
+      mMessageCount++;
+      mImage = mMessageCount == 1 ? image : null;
+      mTitle = title;
+      mContent = content;
+      mExtras = extras;
+      mAppConfigurationProvider = appConfigurationProvider;
+      mLastMessageAt = now;
+      mInboxLines.add(0, title + ": " + content);
+      if (mInboxLines.size() > MAX_INBOX_LINES) {
+        mInboxLines.remove(MAX_INBOX_LINES);
+      }
+    }
+  }
+
+  private static List<String> toStrings(List<CharSequence> charSequences) {
+    List<String> strings = new ArrayList<String>(charSequences.size());
+    for (CharSequence charSequence : charSequences) {
+      strings.add(charSequence.toString());
+    }
+    return strings;
+  }
+
+  /**
+   * The extras of a push are strings, apart from the parsed Appboy data extras, which are a Bundle of strings, and the
+   * notification ID, which is put back when they are restored. Other values are left out.
+   */
+  private static JSONObject bundleToJson(Bundle bundle) throws JSONException {
+    JSONObject json = new JSONObject();
+    for (String key : bundle.keySet()) {
+      Object value = bundle.get(key);
+      if (value instanceof String) {
+        json.put(key, value);
+      } else if (value instanceof Bundle) {
+        json.put(key, bundleToJson((Bundle) value));
+      }
+    }
+    return json;
+  }
+
+  private static Bundle jsonToBundle(JSONObject json) throws JSONException {
+    Bundle bundle = new Bundle();
+    Iterator keys = json.keys();
+    while (keys.hasNext()) {
+      String key = (String) keys.next();
+      JSONObject nestedJson = json.optJSONObject(key);
+      if (nestedJson != null) {
+        bundle.putBundle(key, jsonToBundle(nestedJson));
+      } else {
+        bundle.putString(key, json.getString(key));
+      }
+    }
+    return bundle;
+  }
+}
@@ -0,0 +1,101 @@
+package com.appboy;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.text.format.DateFormat;
+
+import com.appboy.ui.support.AppboyLogger;
+import com.appboy.ui.support.StringUtils;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * The resources of the custom notification view used from Honeycomb to ICS, resolved once per process.
+ *
+ * Resource IDs don't change while the process lives, so they are looked up by name only once. The time format
+ * strings are localized, so the time format is rebuilt whenever the locale or the device's 24-hour setting changes.
+ *
+ * This class is thread safe.
+ */
+final class NotificationViewTemplate {
+  private static final String TAG = AppboyLogger.getAppboyTag(NotificationViewTemplate.class);
+  private static NotificationViewTemplate sInstance;
+
+  final int mLayoutResourceId;
+  final int mTitleResourceId;
+  final int mContentResourceId;
+  final int mIconResourceId;
+  final int mTimeViewResourceId;
+  private final int mTwentyFourHourFormatResourceId;
+  private final int mTwelveHourFormatResourceId;
+  // The time format, and the locale and 24-hour setting it was built for. Guarded by this.
+  private SimpleDateFormat mTimeFormat;
+  private Locale mTimeFormatLocale;
+  private boolean mTimeFormatTwentyFourHour;
+
+  static synchronized NotificationViewTemplate getInstance(Context context) {
+    if (sInstance == null) {
+      sInstance = new NotificationViewTemplate(context);
+    }
+    return sInstance;
+  }
+
+  private NotificationViewTemplate(Context context) {
+    Resources resources = context.getResources();
+    String packageName = context.getPackageName();
+    mLayoutResourceId = resources.getIdentifier("com_appboy_notification", "layout", packageName);
+    mTitleResourceId = resources.getIdentifier("com_appboy_notification_title", "id", packageName);
+    mContentResourceId = resources.getIdentifier("com_appboy_notification_content", "id", packageName);
+    mIconResourceId = resources.getIdentifier("com_appboy_notification_icon", "id", packageName);
+    mTimeViewResourceId = resources.getIdentifier("com_appboy_notification_time", "id", packageName);
+    mTwentyFourHourFormatResourceId = resources.getIdentifier("com_appboy_push_notification_twenty_four_hour_format",
+        "string", packageName);
+    mTwelveHourFormatResourceId = resources.getIdentifier("com_appboy_push_notification_twelve_hour_format", "string",
+        packageName);
+
+    if (!isComplete()) {
+      AppboyLogger.w(TAG, "Couldn't find all resource IDs for custom notification view, extended view will " +
+          "not be used for push notifications. Received %d for layout, %d for title, %d for content, %d for icon, " +
+          "and %d for time.",
+          mLayoutResourceId, mTitleResourceId, mContentResourceId, mIconResourceId, mTimeViewResourceId);
+    }
+  }
+
+  /**
+   * @return Whether all the views of the custom notification view were found.
+   */
+  boolean isComplete() {
+    return mLayoutResourceId != 0 && mTitleResourceId != 0 && mContentResourceId != 0 && mIconResourceId != 0
+        && mTimeViewResourceId != 0;
+  }
+
+  /**
+   * Formats the time of day for the notification's time view, in the current locale and the device's 24-hour
+   * setting.
+   */
+  synchronized String formatTime(Context context, Date date) {
+    Resources resources = context.getResources();
+    Locale locale = resources.getConfiguration().locale;
+    boolean twentyFourHour = DateFormat.is24HourFormat(context);
+    if (mTimeFormat == null || twentyFourHour != mTimeFormatTwentyFourHour || !locale.equals(mTimeFormatLocale)) {
+      String pattern = twentyFourHour
+          ? getOptionalStringResource(resources, mTwentyFourHourFormatResourceId,
+              Constants.DEFAULT_TWENTY_FOUR_HOUR_TIME_FORMAT)
+          : getOptionalStringResource(resources, mTwelveHourFormatResourceId, Constants.DEFAULT_TWELVE_HOUR_TIME_FORMAT);
+      mTimeFormat = new SimpleDateFormat(pattern, locale);
+      mTimeFormatLocale = locale;
+      mTimeFormatTwentyFourHour = twentyFourHour;
+    }
+    return mTimeFormat.format(date);
+  }
+
+  private static String getOptionalStringResource(Resources resources, int stringResourceId, String defaultString) {
+    // Avoids the exception thrown when looking up a resource that was not found.
+    if (stringResourceId == 0) {
+      return defaultString;
+    }
+    return StringUtils.getOptionalStringResource(resources, stringResourceId, defaultString);
+  }
+}
@@ -0,0 +1,260 @@
+package com.appboy;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import com.appboy.ui.support.AppboyLogger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Iterator;
+
+/**
+ * Parses the JSON data extras of Appboy push messages into a Bundle.
+ *
+ * From Honeycomb on, the JSON is read with a streaming JsonReader straight into the Bundle, in a single pass and
+ * without building a JSONObject first. Older devices go through JSONObject.
+ *
+ * By default every value is put into the Bundle as a string, the way AppboyGcmReceiver always has, and nested objects
+ * and arrays are kept as their JSON text. Typed parsing keeps numbers and booleans as such and turns nested objects
+ * into sub-bundles. Arrays are still kept as their JSON text, since a Bundle can't hold an array of mixed values.
+ *
+ * Extras longer than {@link #MAX_EXTRAS_LENGTH} characters, or nested deeper than {@link #MAX_NESTING_DEPTH}
+ * levels, are rejected.
+ */
+final class PushExtrasParser {
+  private static final String TAG = AppboyLogger.getAppboyTag(PushExtrasParser.class);
+  // GCM payloads are limited to 4KB, so extras much longer than that didn't come from GCM.
+  static final int MAX_EXTRAS_LENGTH = 8192;
+  static final int MAX_NESTING_DEPTH = 16;
+
+  private PushExtrasParser() {}
+
+  /**
+   * @param typed Whether numbers, booleans and nested objects keep their type, rather than being put as strings.
+   * @return The extras, or null if they aren't a valid JSON object or are too large.
+   */
+  static Bundle parse(String json, boolean typed) {
+    if (json.length() > MAX_EXTRAS_LENGTH) {
+      AppboyLogger.e(TAG, "The Appboy GCM data extras are %d characters long, which is over the limit of %d. " +
+          "Ignoring them.", json.length(), MAX_EXTRAS_LENGTH);
+      return null;
+    }
+    try {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+        return parseStreaming(json, typed);
+      }
+      return readJsonObject(new JSONObject(json), typed, 0);
+    } catch (IOException e) {
+      AppboyLogger.e(TAG, "Unable to parse the Appboy GCM data extras.", e);
+    } catch (JSONException e) {
+      AppboyLogger.e(TAG, "Unable to parse the Appboy GCM data extras.", e);
+    } catch (IllegalStateException e) {
+      // Thrown by JsonReader when the JSON isn't an object.
+      AppboyLogger.e(TAG, "Unable to parse the Appboy GCM data extras.", e);
+    }
+    return null;
+  }
+
+  @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+  private static Bundle parseStreaming(String json, boolean typed) throws IOException {
+    JsonReader reader = new JsonReader(new StringReader(json));
+    try {
+      Bundle bundle = readObject(reader, typed, 0);
+      if (reader.peek() != JsonToken.END_DOCUMENT) {
+        throw new IOException("Unexpected content after the extras object.");
+      }
+      return bundle;
+    } finally {
+      reader.close();
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+  private static Bundle readObject(JsonReader reader, boolean typed, int depth) throws IOException {
+    checkDepth(depth);
+    Bundle bundle = new Bundle();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String key = reader.nextName();
+      if (typed) {
+        readTypedValue(reader, bundle, key, depth);
+      } else {
+        bundle.putString(key, readValueAsString(reader, depth));
+      }
+    }
+    reader.endObject();
+    return bundle;
+  }
+
+  @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+  private static void readTypedValue(JsonReader reader, Bundle bundle, String key, int depth) throws IOException {
+    switch (reader.peek()) {
+      case BEGIN_OBJECT:
+        bundle.putBundle(key, readObject(reader, true, depth + 1));
+        break;
+      case BEGIN_ARRAY:
+        bundle.putString(key, copyValueToString(reader, depth + 1));
+        break;
+      case BOOLEAN:
+        bundle.putBoolean(key, reader.nextBoolean());
+        break;
+      case NUMBER:
+        putNumber(bundle, key, parseNumber(reader.nextString()));
+        break;
+      case NULL:
+        reader.nextNull();
+        bundle.putString(key, null);
+        break;
+      default:
+        bundle.putString(key, reader.nextString());
+        break;
+    }
+  }
+
+  /**
+   * @return The value the way JSONObject.getString returns it.
+   */
+  @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+  private static String readValueAsString(JsonReader reader, int depth) throws IOException {
+    switch (reader.peek()) {
+      case BEGIN_OBJECT:
+      case BEGIN_ARRAY:
+        return copyValueToString(reader, depth + 1);
+      case BOOLEAN:
+        return String.valueOf(reader.nextBoolean());
+      case NUMBER:
+        return parseNumber(reader.nextString()).toString();
+      case NULL:
+        reader.nextNull();
+        return "null";
+      default:
+        return reader.nextString();
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+  private static String copyValueToString(JsonReader reader, int depth) throws IOException {
+    StringWriter stringWriter = new StringWriter();
+    JsonWriter writer = new JsonWriter(stringWriter);
+    copyValue(reader, writer, depth);
+    writer.close();
+    return stringWriter.toString();
+  }
+
+  @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+  private static void copyValue(JsonReader reader, JsonWriter writer, int depth) throws IOException {
+    switch (reader.peek()) {
+      case BEGIN_OBJECT:
+        checkDepth(depth);
+        reader.beginObject();
+        writer.beginObject();
+        while (reader.hasNext()) {
+          writer.name(reader.nextName());
+          copyValue(reader, writer, depth + 1);
+        }
+        reader.endObject();
+        writer.endObject();
+        break;
+      case BEGIN_ARRAY:
+        checkDepth(depth);
+        reader.beginArray();
+        writer.beginArray();
+        while (reader.hasNext()) {
+          copyValue(reader, writer, depth + 1);
+        }
+        reader.endArray();
+        writer.endArray();
+        break;
+      case BOOLEAN:
+        writer.value(reader.nextBoolean());
+        break;
+      case NUMBER:
+        Number number = parseNumber(reader.nextString());
+        // Like JSONObject, whole doubles are written without their fraction.
+        if (number instanceof Double && number.doubleValue() == number.longValue()) {
+          writer.value(number.longValue());
+        } else {
+          writer.value(number);
+        }
+        break;
+      case NULL:
+        reader.nextNull();
+        writer.nullValue();
+        break;
+      default:
+        writer.value(reader.nextString());
+        break;
+    }
+  }
+
+  private static Bundle readJsonObject(JSONObject json, boolean typed, int depth) throws JSONException {
+    if (depth > MAX_NESTING_DEPTH) {
+      throw new JSONException("The extras are nested deeper than " + MAX_NESTING_DEPTH + " levels.");
+    }
+    Bundle bundle = new Bundle();
+    Iterator keys = json.keys();
+    while (keys.hasNext()) {
+      String key = (String) keys.next();
+      if (!typed) {
+        bundle.putString(key, json.getString(key));
+        continue;
+      }
+      Object value = json.get(key);
+      if (value instanceof JSONObject) {
+        bundle.putBundle(key, readJsonObject((JSONObject) value, true, depth + 1));
+      } else if (value instanceof Boolean) {
+        bundle.putBoolean(key, (Boolean) value);
+      } else if (value instanceof Number) {
+        putNumber(bundle, key, (Number) value);
+      } else if (value == JSONObject.NULL) {
+        bundle.putString(key, null);
+      } else {
+        bundle.putString(key, value.toString());
+      }
+    }
+    return bundle;
+  }
+
+  /**
+   * Parses a number literal the way JSONObject does: integers become Integers or Longs, depending on their size, and
+   * everything else becomes a Double.
+   */
+  private static Number parseNumber(String literal) {
+    if (literal.indexOf('.') == -1 && literal.indexOf('e') == -1 && literal.indexOf('E') == -1) {
+      try {
+        long longValue = Long.parseLong(literal);
+        if (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) {
+          return (int) longValue;
+        }
+        return longValue;
+      } catch (NumberFormatException e) {
+        // Too large for a long. Fall through to a double.
+      }
+    }
+    return Double.valueOf(literal);
+  }
+
+  private static void putNumber(Bundle bundle, String key, Number number) {
+    if (number instanceof Integer) {
+      bundle.putInt(key, number.intValue());
+    } else if (number instanceof Long) {
+      bundle.putLong(key, number.longValue());
+    } else {
+      bundle.putDouble(key, number.doubleValue());
+    }
+  }
+
+  private static void checkDepth(int depth) throws IOException {
+    if (depth > MAX_NESTING_DEPTH) {
+      throw new IOException("The extras are nested deeper than " + MAX_NESTING_DEPTH + " levels.");
+    }
+  }
+}
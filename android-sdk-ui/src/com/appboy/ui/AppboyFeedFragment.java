@@ -5,24 +5,26 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.v4.app.ListFragment;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.LinearLayout;
 import android.widget.ListView;
 import android.widget.ProgressBar;
 import com.appboy.Appboy;
-import com.appboy.Constants;
 import com.appboy.events.FeedUpdatedEvent;
 import com.appboy.events.IEventSubscriber;
 import com.appboy.models.cards.Card;
 import com.appboy.ui.adapters.AppboyListAdapter;
+import com.appboy.ui.adapters.FeedImagePrefetcher;
+import com.appboy.ui.adapters.VisibleCardImpressionTracker;
+import com.appboy.ui.support.AppboyLogger;
 
 import java.util.ArrayList;
 
 public class AppboyFeedFragment extends ListFragment {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, AppboyFeedFragment.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(AppboyFeedFragment.class);
   private static int NETWORK_PROBLEM_WARNING_MS = 5000;
   private static int MAX_FEED_TTL_SECONDS = 60;
 
@@ -48,6 +50,10 @@ public class AppboyFeedFragment extends ListFragment {
   private LinearLayout mEmptyFeedLayout;
   private ProgressBar mLoadingSpinner;
   private boolean mSkipCardImpressionsReset;
+  private VisibleCardImpressionTracker mCardImpressionTracker;
+  private FeedImagePrefetcher mImagePrefetcher;
+  // Whether the adapter holds any cards. Only written on the main thread, but read by the feed subscriber.
+  private volatile boolean mAdapterHasCards;
 
   @Override
   public void onAttach(final Activity activity) {
@@ -75,7 +81,7 @@ public class AppboyFeedFragment extends ListFragment {
       mSkipCardImpressionsReset = false;
     } else {
       mAdapter.resetCardImpressionTracker();
-      Log.d(TAG, "Resetting card impressions.");
+      AppboyLogger.d(TAG, "Resetting card impressions.");
     }
 
     // Applying top and bottom padding as header and footer views allows for the top and bottom padding to be scrolled
@@ -85,6 +91,29 @@ public class AppboyFeedFragment extends ListFragment {
     listView.addHeaderView(inflater.inflate(R.layout.com_appboy_feed_header, null));
     listView.addFooterView(inflater.inflate(R.layout.com_appboy_feed_footer, null));
 
+    // Card impressions are logged once a card has been visible long enough. ListView calls onScroll once per scroll
+    // frame and after every layout, which is when visibility is recomputed for all visible rows. Impressions are
+    // buffered while the feed is scrolling and logged in one batch when the scroll comes to rest. The images of the
+    // cards about to scroll into view are prefetched from the same callbacks.
+    mCardImpressionTracker = new VisibleCardImpressionTracker(listView, mAdapter);
+    mImagePrefetcher = new FeedImagePrefetcher(getActivity(), listView);
+    listView.setOnScrollListener(new AbsListView.OnScrollListener() {
+      @Override
+      public void onScrollStateChanged(AbsListView view, int scrollState) {
+        mAdapter.setCardImpressionFlushDeferred(scrollState != AbsListView.OnScrollListener.SCROLL_STATE_IDLE);
+        mImagePrefetcher.onScrollStateChanged(scrollState);
+      }
+
+      @Override
+      public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        mCardImpressionTracker.update();
+        mImagePrefetcher.onScroll(firstVisibleItem, visibleItemCount);
+      }
+    });
+
+    mAdapterHasCards = !mAdapter.isEmpty();
+    mAdapter.openCardViewPool();
+
     // Remove the previous subscriber before rebuilding a new one with our new activity.
     mAppboy.removeSingleSubscription(mFeedUpdatedSubscriber, FeedUpdatedEvent.class);
     mFeedUpdatedSubscriber = new IEventSubscriber<FeedUpdatedEvent>() {
@@ -97,10 +126,17 @@ public class AppboyFeedFragment extends ListFragment {
           return;
         }
 
+        // Events are delivered off the main thread, so when the feed is first loaded we use this opportunity to
+        // create the card views it needs before the list is shown. Views created after the list view is destroyed
+        // are dropped by the pool.
+        if (!mAdapterHasCards) {
+          mAdapter.preinflateCardViews(event.getFeedCards());
+        }
+
         activity.runOnUiThread(new Runnable() {
           @Override
           public void run() {
-            Log.d(TAG, "Updating feed views in response to FeedUpdatedEvent: " + event);
+            AppboyLogger.d(TAG, "Updating feed views in response to FeedUpdatedEvent: %s", event);
             // If a FeedUpdatedEvent comes in, we make sure that the network error isn't visible. It could become
             // visible again later if we need to request a new feed and it doesn't return in time, but we display a
             // network spinner while we wait, instead of keeping the network error up.
@@ -112,6 +148,7 @@ public class AppboyFeedFragment extends ListFragment {
             if (event.getCardCount() == 0) {
               listView.setVisibility(View.GONE);
               mAdapter.clear();
+              mAdapterHasCards = false;
             } else {
               mEmptyFeedLayout.setVisibility(View.GONE);
               mLoadingSpinner.setVisibility(View.GONE);
@@ -120,14 +157,14 @@ public class AppboyFeedFragment extends ListFragment {
             // If we our feed from offline storage, and it was old, we asynchronously request a new one from the server,
             // putting up a spinner if the old feed was empty.
             if (event.isFromOfflineStorage() && (event.lastUpdatedInSecondsFromEpoch() + MAX_FEED_TTL_SECONDS) * 1000 < System.currentTimeMillis()) {
-              Log.i(TAG, String.format("Feed received was older than the max time to live of %d seconds, displaying it " +
-                  "for now, but requesting an updated view from the server.", MAX_FEED_TTL_SECONDS));
+              AppboyLogger.i(TAG, "Feed received was older than the max time to live of %d seconds, displaying it " +
+                  "for now, but requesting an updated view from the server.", MAX_FEED_TTL_SECONDS);
               mAppboy.requestFeedRefresh();
               // If we don't have any cards to display, we put up the spinner while we wait for the network to return.
               // Eventually displaying an error message if it doesn't.
               if (event.getCardCount() == 0) {
-                Log.d(TAG, String.format("Old feed was empty, putting up a network spinner and registering the network error message on a delay of %dms.",
-                    NETWORK_PROBLEM_WARNING_MS));
+                AppboyLogger.d(TAG, "Old feed was empty, putting up a network spinner and registering the network error message on a delay of %dms.",
+                    NETWORK_PROBLEM_WARNING_MS);
                 mEmptyFeedLayout.setVisibility(View.GONE);
                 mLoadingSpinner.setVisibility(View.VISIBLE);
                 mMainThreadLooper.postDelayed(mShowNetworkError, NETWORK_PROBLEM_WARNING_MS);
@@ -143,6 +180,7 @@ public class AppboyFeedFragment extends ListFragment {
               mEmptyFeedLayout.setVisibility(View.VISIBLE);
             } else {
               mAdapter.replaceFeed(event.getFeedCards());
+              mAdapterHasCards = !mAdapter.isEmpty();
               listView.setVisibility(View.VISIBLE);
             }
           }
@@ -161,6 +199,14 @@ public class AppboyFeedFragment extends ListFragment {
   public void onResume() {
     super.onResume();
     Appboy.getInstance(getActivity()).logFeedDisplayed();
+    mCardImpressionTracker.start();
+  }
+
+  @Override
+  public void onPause() {
+    super.onPause();
+    mCardImpressionTracker.stop();
+    mImagePrefetcher.stop();
   }
 
   @Override
@@ -168,6 +214,9 @@ public class AppboyFeedFragment extends ListFragment {
     super.onDestroyView();
     // If the view is destroyed, we don't care about updating it anymore. Remove the subscription immediately.
     mAppboy.removeSingleSubscription(mFeedUpdatedSubscriber, FeedUpdatedEvent.class);
+    mAdapter.clearCardViewPool();
+    mAdapter.setCardImpressionFlushDeferred(false);
+    mAdapter.flushCardImpressions();
   }
 
   @Override
@@ -6,7 +6,6 @@ import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.text.Editable;
 import android.text.TextWatcher;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -18,12 +17,12 @@ import android.widget.CheckBox;
 import android.widget.EditText;
 
 import com.appboy.Appboy;
-import com.appboy.Constants;
 import com.appboy.support.ValidationUtils;
+import com.appboy.ui.support.AppboyLogger;
 import com.appboy.ui.support.StringUtils;
 
 public class AppboyFeedbackFragment extends Fragment {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, AppboyFeedbackFragment.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(AppboyFeedbackFragment.class);
 
   /**
    * Listener to be called after the feedback has been submitted or cancelled. You must set the
@@ -74,7 +73,7 @@ public class AppboyFeedbackFragment extends Fragment {
         String email = mEmailEditText.getText().toString();
         boolean result = Appboy.getInstance(getActivity()).submitFeedback(email, message, isBug);
         if (!result) {
-          Log.e(TAG, "Could not post feedback.");
+          AppboyLogger.e(TAG, "Could not post feedback.");
         }
         if (mFeedbackFinishedListener != null) {
           mFeedbackFinishedListener.onFeedbackFinished();
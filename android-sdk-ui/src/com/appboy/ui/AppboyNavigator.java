@@ -6,15 +6,14 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
-import android.util.Log;
-import com.appboy.Constants;
 import com.appboy.IAppboyNavigator;
 import com.appboy.ui.actions.ActivityAction;
 import com.appboy.ui.actions.WebAction;
 import com.appboy.ui.activities.AppboyFeedActivity;
+import com.appboy.ui.support.AppboyLogger;
 
 public class AppboyNavigator implements IAppboyNavigator {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, AppboyNavigator.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(AppboyNavigator.class);
 
   @Override
   public void gotoNewsFeed(Context context, Bundle extras) {
@@ -27,7 +26,7 @@ public class AppboyNavigator implements IAppboyNavigator {
       ActivityAction activityAction = new ActivityAction(intent);
       activityAction.execute(context);
     } catch (PackageManager.NameNotFoundException e) {
-      Log.d(TAG, "The AppboyFeedActivity is not registered in the manifest. Ignoring request " +
+      AppboyLogger.d(TAG, "The AppboyFeedActivity is not registered in the manifest. Ignoring request " +
           "to display the news feed.");
     }
   }
@@ -35,7 +34,7 @@ public class AppboyNavigator implements IAppboyNavigator {
   @Override
   public void gotoURI(Context context, Uri uri, Bundle extras) {
     if (uri == null) {
-      Log.e(TAG, "IAppboyNavigator cannot open URI because the URI is null.");
+      AppboyLogger.e(TAG, "IAppboyNavigator cannot open URI because the URI is null.");
       return;
     }
     WebAction webAction = new WebAction(uri.toString());
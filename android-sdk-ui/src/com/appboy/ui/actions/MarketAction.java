@@ -5,8 +5,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ResolveInfo;
 import android.net.Uri;
-import android.util.Log;
-import com.appboy.Constants;
+import com.appboy.ui.support.AppboyLogger;
 
 import java.util.List;
 
@@ -16,7 +15,7 @@ import java.util.List;
  * Play web store.
  */
 public final class MarketAction implements IAction {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, MarketAction.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(MarketAction.class);
   private static final String PLAY_STORE_WEB_BASE = "https://play.google.com/store/apps/details?id=";
 
   private final Uri mMarketUri;
@@ -38,7 +37,7 @@ public final class MarketAction implements IAction {
     try {
       context.startActivity(marketIntent);
     } catch (ActivityNotFoundException e) {
-      Log.w(TAG, String.format("Unable to open %s.", marketIntent.getData()));
+      AppboyLogger.w(TAG, "Unable to open %s.", marketIntent.getData());
     }
   }
 }
@@ -1,45 +1,27 @@
 package com.appboy.ui.adapters;
 
-import android.annotation.TargetApi;
 import android.content.Context;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
 
-import com.appboy.Appboy;
-import com.appboy.Constants;
-import com.appboy.models.cards.AppStoreReviewCard;
-import com.appboy.models.cards.BannerImageCard;
-import com.appboy.models.cards.CaptionedImageCard;
 import com.appboy.models.cards.Card;
-import com.appboy.models.cards.CrossPromotionLargeCard;
-import com.appboy.models.cards.CrossPromotionSmallCard;
-import com.appboy.models.cards.ShortNewsCard;
-import com.appboy.models.cards.TextAnnouncementCard;
-
-import com.appboy.ui.configuration.XmlUIConfigurationProvider;
-import com.appboy.ui.widget.AppStoreReviewCardView;
-import com.appboy.ui.widget.BannerImageCardView;
+import com.appboy.ui.support.AppboyLogger;
 import com.appboy.ui.widget.BaseCardView;
-import com.appboy.ui.widget.CaptionedImageCardView;
-import com.appboy.ui.widget.CrossPromotionLargeCardView;
-import com.appboy.ui.widget.CrossPromotionSmallCardView;
-import com.appboy.ui.widget.DefaultCardView;
-import com.appboy.ui.widget.ShortNewsCardView;
-import com.appboy.ui.widget.TextAnnouncementCardView;
-
-import java.util.Collection;
-import java.util.HashSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 /**
  * Default adapter used to display cards and log card impressions for the Appboy feed.
  *
  * This allows the stream to reuse cards when they go out of view.
  *
- * IMPORTANT - When you add a new card, be sure to add the new view type and update the view count here
+ * Card views are created through the {@link com.appboy.ui.adapters.CardViewTypeRegistry}. To display a new card
+ * type, register an {@link com.appboy.ui.adapters.ICardViewFactory} for it there instead of modifying this adapter.
  *
  * A card generates an impression once per viewing per open ListView. If a card is viewed more than once
  * in a particular ListView, it generates only one impression. If closed an reopened, a card will again
@@ -55,48 +37,35 @@ import java.util.Set;
  * {@link com.appboy.ui.adapters.AppboyListAdapter#replaceFeed(java.util.List)}
  */
 public class AppboyListAdapter extends ArrayAdapter<Card> {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, AppboyListAdapter.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(AppboyListAdapter.class);
 
   private final Context mContext;
-  private final Set<String> mCardIdImpressions;
-  private final XmlUIConfigurationProvider mUiConfigurationProvider;
+  private final List<Card> mCards;
+  private final CardImpressionBatcher mCardImpressionBatcher;
+  private final CardViewTypeRegistry mCardViewTypeRegistry;
+  private final CardViewPool mCardViewPool;
 
   public AppboyListAdapter(Context context, int layoutResourceId, List<Card> cards) {
     super(context, layoutResourceId, cards);
     mContext = context;
-    mCardIdImpressions = new HashSet<String>();
-    mUiConfigurationProvider = new XmlUIConfigurationProvider(context);
+    mCards = cards;
+    mCardImpressionBatcher = new CardImpressionBatcher(context);
+    mCardViewTypeRegistry = CardViewTypeRegistry.getInstance();
+    mCardViewPool = new CardViewPool(mCardViewTypeRegistry);
   }
 
   /**
-   * Be sure to keep view count in sync with the number of card types in the stream.
-   * It is used internally to return the correct card type and to cache views for reuse
+   * The view type count and view types are resolved through the {@link com.appboy.ui.adapters.CardViewTypeRegistry},
+   * which must be fully populated before the adapter is set on the ListView.
    */
   @Override
   public int getViewTypeCount() {
-    return 8;
+    return mCardViewTypeRegistry.getViewTypeCount();
   }
 
   @Override
   public int getItemViewType(int position) {
-    Card card = getItem(position);
-    if (card instanceof AppStoreReviewCard) {
-      return 1;
-    } else if (card instanceof BannerImageCard) {
-      return 2;
-    } else if (card instanceof CaptionedImageCard) {
-      return 3;
-    } else if (card instanceof CrossPromotionLargeCard) {
-      return 4;
-    } else if (card instanceof CrossPromotionSmallCard) {
-      return 5;
-    } else if (card instanceof ShortNewsCard) {
-      return 6;
-    } else if (card instanceof TextAnnouncementCard) {
-      return 7;
-    } else {
-      return 0;
-    }
+    return mCardViewTypeRegistry.getViewType(getItem(position));
   }
 
   /**
@@ -109,32 +78,28 @@ public class AppboyListAdapter extends ArrayAdapter<Card> {
     Card card = getItem(position);
 
     if (convertView == null) {
-      if (card instanceof AppStoreReviewCard) {
-        view = new AppStoreReviewCardView(mContext, mUiConfigurationProvider.getApplicationIconResourceId());
-      } else if (card instanceof BannerImageCard) {
-        view = new BannerImageCardView(mContext);
-      } else if (card instanceof CaptionedImageCard) {
-        view = new CaptionedImageCardView(mContext);
-      } else if (card instanceof CrossPromotionLargeCard) {
-        view = new CrossPromotionLargeCardView(mContext);
-      } else if (card instanceof CrossPromotionSmallCard) {
-        view = new CrossPromotionSmallCardView(mContext);
-      } else if (card instanceof ShortNewsCard) {
-        view = new ShortNewsCardView(mContext);
-      } else if (card instanceof TextAnnouncementCard) {
-        view = new TextAnnouncementCardView(mContext);
-      } else {
-        view = new DefaultCardView(mContext);
+      int viewType = getItemViewType(position);
+      view = mCardViewPool.acquire(viewType);
+      if (view == null) {
+        view = mCardViewTypeRegistry.createCardView(mContext, viewType);
       }
     } else {
-      Log.d(TAG, "Reusing convertView for rendering of item " + position);
+      // getView runs for every bind, so the level is checked before the position is boxed for the log call.
+      if (AppboyLogger.isLoggable(Log.DEBUG)) {
+        AppboyLogger.d(TAG, "Reusing convertView for rendering of item %d", position);
+      }
       view = (BaseCardView) convertView;
     }
 
-    Log.d(TAG, String.format("Using view of type: %s for card at position %d: %s", view.getClass().getName(),
-        position, card.toString()));
-    view.setCard(card);
-    logCardImpression(card);
+    // replaceFeed retains the instance of every unchanged card, so a view that is already bound to this exact card
+    // instance is up to date and doesn't need to be rebound.
+    if (view.getCard() != card) {
+      if (AppboyLogger.isLoggable(Log.DEBUG)) {
+        AppboyLogger.d(TAG, "Using view of type: %s for card at position %d: %s", view.getClass().getName(),
+            position, card);
+      }
+      view.setCard(card);
+    }
     return view;
   }
 
@@ -143,6 +108,12 @@ public class AppboyListAdapter extends ArrayAdapter<Card> {
     super.clear();
   }
 
+  /**
+   * Replaces the cards in the adapter with the given feed using a keyed diff. Cards are matched by id and
+   * last updated timestamp, so any card that is unchanged keeps its existing instance (and its bound view)
+   * while the backing list is rebuilt in a single O(n) pass. If the new feed is identical to the current one,
+   * no change notification is sent at all.
+   */
   public synchronized void replaceFeed(List<Card> cards) {
     setNotifyOnChange(false);
 
@@ -152,41 +123,49 @@ public class AppboyListAdapter extends ArrayAdapter<Card> {
       return;
     }
 
-    Log.d(TAG, String.format("Replacing existing feed of %d cards with new feed containing %d cards.",
-      getCount(), cards.size()));
-    int i = 0, j = 0, newFeedSize = cards.size();
-    Card existingCard, newCard;
+    int existingFeedSize = mCards.size();
+    int newFeedSize = cards.size();
+    AppboyLogger.d(TAG, "Replacing existing feed of %d cards with new feed containing %d cards.",
+      existingFeedSize, newFeedSize);
 
-    // Iterate over the entire existing feed, retaining items at the head of the list whenever they're the 
-    // same as the head of the new list and otherwise removing them.
-    while (i < getCount()) {
-      existingCard = getItem(i);
-      newCard = null;
-
-      // Only consider a new card if there are any left.
-      if (j < newFeedSize) {
-        newCard = cards.get(j);
-      }
+    // Index the existing feed by card id so that each new card can be matched in constant time.
+    Map<String, Card> existingCardsById = new HashMap<String, Card>(existingFeedSize * 2);
+    for (int i = 0; i < existingFeedSize; i++) {
+      Card existingCard = mCards.get(i);
+      existingCardsById.put(existingCard.getId(), existingCard);
+    }
 
-      // If there is still a card to add and it is the same as the next existing card in the feed, continue.
-      if (newCard != null && newCard.getId().equals(existingCard.getId()) &&
-        newCard.getUpdated() == existingCard.getUpdated()) {
-        i++;
-        j++;
-      } else { // Otherwise, we need to get rid of the next card in the adapter, and continue checking.
-        remove(existingCard);
+    List<Card> patchedFeed = new ArrayList<Card>(newFeedSize);
+    int retained = 0, moved = 0;
+    boolean changed = existingFeedSize != newFeedSize;
+    for (int j = 0; j < newFeedSize; j++) {
+      Card newCard = cards.get(j);
+      Card existingCard = existingCardsById.get(newCard.getId());
+
+      // Retain the existing instance whenever the card hasn't been updated. This lets getView skip rebinding the
+      // view that is already displaying it.
+      if (existingCard != null && existingCard.getUpdated() == newCard.getUpdated()) {
+        patchedFeed.add(existingCard);
+        retained++;
+        if (j >= existingFeedSize || mCards.get(j) != existingCard) {
+          moved++;
+          changed = true;
+        }
+      } else {
+        patchedFeed.add(newCard);
+        changed = true;
       }
     }
 
-    // Now we add the remainder of the feed.
-    if (android.os.Build.VERSION.SDK_INT < 11) {
-      while (j < newFeedSize) {
-        add(cards.get(j));
-        j++;
-      }
-    } else {
-      addAllBatch(cards.subList(j, newFeedSize));
+    if (!changed) {
+      AppboyLogger.d(TAG, "New feed is identical to the existing feed. Not notifying the ListView.");
+      return;
     }
+
+    AppboyLogger.d(TAG, "Feed diff retained %d cards (%d moved), inserted or updated %d cards and removed %d cards.",
+      retained, moved, newFeedSize - retained, existingFeedSize - retained);
+    mCards.clear();
+    mCards.addAll(patchedFeed);
     notifyDataSetChanged();
   }
 
@@ -195,9 +174,36 @@ public class AppboyListAdapter extends ArrayAdapter<Card> {
     super.add(card);
   }
 
-  @TargetApi(11)
-  private synchronized void addAllBatch(Collection<Card> cards) {
-    super.addAll(cards);
+  /**
+   * Pre-inflates card views for the given feed so that getView doesn't have to create them on the UI thread. This
+   * must be called off the main thread, before the feed is displayed.
+   *
+   * @see com.appboy.ui.adapters.CardViewPool#preinflate(android.content.Context, java.util.List)
+   */
+  public void preinflateCardViews(List<Card> cards) {
+    mCardViewPool.preinflate(mContext, cards);
+  }
+
+  /**
+   * Releases all pre-inflated card views and stops pre-inflating until {@link #openCardViewPool()} is called. This
+   * should be called whenever the ListView is destroyed.
+   *
+   * @see com.appboy.ui.adapters.CardViewPool#close()
+   */
+  public void clearCardViewPool() {
+    mCardViewPool.close();
+  }
+
+  /**
+   * Lets card views be pre-inflated again after {@link #clearCardViewPool()}. This should be called whenever the
+   * ListView is created.
+   */
+  public void openCardViewPool() {
+    mCardViewPool.open();
+  }
+
+  public CardViewPool getCardViewPool() {
+    return mCardViewPool;
   }
 
   /**
@@ -205,21 +211,29 @@ public class AppboyListAdapter extends ArrayAdapter<Card> {
    * the impressions.
    */
   public void resetCardImpressionTracker() {
-    mCardIdImpressions.clear();
+    mCardImpressionBatcher.reset();
   }
 
-  private void logCardImpression(Card card) {
-    String cardId = card.getId();
-    if (!mCardIdImpressions.contains(cardId)) {
-      mCardIdImpressions.add(cardId);
-      Appboy.getInstance(mContext).logFeedCardImpression(cardId);
-      Log.d(TAG, String.format("Logged impression for card %s", cardId));
-    } else {
-      Log.d(TAG, String.format("Already counted impression for card %s", cardId));
-    }
+  /**
+   * Defers logging of buffered card impressions while the ListView is scrolling. Buffered impressions are logged as
+   * a single batch once this is called with false.
+   */
+  public void setCardImpressionFlushDeferred(boolean deferred) {
+    mCardImpressionBatcher.setFlushDeferred(deferred);
+  }
+
+  /**
+   * Immediately logs any buffered card impressions. This should be called whenever the ListView is destroyed.
+   */
+  public void flushCardImpressions() {
+    mCardImpressionBatcher.flush();
+  }
+
+  void logCardImpression(String cardId) {
+    mCardImpressionBatcher.logImpression(cardId);
   }
 
   boolean hasCardImpression(String cardId) {
-    return mCardIdImpressions.contains(cardId);
+    return mCardImpressionBatcher.hasImpression(cardId);
   }
 }
@@ -0,0 +1,105 @@
+package com.appboy.ui.adapters;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.appboy.Appboy;
+import com.appboy.ui.support.AppboyLogger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Buffers feed card impressions and logs them to Appboy in batches, so that binding a card never calls into the
+ * SDK directly. Impressions are deduplicated by card id until {@link CardImpressionBatcher#reset()} is called.
+ *
+ * A batch is flushed on the main thread after the frame in which its first impression was recorded. While the feed
+ * is being scrolled, flushes are deferred until the scroll becomes idle, so a fling produces a single batch.
+ *
+ * This class is not thread safe and must only be used from the main thread.
+ */
+class CardImpressionBatcher {
+  private static final String TAG = AppboyLogger.getAppboyTag(CardImpressionBatcher.class);
+
+  private final Context mContext;
+  private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+  private final Set<String> mLoggedCardIds = new HashSet<String>();
+  private final List<String> mPendingCardIds = new ArrayList<String>();
+  private final Runnable mFlushRunnable = new Runnable() {
+    @Override
+    public void run() {
+      mFlushScheduled = false;
+      flush();
+    }
+  };
+  private boolean mFlushScheduled;
+  private boolean mFlushDeferred;
+
+  CardImpressionBatcher(Context context) {
+    mContext = context.getApplicationContext();
+  }
+
+  /**
+   * Records an impression for the given card if one hasn't been recorded since the last reset.
+   */
+  void logImpression(String cardId) {
+    if (mLoggedCardIds.add(cardId)) {
+      mPendingCardIds.add(cardId);
+      scheduleFlush();
+    }
+  }
+
+  boolean hasImpression(String cardId) {
+    return mLoggedCardIds.contains(cardId);
+  }
+
+  /**
+   * Defers flushing while deferred is true (e.g. while the feed is scrolling). Pending impressions are flushed as
+   * soon as flushing is no longer deferred.
+   */
+  void setFlushDeferred(boolean deferred) {
+    mFlushDeferred = deferred;
+    if (!deferred) {
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Logs all pending impressions to Appboy immediately.
+   */
+  void flush() {
+    if (mFlushScheduled) {
+      mMainThreadHandler.removeCallbacks(mFlushRunnable);
+      mFlushScheduled = false;
+    }
+    int pendingCount = mPendingCardIds.size();
+    if (pendingCount == 0) {
+      return;
+    }
+    Appboy appboy = Appboy.getInstance(mContext);
+    for (int i = 0; i < pendingCount; i++) {
+      appboy.logFeedCardImpression(mPendingCardIds.get(i));
+    }
+    mPendingCardIds.clear();
+    AppboyLogger.d(TAG, "Logged a batch of %d card impressions.", pendingCount);
+  }
+
+  /**
+   * Flushes pending impressions and then forgets every card that was logged, so that each card will generate a new
+   * impression the next time it is seen.
+   */
+  void reset() {
+    flush();
+    mLoggedCardIds.clear();
+  }
+
+  private void scheduleFlush() {
+    if (!mFlushScheduled && !mFlushDeferred && !mPendingCardIds.isEmpty()) {
+      mFlushScheduled = true;
+      mMainThreadHandler.post(mFlushRunnable);
+    }
+  }
+}
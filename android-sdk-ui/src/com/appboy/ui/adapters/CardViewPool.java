@@ -0,0 +1,166 @@
+package com.appboy.ui.adapters;
+
+import android.content.Context;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import com.appboy.models.cards.Card;
+import com.appboy.ui.support.AppboyLogger;
+import com.appboy.ui.widget.BaseCardView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A per view type pool of card views that were created ahead of time, off the main thread. The
+ * {@link com.appboy.ui.adapters.AppboyListAdapter} takes views from this pool whenever the ListView has no
+ * convertView to recycle, so that the first scroll of the feed doesn't have to inflate card layouts on the UI thread.
+ *
+ * The number of views created for each view type is based on the card type mix of the feed passed to
+ * {@link CardViewPool#preinflate(android.content.Context, java.util.List)} and is capped by
+ * {@link CardViewPool#setMaxViewsPerType(int)}.
+ *
+ * Pooled views hold a reference to the Context they were created with, so the pool must be closed whenever that
+ * Context is going away. Views still being pre-inflated when the pool is cleared or closed are dropped instead of
+ * being pooled.
+ */
+public class CardViewPool {
+  private static final String TAG = AppboyLogger.getAppboyTag(CardViewPool.class);
+  private static final int DEFAULT_MAX_VIEWS_PER_TYPE = 3;
+
+  private final CardViewTypeRegistry mCardViewTypeRegistry;
+  private final SparseArray<List<BaseCardView>> mPooledViews = new SparseArray<List<BaseCardView>>();
+  private final AtomicInteger mHitCount = new AtomicInteger(0);
+  private final AtomicInteger mMissCount = new AtomicInteger(0);
+  private volatile int mMaxViewsPerType = DEFAULT_MAX_VIEWS_PER_TYPE;
+  // Incremented whenever the pool is cleared, so that pre-inflation started before can tell its views are stale.
+  // Guarded by this.
+  private int mGeneration;
+  private boolean mClosed;
+
+  public CardViewPool(CardViewTypeRegistry cardViewTypeRegistry) {
+    mCardViewTypeRegistry = cardViewTypeRegistry;
+  }
+
+  /**
+   * Sets the maximum number of views that will be pre-inflated for each view type. A value of 0 disables
+   * pre-inflation.
+   */
+  public void setMaxViewsPerType(int maxViewsPerType) {
+    mMaxViewsPerType = Math.max(0, maxViewsPerType);
+  }
+
+  /**
+   * Creates views for the card types in the given feed until each view type has as many pooled views as there are
+   * cards of that type, up to the maximum number of views per type. This inflates layouts and must not be called on
+   * the main thread. Nothing is created while the pool is closed.
+   *
+   * @param context The Context used to create the views. This should be the Activity that displays the feed.
+   * @param cards The feed whose card type mix determines how many views of each type are created.
+   */
+  public void preinflate(Context context, List<Card> cards) {
+    if (Looper.myLooper() == Looper.getMainLooper()) {
+      AppboyLogger.w(TAG, "Card views must not be pre-inflated on the main thread. Ignoring.");
+      return;
+    }
+    if (cards == null || cards.isEmpty() || mMaxViewsPerType == 0) {
+      return;
+    }
+    int generation;
+    synchronized (this) {
+      if (mClosed) {
+        return;
+      }
+      generation = mGeneration;
+    }
+
+    SparseIntArray cardCountsByViewType = new SparseIntArray();
+    for (Card card : cards) {
+      int viewType = mCardViewTypeRegistry.getViewType(card);
+      cardCountsByViewType.put(viewType, cardCountsByViewType.get(viewType) + 1);
+    }
+
+    int created = 0;
+    for (int i = 0; i < cardCountsByViewType.size(); i++) {
+      int viewType = cardCountsByViewType.keyAt(i);
+      int targetCount = Math.min(cardCountsByViewType.valueAt(i), mMaxViewsPerType);
+      while (getPooledViewCount(viewType) < targetCount) {
+        if (!release(generation, viewType, mCardViewTypeRegistry.createCardView(context, viewType))) {
+          AppboyLogger.d(TAG, "The card view pool was cleared while pre-inflating. Dropped the pre-inflated views.");
+          return;
+        }
+        created++;
+      }
+    }
+    AppboyLogger.d(TAG, "Pre-inflated %d card views for a feed of %d cards.", created, cards.size());
+  }
+
+  /**
+   * @return A pooled view of the given view type, or null if there is none. Every call counts as either a hit or a
+   *         miss.
+   */
+  public synchronized BaseCardView acquire(int viewType) {
+    List<BaseCardView> views = mPooledViews.get(viewType);
+    if (views == null || views.isEmpty()) {
+      mMissCount.incrementAndGet();
+      return null;
+    }
+    mHitCount.incrementAndGet();
+    return views.remove(views.size() - 1);
+  }
+
+  /**
+   * Removes all pooled views. The hit and miss counters are not reset.
+   */
+  public synchronized void clear() {
+    mPooledViews.clear();
+    mGeneration++;
+  }
+
+  /**
+   * Removes all pooled views and stops pre-inflation until {@link CardViewPool#open()} is called. This should be
+   * called whenever the Context the views were created with is going away.
+   */
+  public synchronized void close() {
+    mClosed = true;
+    clear();
+  }
+
+  /**
+   * Lets views be pre-inflated again after {@link CardViewPool#close()}. A new pool is open.
+   */
+  public synchronized void open() {
+    mClosed = false;
+  }
+
+  public int getHitCount() {
+    return mHitCount.get();
+  }
+
+  public int getMissCount() {
+    return mMissCount.get();
+  }
+
+  synchronized int getPooledViewCount(int viewType) {
+    List<BaseCardView> views = mPooledViews.get(viewType);
+    return views == null ? 0 : views.size();
+  }
+
+  /**
+   * @return Whether the view was pooled. It isn't if the pool was cleared or closed since the given generation.
+   */
+  private synchronized boolean release(int generation, int viewType, BaseCardView view) {
+    if (mClosed || generation != mGeneration) {
+      return false;
+    }
+    List<BaseCardView> views = mPooledViews.get(viewType);
+    if (views == null) {
+      views = new ArrayList<BaseCardView>(mMaxViewsPerType);
+      mPooledViews.put(viewType, views);
+    }
+    views.add(view);
+    return true;
+  }
+}
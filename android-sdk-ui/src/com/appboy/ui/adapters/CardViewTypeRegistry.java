@@ -0,0 +1,258 @@
+package com.appboy.ui.adapters;
+
+import android.content.Context;
+
+import com.appboy.models.cards.AppStoreReviewCard;
+import com.appboy.models.cards.BannerImageCard;
+import com.appboy.models.cards.CaptionedImageCard;
+import com.appboy.models.cards.Card;
+import com.appboy.models.cards.CrossPromotionLargeCard;
+import com.appboy.models.cards.CrossPromotionSmallCard;
+import com.appboy.models.cards.ShortNewsCard;
+import com.appboy.models.cards.TextAnnouncementCard;
+import com.appboy.ui.configuration.XmlUIConfigurationProvider;
+import com.appboy.ui.support.AppboyLogger;
+import com.appboy.ui.widget.AppStoreReviewCardView;
+import com.appboy.ui.widget.BannerImageCardView;
+import com.appboy.ui.widget.BaseCardView;
+import com.appboy.ui.widget.CaptionedImageCardView;
+import com.appboy.ui.widget.CrossPromotionLargeCardView;
+import com.appboy.ui.widget.CrossPromotionSmallCardView;
+import com.appboy.ui.widget.DefaultCardView;
+import com.appboy.ui.widget.ShortNewsCardView;
+import com.appboy.ui.widget.TextAnnouncementCardView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The CardViewTypeRegistry maps each Card class to a ListView view type and to the
+ * {@link com.appboy.ui.adapters.ICardViewFactory} used to create views of that type. It is used by the
+ * {@link com.appboy.ui.adapters.AppboyListAdapter} to dispatch binds in constant time, regardless of how many
+ * card types are registered.
+ *
+ * All of the Appboy card types are registered by default. Cards whose class (or super class) has not been
+ * registered are displayed with a {@link com.appboy.ui.widget.DefaultCardView}. Host apps can display custom
+ * card types, or replace the view used for an Appboy card type, by calling
+ * {@link CardViewTypeRegistry#registerCardViewFactory(Class, ICardViewFactory, ICardImageUrlProvider)}. The
+ * {@link com.appboy.ui.adapters.ICardImageUrlProvider} registered along with a factory tells the
+ * {@link com.appboy.ui.adapters.FeedImagePrefetcher} which image the views of that type load.
+ *
+ * IMPORTANT - ListView reads the view type count only when its adapter is set, so all registrations must happen
+ *             before the feed is displayed (e.g. in Application.onCreate).
+ */
+public final class CardViewTypeRegistry {
+  private static final String TAG = AppboyLogger.getAppboyTag(CardViewTypeRegistry.class);
+  private static final int DEFAULT_VIEW_TYPE = 0;
+  private static volatile CardViewTypeRegistry sInstance = null;
+
+  private final List<ICardViewFactory> mCardViewFactories = new ArrayList<ICardViewFactory>();
+  // The image URL provider of every view type, indexed like the factories. Null for view types without images.
+  private final List<ICardImageUrlProvider> mCardImageUrlProviders = new ArrayList<ICardImageUrlProvider>();
+  private final Map<Class<?>, Integer> mRegisteredViewTypes = new ConcurrentHashMap<Class<?>, Integer>();
+  // Caches the resolved view type for every concrete card class seen so far, including classes that only match a
+  // registered super class.
+  private final Map<Class<?>, Integer> mResolvedViewTypes = new ConcurrentHashMap<Class<?>, Integer>();
+
+  public static CardViewTypeRegistry getInstance() {
+    if (sInstance == null) {
+      synchronized (CardViewTypeRegistry.class) {
+        if (sInstance == null) {
+          sInstance = new CardViewTypeRegistry();
+        }
+      }
+    }
+    return sInstance;
+  }
+
+  // Package-private so that tests can use a fresh registry instead of the process-wide instance.
+  CardViewTypeRegistry() {
+    mCardViewFactories.add(DEFAULT_VIEW_TYPE, new ICardViewFactory() {
+      @Override
+      public BaseCardView createCardView(Context context) {
+        return new DefaultCardView(context);
+      }
+    });
+    mCardImageUrlProviders.add(DEFAULT_VIEW_TYPE, null);
+    registerCardViewFactory(AppStoreReviewCard.class, new ICardViewFactory() {
+      // The application icon doesn't change while the process lives, so it is only looked up for the first view.
+      private volatile Integer mApplicationIconResourceId;
+
+      @Override
+      public BaseCardView createCardView(Context context) {
+        Integer applicationIconResourceId = mApplicationIconResourceId;
+        if (applicationIconResourceId == null) {
+          applicationIconResourceId = new XmlUIConfigurationProvider(context).getApplicationIconResourceId();
+          mApplicationIconResourceId = applicationIconResourceId;
+        }
+        return new AppStoreReviewCardView(context, applicationIconResourceId);
+      }
+    });
+    registerCardViewFactory(BannerImageCard.class, new ICardViewFactory() {
+      @Override
+      public BaseCardView createCardView(Context context) {
+        return new BannerImageCardView(context);
+      }
+    }, new ICardImageUrlProvider() {
+      @Override
+      public String getImageUrl(Card card) {
+        return ((BannerImageCard) card).getImageUrl();
+      }
+    });
+    registerCardViewFactory(CaptionedImageCard.class, new ICardViewFactory() {
+      @Override
+      public BaseCardView createCardView(Context context) {
+        return new CaptionedImageCardView(context);
+      }
+    }, new ICardImageUrlProvider() {
+      @Override
+      public String getImageUrl(Card card) {
+        return ((CaptionedImageCard) card).getImageUrl();
+      }
+    });
+    registerCardViewFactory(CrossPromotionLargeCard.class, new ICardViewFactory() {
+      @Override
+      public BaseCardView createCardView(Context context) {
+        return new CrossPromotionLargeCardView(context);
+      }
+    }, new ICardImageUrlProvider() {
+      @Override
+      public String getImageUrl(Card card) {
+        return ((CrossPromotionLargeCard) card).getImageUrl();
+      }
+    });
+    registerCardViewFactory(CrossPromotionSmallCard.class, new ICardViewFactory() {
+      @Override
+      public BaseCardView createCardView(Context context) {
+        return new CrossPromotionSmallCardView(context);
+      }
+    }, new ICardImageUrlProvider() {
+      @Override
+      public String getImageUrl(Card card) {
+        return ((CrossPromotionSmallCard) card).getImageUrl();
+      }
+    });
+    registerCardViewFactory(ShortNewsCard.class, new ICardViewFactory() {
+      @Override
+      public BaseCardView createCardView(Context context) {
+        return new ShortNewsCardView(context);
+      }
+    }, new ICardImageUrlProvider() {
+      @Override
+      public String getImageUrl(Card card) {
+        return ((ShortNewsCard) card).getImageUrl();
+      }
+    });
+    registerCardViewFactory(TextAnnouncementCard.class, new ICardViewFactory() {
+      @Override
+      public BaseCardView createCardView(Context context) {
+        return new TextAnnouncementCardView(context);
+      }
+    });
+  }
+
+  /**
+   * Registers the factory used to create views for the given card class and its subclasses, whose views don't load
+   * an image from the network.
+   *
+   * @see CardViewTypeRegistry#registerCardViewFactory(Class, ICardViewFactory, ICardImageUrlProvider)
+   */
+  public int registerCardViewFactory(Class<? extends Card> cardClass, ICardViewFactory cardViewFactory) {
+    return registerCardViewFactory(cardClass, cardViewFactory, null);
+  }
+
+  /**
+   * Registers the factory used to create views for the given card class and its subclasses. Registering a card
+   * class that already has a factory replaces the factory and image URL provider but keeps the existing view type.
+   *
+   * @param cardClass The card class to register.
+   * @param cardViewFactory The factory that creates views for cards of this class.
+   * @param cardImageUrlProvider Returns the URL of the image the views load for a card of this class, so that it
+   *                             can be prefetched. Null if the views don't load an image.
+   * @return The view type assigned to the card class, or -1 if the card class or factory was null.
+   */
+  public synchronized int registerCardViewFactory(Class<? extends Card> cardClass, ICardViewFactory cardViewFactory,
+                                                  ICardImageUrlProvider cardImageUrlProvider) {
+    if (cardClass == null || cardViewFactory == null) {
+      AppboyLogger.e(TAG, "Cannot register a card view factory with a null card class or a null factory. Ignoring.");
+      return -1;
+    }
+    Integer existingViewType = mRegisteredViewTypes.get(cardClass);
+    if (existingViewType != null) {
+      AppboyLogger.d(TAG, "Replacing the card view factory registered for %s.", cardClass.getName());
+      mCardViewFactories.set(existingViewType, cardViewFactory);
+      mCardImageUrlProviders.set(existingViewType, cardImageUrlProvider);
+      return existingViewType;
+    }
+
+    int viewType = mCardViewFactories.size();
+    mCardViewFactories.add(cardViewFactory);
+    mCardImageUrlProviders.add(cardImageUrlProvider);
+    mRegisteredViewTypes.put(cardClass, viewType);
+    // A new registration can change how subclasses resolve, so previously resolved classes are looked up again.
+    mResolvedViewTypes.clear();
+    return viewType;
+  }
+
+  /**
+   * @return The number of view types, including the default view type used for unregistered cards.
+   */
+  public synchronized int getViewTypeCount() {
+    return mCardViewFactories.size();
+  }
+
+  /**
+   * Resolves the view type of the given card. Lookups are cached per card class, so after the first card of a class
+   * has been seen, this is a single map lookup.
+   */
+  public int getViewType(Card card) {
+    Class<?> cardClass = card.getClass();
+    Integer viewType = mResolvedViewTypes.get(cardClass);
+    if (viewType == null) {
+      viewType = resolveViewType(cardClass);
+      mResolvedViewTypes.put(cardClass, viewType);
+    }
+    return viewType;
+  }
+
+  /**
+   * @return The URL of the image that the view of the given card loads, or null if it doesn't load one.
+   */
+  public String getImageUrl(Card card) {
+    int viewType = getViewType(card);
+    ICardImageUrlProvider cardImageUrlProvider;
+    synchronized (this) {
+      cardImageUrlProvider = mCardImageUrlProviders.get(viewType);
+    }
+    return cardImageUrlProvider == null ? null : cardImageUrlProvider.getImageUrl(card);
+  }
+
+  /**
+   * Creates a view with the factory registered for the given view type. The factory is called without holding the
+   * registry's lock, so views being pre-inflated off the main thread never block getView.
+   */
+  public BaseCardView createCardView(Context context, int viewType) {
+    ICardViewFactory cardViewFactory;
+    synchronized (this) {
+      if (viewType < 0 || viewType >= mCardViewFactories.size()) {
+        AppboyLogger.w(TAG, "No card view factory registered for view type %d. Using the default card view.",
+            viewType);
+        viewType = DEFAULT_VIEW_TYPE;
+      }
+      cardViewFactory = mCardViewFactories.get(viewType);
+    }
+    return cardViewFactory.createCardView(context);
+  }
+
+  private int resolveViewType(Class<?> cardClass) {
+    for (Class<?> clazz = cardClass; clazz != null; clazz = clazz.getSuperclass()) {
+      Integer viewType = mRegisteredViewTypes.get(clazz);
+      if (viewType != null) {
+        return viewType;
+      }
+    }
+    return DEFAULT_VIEW_TYPE;
+  }
+}
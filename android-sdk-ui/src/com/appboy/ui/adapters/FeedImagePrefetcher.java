@@ -0,0 +1,202 @@
+package com.appboy.ui.adapters;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import android.widget.AbsListView;
+import android.widget.ListView;
+
+import com.appboy.models.cards.Card;
+import com.appboy.ui.images.AppboyImageLoader;
+import com.appboy.ui.images.IImagePrefetchListener;
+import com.appboy.ui.support.AppboyLogger;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads the images of the cards just beyond the visible part of the feed, in the direction the feed is being
+ * scrolled, so that they are already in the disk cache when their cards are bound.
+ *
+ * The number of cards looked ahead grows with the scroll velocity. At most
+ * {@link FeedImagePrefetcher#setMaxConcurrentPrefetches(int)} images are downloaded at once, which always leaves
+ * image loader threads free for the visible cards, and no more than
+ * {@link FeedImagePrefetcher#setMaxBytesPerMinute(long)} bytes are downloaded per minute. Pending prefetches are
+ * cancelled when the scroll direction changes, and prefetching is paused during flings on memory constrained devices.
+ *
+ * The image of a card is resolved through the {@link com.appboy.ui.adapters.ICardImageUrlProvider} registered for its
+ * type in the {@link com.appboy.ui.adapters.CardViewTypeRegistry}, so custom card types are prefetched too.
+ *
+ * {@link FeedImagePrefetcher#onScroll(int, int)} and {@link FeedImagePrefetcher#onScrollStateChanged(int)} should be
+ * called from the ListView's {@link android.widget.AbsListView.OnScrollListener}.
+ *
+ * This class is not thread safe and must only be used from the main thread.
+ */
+public class FeedImagePrefetcher implements IImagePrefetchListener {
+  private static final String TAG = AppboyLogger.getAppboyTag(FeedImagePrefetcher.class);
+  private static final int MIN_LOOKAHEAD_CARDS = 2;
+  private static final int MAX_LOOKAHEAD_CARDS = 10;
+  // The look ahead covers the cards that will scroll into view within this time at the current velocity.
+  private static final float LOOKAHEAD_SECONDS = 1f;
+  private static final int DEFAULT_MAX_CONCURRENT_PREFETCHES = 2;
+  private static final long DEFAULT_MAX_BYTES_PER_MINUTE = 2l * 1024l * 1024l;
+  private static final long BUDGET_WINDOW_MS = 60000l;
+  private static final int LOW_MEMORY_CLASS_MB = 32;
+
+  private final ListView mListView;
+  private final AppboyImageLoader mImageLoader;
+  private final CardViewTypeRegistry mCardViewTypeRegistry = CardViewTypeRegistry.getInstance();
+  private final ActivityManager mActivityManager;
+  private final boolean mLowMemoryClass;
+  private final Map<String, Future<?>> mPendingPrefetches = new HashMap<String, Future<?>>();
+  // Urls that have been prefetched, or have failed to download, since the prefetcher was last stopped.
+  private final Set<String> mFinishedUrls = new HashSet<String>();
+  private int mMaxConcurrentPrefetches = DEFAULT_MAX_CONCURRENT_PREFETCHES;
+  private long mMaxBytesPerMinute = DEFAULT_MAX_BYTES_PER_MINUTE;
+  private long mBudgetWindowStart;
+  private long mBudgetWindowBytes;
+  private int mLastFirstVisibleItem = -1;
+  private long mLastScrollTime;
+  private float mItemsPerSecond;
+  private boolean mScrollingUp;
+  private boolean mPaused;
+
+  public FeedImagePrefetcher(Context context, ListView listView) {
+    mListView = listView;
+    mImageLoader = AppboyImageLoader.getInstance(context);
+    mActivityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+    mLowMemoryClass = mActivityManager.getMemoryClass() <= LOW_MEMORY_CLASS_MB;
+  }
+
+  /**
+   * Sets the maximum number of images that may be prefetched at the same time.
+   */
+  public void setMaxConcurrentPrefetches(int maxConcurrentPrefetches) {
+    mMaxConcurrentPrefetches = Math.max(0, maxConcurrentPrefetches);
+  }
+
+  /**
+   * Sets the maximum number of bytes that may be prefetched per minute.
+   */
+  public void setMaxBytesPerMinute(long maxBytesPerMinute) {
+    mMaxBytesPerMinute = Math.max(0l, maxBytesPerMinute);
+  }
+
+  public void onScroll(int firstVisibleItem, int visibleItemCount) {
+    long now = SystemClock.uptimeMillis();
+    if (mLastFirstVisibleItem >= 0 && firstVisibleItem != mLastFirstVisibleItem) {
+      boolean scrollingUp = firstVisibleItem < mLastFirstVisibleItem;
+      if (scrollingUp != mScrollingUp) {
+        if (AppboyLogger.isLoggable(Log.VERBOSE)) {
+          AppboyLogger.v(TAG, "Scroll direction changed. Cancelling %d prefetches.", mPendingPrefetches.size());
+        }
+        cancelPendingPrefetches();
+        mScrollingUp = scrollingUp;
+      }
+      long elapsedMs = Math.max(1l, now - mLastScrollTime);
+      mItemsPerSecond = Math.abs(firstVisibleItem - mLastFirstVisibleItem) * 1000f / elapsedMs;
+      mLastScrollTime = now;
+    } else if (mLastFirstVisibleItem < 0) {
+      mLastScrollTime = now;
+    }
+    mLastFirstVisibleItem = firstVisibleItem;
+    prefetch(firstVisibleItem, visibleItemCount);
+  }
+
+  public void onScrollStateChanged(int scrollState) {
+    if (scrollState == AbsListView.OnScrollListener.SCROLL_STATE_FLING) {
+      mPaused = isMemoryConstrained();
+      if (mPaused) {
+        AppboyLogger.d(TAG, "Pausing image prefetching during a fling because the device is low on memory.");
+        cancelPendingPrefetches();
+      }
+    } else {
+      mPaused = false;
+      if (scrollState == AbsListView.OnScrollListener.SCROLL_STATE_IDLE) {
+        mItemsPerSecond = 0f;
+      }
+      prefetch(mListView.getFirstVisiblePosition(), mListView.getChildCount());
+    }
+  }
+
+  /**
+   * Cancels all pending prefetches and forgets which images were prefetched. This should be called whenever the
+   * feed is no longer on screen.
+   */
+  public void stop() {
+    cancelPendingPrefetches();
+    mFinishedUrls.clear();
+    mLastFirstVisibleItem = -1;
+    mItemsPerSecond = 0f;
+  }
+
+  @Override
+  public void onPrefetchFinished(String imageUrl, long downloadedBytes) {
+    if (mPendingPrefetches.remove(imageUrl) == null) {
+      return;
+    }
+    mFinishedUrls.add(imageUrl);
+    if (downloadedBytes > 0) {
+      mBudgetWindowBytes += downloadedBytes;
+    }
+    prefetch(mListView.getFirstVisiblePosition(), mListView.getChildCount());
+  }
+
+  private void prefetch(int firstVisibleItem, int visibleItemCount) {
+    if (mPaused || visibleItemCount <= 0) {
+      return;
+    }
+    int lookahead = Math.max(MIN_LOOKAHEAD_CARDS,
+        Math.min(MAX_LOOKAHEAD_CARDS, (int) Math.ceil(mItemsPerSecond * LOOKAHEAD_SECONDS)));
+    int step = mScrollingUp ? -1 : 1;
+    int position = mScrollingUp ? firstVisibleItem - 1 : firstVisibleItem + visibleItemCount;
+    int itemCount = mListView.getCount();
+    for (int i = 0; i < lookahead && position >= 0 && position < itemCount; i++, position += step) {
+      if (mPendingPrefetches.size() >= mMaxConcurrentPrefetches || !hasBandwidthBudget()) {
+        return;
+      }
+      Object item = mListView.getItemAtPosition(position);
+      // Header and footer rows aren't cards.
+      if (!(item instanceof Card)) {
+        continue;
+      }
+      String imageUrl = mCardViewTypeRegistry.getImageUrl((Card) item);
+      if (imageUrl == null || mFinishedUrls.contains(imageUrl) || mPendingPrefetches.containsKey(imageUrl)) {
+        continue;
+      }
+      Future<?> future = mImageLoader.prefetchImage(imageUrl, this);
+      if (future != null) {
+        mPendingPrefetches.put(imageUrl, future);
+      }
+    }
+  }
+
+  private boolean hasBandwidthBudget() {
+    long now = SystemClock.uptimeMillis();
+    if (now - mBudgetWindowStart >= BUDGET_WINDOW_MS) {
+      mBudgetWindowStart = now;
+      mBudgetWindowBytes = 0l;
+    }
+    return mBudgetWindowBytes < mMaxBytesPerMinute;
+  }
+
+  private void cancelPendingPrefetches() {
+    for (Future<?> future : mPendingPrefetches.values()) {
+      future.cancel(true);
+    }
+    mPendingPrefetches.clear();
+  }
+
+  private boolean isMemoryConstrained() {
+    if (mLowMemoryClass) {
+      return true;
+    }
+    ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+    mActivityManager.getMemoryInfo(memoryInfo);
+    return memoryInfo.lowMemory;
+  }
+}
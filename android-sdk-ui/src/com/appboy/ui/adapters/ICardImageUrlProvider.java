@@ -0,0 +1,12 @@
+package com.appboy.ui.adapters;
+
+import com.appboy.models.cards.Card;
+
+public interface ICardImageUrlProvider {
+  /**
+   * This method should return the URL of the image that the card's view loads from the network, or null if the view
+   * doesn't load one. It is used to prefetch the images of cards before they scroll into view, and is called on the
+   * main thread for every card looked ahead, so it must not do any work beyond reading the card.
+   */
+  String getImageUrl(Card card);
+}
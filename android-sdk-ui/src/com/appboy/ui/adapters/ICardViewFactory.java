@@ -0,0 +1,14 @@
+package com.appboy.ui.adapters;
+
+import android.content.Context;
+
+import com.appboy.ui.widget.BaseCardView;
+
+public interface ICardViewFactory {
+  /**
+   * This method should create a new, unbound card view. The view will be recycled by the ListView
+   * and re-bound to other cards of the same view type through
+   * {@link com.appboy.ui.widget.BaseCardView#setCard(com.appboy.models.cards.Card)}.
+   */
+  BaseCardView createCardView(Context context);
+}
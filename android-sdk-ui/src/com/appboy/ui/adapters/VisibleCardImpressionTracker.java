@@ -0,0 +1,160 @@
+package com.appboy.ui.adapters;
+
+import android.os.SystemClock;
+import android.view.View;
+import android.widget.ListView;
+
+import com.appboy.models.cards.Card;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Logs a feed card impression only once the card has been at least a minimum percentage visible in the ListView for
+ * a minimum amount of time. Cards that are bound but barely visible, or that scroll past during a fling, don't
+ * generate impressions.
+ *
+ * Visibility is computed for all visible rows at once, from getFirstVisiblePosition() to getLastVisiblePosition(),
+ * whenever {@link VisibleCardImpressionTracker#update()} is called. This should be done from
+ * {@link android.widget.AbsListView.OnScrollListener#onScroll(android.widget.AbsListView, int, int, int)}, which
+ * ListView calls once per scroll frame and after every layout. Cards that stay on screen without any further scrolling
+ * are picked up by a delayed check once their minimum visible time has elapsed.
+ *
+ * This class is not thread safe and must only be used from the main thread.
+ */
+public class VisibleCardImpressionTracker {
+  private static final int DEFAULT_MIN_VISIBLE_PERCENT = 50;
+  private static final long DEFAULT_MIN_VISIBLE_DURATION_MS = 1000l;
+
+  private final ListView mListView;
+  private final AppboyListAdapter mAdapter;
+  // Cards that are sufficiently visible but haven't been visible long enough to log an impression yet.
+  private final Map<String, VisibleCard> mVisibleCardsById = new HashMap<String, VisibleCard>();
+  private final Runnable mUpdateRunnable = new Runnable() {
+    @Override
+    public void run() {
+      mUpdateScheduled = false;
+      update();
+    }
+  };
+  private int mMinVisiblePercent = DEFAULT_MIN_VISIBLE_PERCENT;
+  private long mMinVisibleDurationMs = DEFAULT_MIN_VISIBLE_DURATION_MS;
+  private long mUpdateCount;
+  private boolean mUpdateScheduled;
+  private boolean mStopped;
+
+  public VisibleCardImpressionTracker(ListView listView, AppboyListAdapter adapter) {
+    mListView = listView;
+    mAdapter = adapter;
+  }
+
+  /**
+   * Sets the percentage of a card's height that must be on screen for the card to count as visible.
+   */
+  public void setMinVisiblePercent(int minVisiblePercent) {
+    mMinVisiblePercent = Math.max(0, Math.min(100, minVisiblePercent));
+  }
+
+  /**
+   * Sets how long a card must stay visible before an impression is logged.
+   */
+  public void setMinVisibleDurationMs(long minVisibleDurationMs) {
+    mMinVisibleDurationMs = Math.max(0l, minVisibleDurationMs);
+  }
+
+  /**
+   * Recomputes the visibility of every visible row and logs impressions for the cards that have been visible long
+   * enough.
+   */
+  public void update() {
+    if (mStopped) {
+      return;
+    }
+    long now = SystemClock.uptimeMillis();
+    mUpdateCount++;
+    int firstVisiblePosition = mListView.getFirstVisiblePosition();
+    int lastVisiblePosition = mListView.getLastVisiblePosition();
+    int viewportTop = mListView.getPaddingTop();
+    int viewportBottom = mListView.getHeight() - mListView.getPaddingBottom();
+    long nextUpdateDelay = Long.MAX_VALUE;
+
+    for (int position = firstVisiblePosition; position <= lastVisiblePosition; position++) {
+      Object item = mListView.getItemAtPosition(position);
+      // Header and footer rows aren't cards.
+      if (!(item instanceof Card)) {
+        continue;
+      }
+      String cardId = ((Card) item).getId();
+      if (mAdapter.hasCardImpression(cardId)
+          || !isRowVisible(position - firstVisiblePosition, viewportTop, viewportBottom)) {
+        continue;
+      }
+
+      VisibleCard visibleCard = mVisibleCardsById.get(cardId);
+      if (visibleCard == null) {
+        visibleCard = new VisibleCard(now);
+        mVisibleCardsById.put(cardId, visibleCard);
+      }
+      visibleCard.mLastSeenUpdate = mUpdateCount;
+      long remaining = visibleCard.mVisibleSince + mMinVisibleDurationMs - now;
+      if (remaining <= 0) {
+        mAdapter.logCardImpression(cardId);
+      } else {
+        nextUpdateDelay = Math.min(nextUpdateDelay, remaining);
+      }
+    }
+
+    // Forget every card that wasn't sufficiently visible during this update (including the ones that were just
+    // logged), so that its visible time starts over if it comes back into view.
+    Iterator<VisibleCard> iterator = mVisibleCardsById.values().iterator();
+    while (iterator.hasNext()) {
+      VisibleCard visibleCard = iterator.next();
+      if (visibleCard.mLastSeenUpdate != mUpdateCount || visibleCard.mVisibleSince + mMinVisibleDurationMs <= now) {
+        iterator.remove();
+      }
+    }
+
+    if (nextUpdateDelay != Long.MAX_VALUE && !mUpdateScheduled) {
+      mUpdateScheduled = true;
+      mListView.postDelayed(mUpdateRunnable, nextUpdateDelay);
+    }
+  }
+
+  /**
+   * Resumes tracking after {@link VisibleCardImpressionTracker#stop()} and immediately recomputes visibility.
+   */
+  public void start() {
+    mStopped = false;
+    update();
+  }
+
+  /**
+   * Stops tracking and forgets all partially elapsed visibility times. This should be called whenever the feed
+   * is no longer on screen.
+   */
+  public void stop() {
+    mStopped = true;
+    mListView.removeCallbacks(mUpdateRunnable);
+    mUpdateScheduled = false;
+    mVisibleCardsById.clear();
+  }
+
+  private boolean isRowVisible(int childIndex, int viewportTop, int viewportBottom) {
+    View child = mListView.getChildAt(childIndex);
+    if (child == null || child.getHeight() <= 0) {
+      return false;
+    }
+    int visibleHeight = Math.min(child.getBottom(), viewportBottom) - Math.max(child.getTop(), viewportTop);
+    return visibleHeight * 100 >= child.getHeight() * mMinVisiblePercent;
+  }
+
+  private static final class VisibleCard {
+    private final long mVisibleSince;
+    private long mLastSeenUpdate;
+
+    private VisibleCard(long visibleSince) {
+      mVisibleSince = visibleSince;
+    }
+  }
+}
@@ -3,13 +3,12 @@ package com.appboy.ui.configuration;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
-import android.util.Log;
 
-import com.appboy.Constants;
 import com.appboy.configuration.CachedConfigurationProvider;
+import com.appboy.ui.support.AppboyLogger;
 
 public class XmlUIConfigurationProvider extends CachedConfigurationProvider {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, XmlUIConfigurationProvider.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(XmlUIConfigurationProvider.class);
   private static final String APPLICATION_ICON_KEY = "application_icon";
 
   private final Context mContext;
@@ -29,7 +28,7 @@ public class XmlUIConfigurationProvider extends CachedConfigurationProvider {
         ApplicationInfo applicationInfo = mContext.getPackageManager().getApplicationInfo(packageName, 0);
         resourceId = applicationInfo.icon;
       } catch (PackageManager.NameNotFoundException e) {
-        Log.e(TAG, String.format("Cannot find package named %s", packageName));
+        AppboyLogger.e(TAG, "Cannot find package named %s", packageName);
       }
       mConfigurationCache.put(APPLICATION_ICON_KEY, resourceId);
       return resourceId;
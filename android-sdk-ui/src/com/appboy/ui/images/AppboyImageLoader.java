@@ -0,0 +1,281 @@
+package com.appboy.ui.images;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+import android.widget.ImageView;
+
+import com.appboy.ui.support.AppboyLogger;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads images into ImageViews through a memory cache, a disk cache and the network, in that order.
+ *
+ * The memory cache holds decoded bitmaps and is sized as a fraction of the maximum heap. The disk cache holds the
+ * downloaded image files. Images are decoded sampled down to the size they will be displayed at, so a large banner
+ * never occupies more memory than its ImageView needs.
+ *
+ * Concurrent requests for the same image are merged into a single download and decode. When an ImageView is bound
+ * to a different image before its previous image has loaded (e.g. when a ListView recycles it), it is detached from
+ * the previous request, and that request is cancelled if no other ImageView is waiting for it.
+ *
+ * {@link AppboyImageLoader#loadImage(android.widget.ImageView, String, int, int)} must be called on the main thread.
+ */
+public final class AppboyImageLoader {
+  private static final String TAG = AppboyLogger.getAppboyTag(AppboyImageLoader.class);
+  private static final String DISK_CACHE_DIRECTORY_NAME = "appboy.images";
+  private static final long DISK_CACHE_SIZE_BYTES = 10l * 1024l * 1024l;
+  private static final int MEMORY_CACHE_HEAP_FRACTION = 8;
+  private static final int WORKER_THREAD_COUNT = 3;
+  private static final int CONNECT_TIMEOUT_MS = 10000;
+  private static final int READ_TIMEOUT_MS = 15000;
+  private static volatile AppboyImageLoader sInstance = null;
+
+  private final LruCache<String, Bitmap> mMemoryCache;
+  private final ImageDiskCache mDiskCache;
+  private final ExecutorService mExecutor;
+  private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+  // The following maps are only accessed on the main thread.
+  private final Map<String, ImageRequest> mInFlightRequests = new HashMap<String, ImageRequest>();
+  private final Map<ImageView, String> mImageViewRequestKeys = new WeakHashMap<ImageView, String>();
+
+  public static AppboyImageLoader getInstance(Context context) {
+    if (sInstance == null) {
+      synchronized (AppboyImageLoader.class) {
+        if (sInstance == null) {
+          sInstance = new AppboyImageLoader(context.getApplicationContext());
+        }
+      }
+    }
+    return sInstance;
+  }
+
+  private AppboyImageLoader(Context context) {
+    int memoryCacheSizeBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / MEMORY_CACHE_HEAP_FRACTION,
+        Integer.MAX_VALUE);
+    mMemoryCache = new LruCache<String, Bitmap>(memoryCacheSizeBytes) {
+      @Override
+      protected int sizeOf(String key, Bitmap bitmap) {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+      }
+    };
+    mDiskCache = new ImageDiskCache(new File(context.getCacheDir(), DISK_CACHE_DIRECTORY_NAME), DISK_CACHE_SIZE_BYTES);
+    mExecutor = Executors.newFixedThreadPool(WORKER_THREAD_COUNT, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "AppboyImageLoader");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Displays the image at the given URL in the ImageView. If the image isn't in the memory cache, the ImageView is
+   * cleared and the image is loaded in the background.
+   *
+   * @param imageView The ImageView in which to display the image.
+   * @param imageUrl The URL of the image.
+   * @param targetWidth The width the image will be displayed at, or 0 if unknown.
+   * @param targetHeight The height the image will be displayed at, or 0 if unknown.
+   */
+  public void loadImage(ImageView imageView, String imageUrl, int targetWidth, int targetHeight) {
+    String key = getCacheKey(imageUrl, targetWidth, targetHeight);
+    String previousKey = mImageViewRequestKeys.put(imageView, key);
+    if (previousKey != null && !previousKey.equals(key)) {
+      detachFromRequest(imageView, previousKey);
+    }
+
+    Bitmap bitmap = mMemoryCache.get(key);
+    if (bitmap != null) {
+      mImageViewRequestKeys.remove(imageView);
+      imageView.setImageBitmap(bitmap);
+      return;
+    }
+
+    imageView.setImageResource(android.R.color.transparent);
+    ImageRequest request = mInFlightRequests.get(key);
+    if (request == null) {
+      request = new ImageRequest(key, imageUrl, targetWidth, targetHeight);
+      mInFlightRequests.put(key, request);
+      request.mFuture = mExecutor.submit(request);
+    }
+    request.addTarget(imageView);
+  }
+
+  /**
+   * Downloads the image at the given URL into the disk cache, without decoding it, so that a later call to
+   * {@link AppboyImageLoader#loadImage(android.widget.ImageView, String, int, int)} doesn't have to wait for the
+   * network. Must be called on the main thread.
+   *
+   * @param imageUrl The URL of the image.
+   * @param listener Notified on the main thread once the prefetch has finished, unless it was cancelled.
+   * @return The Future of the prefetch, which can be used to cancel it, or null if the image is already being loaded.
+   */
+  public Future<?> prefetchImage(final String imageUrl, final IImagePrefetchListener listener) {
+    for (ImageRequest request : mInFlightRequests.values()) {
+      if (request.mImageUrl.equals(imageUrl)) {
+        return null;
+      }
+    }
+    return mExecutor.submit(new Runnable() {
+      @Override
+      public void run() {
+        long downloadedBytes = -1l;
+        try {
+          if (mDiskCache.get(imageUrl) != null) {
+            downloadedBytes = 0l;
+          } else {
+            File file = Thread.currentThread().isInterrupted() ? null : download(imageUrl);
+            downloadedBytes = file == null ? -1l : file.length();
+          }
+        } catch (RuntimeException e) {
+          AppboyLogger.e(TAG, "Unable to prefetch the image at " + imageUrl + ".", e);
+        } finally {
+          // The listener is notified of failures too, so that it doesn't wait for the prefetch forever. Cancelled
+          // prefetches have already been forgotten by the caller.
+          if (!Thread.currentThread().isInterrupted()) {
+            postPrefetchFinished(listener, imageUrl, downloadedBytes);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Removes every bitmap from the memory cache. This should be called when the system is low on memory.
+   */
+  public void clearMemoryCache() {
+    mMemoryCache.evictAll();
+  }
+
+  private void postPrefetchFinished(final IImagePrefetchListener listener, final String imageUrl,
+                                    final long downloadedBytes) {
+    mMainThreadHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        listener.onPrefetchFinished(imageUrl, downloadedBytes);
+      }
+    });
+  }
+
+  static String getCacheKey(String imageUrl, int targetWidth, int targetHeight) {
+    return imageUrl + "@" + targetWidth + "x" + targetHeight;
+  }
+
+  private void detachFromRequest(ImageView imageView, String key) {
+    ImageRequest request = mInFlightRequests.get(key);
+    if (request != null && request.removeTarget(imageView)) {
+      AppboyLogger.d(TAG, "Cancelling the request for %s because no view is waiting for it anymore.", key);
+      mInFlightRequests.remove(key);
+      request.mFuture.cancel(true);
+    }
+  }
+
+  /**
+   * Runs on the main thread once a request has finished, successfully or not.
+   */
+  private void onRequestFinished(ImageRequest request, Bitmap bitmap) {
+    if (mInFlightRequests.get(request.mKey) == request) {
+      mInFlightRequests.remove(request.mKey);
+    }
+    if (bitmap == null) {
+      return;
+    }
+    for (WeakReference<ImageView> target : request.mTargets) {
+      ImageView imageView = target.get();
+      // Only views that are still waiting for this image are updated. Recycled views may have moved on.
+      if (imageView != null && request.mKey.equals(mImageViewRequestKeys.get(imageView))) {
+        mImageViewRequestKeys.remove(imageView);
+        imageView.setImageBitmap(bitmap);
+      }
+    }
+  }
+
+  private Bitmap fetchBitmap(String key, String imageUrl, int targetWidth, int targetHeight) {
+    File file = mDiskCache.get(imageUrl);
+    if (file == null) {
+      file = download(imageUrl);
+    }
+    if (file == null || Thread.currentThread().isInterrupted()) {
+      return null;
+    }
+    Bitmap bitmap = BitmapDecoder.decodeSampledBitmap(file, targetWidth, targetHeight);
+    if (bitmap != null) {
+      mMemoryCache.put(key, bitmap);
+    }
+    return bitmap;
+  }
+
+  private File download(String imageUrl) {
+    return ImageDownloader.download(imageUrl, mDiskCache, CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS);
+  }
+
+  private final class ImageRequest implements Runnable {
+    private final String mKey;
+    private final String mImageUrl;
+    private final int mTargetWidth;
+    private final int mTargetHeight;
+    private final List<WeakReference<ImageView>> mTargets = new ArrayList<WeakReference<ImageView>>(1);
+    private Future<?> mFuture;
+
+    private ImageRequest(String key, String imageUrl, int targetWidth, int targetHeight) {
+      mKey = key;
+      mImageUrl = imageUrl;
+      mTargetWidth = targetWidth;
+      mTargetHeight = targetHeight;
+    }
+
+    private void addTarget(ImageView imageView) {
+      mTargets.add(new WeakReference<ImageView>(imageView));
+    }
+
+    /**
+     * @return Whether the request no longer has any targets.
+     */
+    private boolean removeTarget(ImageView imageView) {
+      boolean hasTargets = false;
+      for (int i = mTargets.size() - 1; i >= 0; i--) {
+        ImageView target = mTargets.get(i).get();
+        if (target == null || target == imageView) {
+          mTargets.remove(i);
+        } else {
+          hasTargets = true;
+        }
+      }
+      return !hasTargets;
+    }
+
+    @Override
+    public void run() {
+      Bitmap bitmap = null;
+      try {
+        bitmap = fetchBitmap(mKey, mImageUrl, mTargetWidth, mTargetHeight);
+      } catch (RuntimeException e) {
+        AppboyLogger.e(TAG, "Unable to load the image at " + mImageUrl + ".", e);
+      } finally {
+        // The request must always finish, or it would stay in flight and its image would never be loaded again.
+        final Bitmap result = bitmap;
+        mMainThreadHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            onRequestFinished(ImageRequest.this, result);
+          }
+        });
+      }
+    }
+  }
+}
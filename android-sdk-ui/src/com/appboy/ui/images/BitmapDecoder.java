@@ -0,0 +1,59 @@
+package com.appboy.ui.images;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.appboy.ui.support.AppboyLogger;
+
+import java.io.File;
+
+public final class BitmapDecoder {
+  private static final String TAG = AppboyLogger.getAppboyTag(BitmapDecoder.class);
+
+  private BitmapDecoder() {}
+
+  /**
+   * Decodes the image file, sampled down so that it is no larger than necessary to fill the requested size. The
+   * image is read twice: once for its bounds only, and once to decode it at the computed sample size.
+   *
+   * @param file The image file to decode.
+   * @param requestedWidth The width the image will be displayed at, or 0 if it isn't constrained.
+   * @param requestedHeight The height the image will be displayed at, or 0 if it isn't constrained.
+   * @return The decoded bitmap, or null if the file couldn't be decoded.
+   */
+  public static Bitmap decodeSampledBitmap(File file, int requestedWidth, int requestedHeight) {
+    String path = file.getAbsolutePath();
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeFile(path, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      AppboyLogger.w(TAG, "Unable to read the bounds of the image at %s.", path);
+      return null;
+    }
+
+    options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, requestedWidth, requestedHeight);
+    options.inJustDecodeBounds = false;
+    try {
+      return BitmapFactory.decodeFile(path, options);
+    } catch (OutOfMemoryError e) {
+      AppboyLogger.e(TAG, "Ran out of memory decoding the image at %s.", path);
+      return null;
+    }
+  }
+
+  /**
+   * @return The largest power of two sample size that keeps both dimensions at or above the requested size. An
+   *         unconstrained (0) dimension doesn't limit the sample size.
+   */
+  public static int calculateInSampleSize(int width, int height, int requestedWidth, int requestedHeight) {
+    int inSampleSize = 1;
+    if (requestedWidth <= 0 && requestedHeight <= 0) {
+      return inSampleSize;
+    }
+    while ((requestedWidth <= 0 || width / (inSampleSize * 2) >= requestedWidth)
+        && (requestedHeight <= 0 || height / (inSampleSize * 2) >= requestedHeight)) {
+      inSampleSize *= 2;
+    }
+    return inSampleSize;
+  }
+}
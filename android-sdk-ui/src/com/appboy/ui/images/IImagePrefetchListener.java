@@ -0,0 +1,13 @@
+package com.appboy.ui.images;
+
+public interface IImagePrefetchListener {
+
+  /**
+   * Called on the main thread when an image prefetch has finished.
+   *
+   * @param imageUrl The URL of the prefetched image.
+   * @param downloadedBytes The number of bytes downloaded, 0 if the image was already in the disk cache, or -1 if the
+   *                        image couldn't be downloaded.
+   */
+  void onPrefetchFinished(String imageUrl, long downloadedBytes);
+}
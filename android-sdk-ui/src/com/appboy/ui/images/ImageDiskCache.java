@@ -0,0 +1,182 @@
+package com.appboy.ui.images;
+
+import com.appboy.ui.support.AppboyLogger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A size bounded, least recently used file cache for downloaded images. Each entry is stored in its own file,
+ * named after the MD5 digest of its key, and the least recently used files are deleted whenever the total size exceeds the
+ * maximum.
+ *
+ * All methods perform file I/O and must not be called on the main thread.
+ */
+public class ImageDiskCache {
+  private static final String TAG = AppboyLogger.getAppboyTag(ImageDiskCache.class);
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final int BUFFER_SIZE_BYTES = 8192;
+
+  private final File mDirectory;
+  private final long mMaxSizeBytes;
+  private long mSizeBytes = -1;
+
+  public ImageDiskCache(File directory, long maxSizeBytes) {
+    mDirectory = directory;
+    mMaxSizeBytes = maxSizeBytes;
+  }
+
+  /**
+   * @return The cached file for the given key, or null if there is none.
+   */
+  public synchronized File get(String key) {
+    File file = getFile(key);
+    if (!file.exists()) {
+      return null;
+    }
+    // The modification time is used as the access time for the least recently used ordering.
+    file.setLastModified(System.currentTimeMillis());
+    return file;
+  }
+
+  /**
+   * Copies the given stream into the cache. The entry only becomes visible once the whole stream has been written.
+   *
+   * @return The cached file, or null if the stream couldn't be written.
+   */
+  public File put(String key, InputStream inputStream) {
+    if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+      AppboyLogger.w(TAG, "Unable to create the image cache directory %s.", mDirectory);
+      return null;
+    }
+    File file = getFile(key);
+    File tempFile = new File(mDirectory, file.getName() + Thread.currentThread().getId() + TEMP_FILE_SUFFIX);
+    OutputStream outputStream = null;
+    try {
+      outputStream = new FileOutputStream(tempFile);
+      byte[] buffer = new byte[BUFFER_SIZE_BYTES];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, read);
+      }
+      outputStream.close();
+      outputStream = null;
+    } catch (IOException e) {
+      AppboyLogger.w(TAG, "Unable to write the image for %s to the disk cache.", key);
+      closeQuietly(outputStream);
+      tempFile.delete();
+      return null;
+    }
+
+    synchronized (this) {
+      // The size is computed before the new file is in place, or the first put would count it twice.
+      ensureSizeComputed();
+      long previousLength = file.exists() ? file.length() : 0l;
+      if (!tempFile.renameTo(file)) {
+        tempFile.delete();
+        return null;
+      }
+      mSizeBytes += file.length() - previousLength;
+      trimToSize();
+    }
+    return file;
+  }
+
+  /**
+   * Deletes every cached file.
+   */
+  public synchronized void clear() {
+    File[] files = mDirectory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    mSizeBytes = 0;
+  }
+
+  private File getFile(String key) {
+    return new File(mDirectory, getFileName(key));
+  }
+
+  /**
+   * @return The hex MD5 digest of the key. Unlike a hash code, it doesn't collide for different URLs in practice.
+   */
+  static String getFileName(String key) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support MD5 and UTF-8.
+      throw new IllegalStateException(e);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+    StringBuilder fileName = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      fileName.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return fileName.toString();
+  }
+
+  private void ensureSizeComputed() {
+    if (mSizeBytes >= 0) {
+      return;
+    }
+    mSizeBytes = 0;
+    File[] files = mDirectory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        // Files still being written aren't part of the cache yet.
+        if (!file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+          mSizeBytes += file.length();
+        }
+      }
+    }
+  }
+
+  private void trimToSize() {
+    if (mSizeBytes <= mMaxSizeBytes) {
+      return;
+    }
+    File[] files = mDirectory.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File lhs, File rhs) {
+        long lhsModified = lhs.lastModified();
+        long rhsModified = rhs.lastModified();
+        return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+      }
+    });
+    for (int i = 0; i < files.length && mSizeBytes > mMaxSizeBytes; i++) {
+      if (files[i].getName().endsWith(TEMP_FILE_SUFFIX)) {
+        continue;
+      }
+      long length = files[i].length();
+      if (files[i].delete()) {
+        mSizeBytes -= length;
+      }
+    }
+  }
+
+  private static void closeQuietly(OutputStream outputStream) {
+    if (outputStream != null) {
+      try {
+        outputStream.close();
+      } catch (IOException e) {
+        // Nothing left to do.
+      }
+    }
+  }
+}
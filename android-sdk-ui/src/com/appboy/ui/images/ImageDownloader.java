@@ -0,0 +1,116 @@
+package com.appboy.ui.images;
+
+import com.appboy.ui.support.AppboyLogger;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * Downloads images into an {@link ImageDiskCache}. Image URLs come from pushes and cards, so downloads are capped at
+ * {@link #MAX_DOWNLOAD_BYTES}, and larger images aren't cached.
+ */
+final class ImageDownloader {
+  private static final String TAG = AppboyLogger.getAppboyTag(ImageDownloader.class);
+  static final int MAX_DOWNLOAD_BYTES = 2 * 1024 * 1024;
+
+  private ImageDownloader() {}
+
+  /**
+   * Downloads the image at the given URL into the disk cache. Must not be called on the main thread.
+   *
+   * @return The cached file, or null if the image couldn't be downloaded or is larger than
+   *         {@link #MAX_DOWNLOAD_BYTES}.
+   */
+  static File download(String imageUrl, ImageDiskCache diskCache, int connectTimeoutMillis, int readTimeoutMillis) {
+    HttpURLConnection connection = null;
+    InputStream inputStream = null;
+    try {
+      URLConnection urlConnection = new URL(imageUrl).openConnection();
+      if (!(urlConnection instanceof HttpURLConnection)) {
+        AppboyLogger.w(TAG, "Unable to download the image at %s. Only http and https URLs are supported.", imageUrl);
+        return null;
+      }
+      connection = (HttpURLConnection) urlConnection;
+      connection.setConnectTimeout(connectTimeoutMillis);
+      connection.setReadTimeout(readTimeoutMillis);
+      if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+        AppboyLogger.w(TAG, "Unable to download the image at %s. Response code: %d.", imageUrl,
+            connection.getResponseCode());
+        return null;
+      }
+      if (connection.getContentLength() > MAX_DOWNLOAD_BYTES) {
+        AppboyLogger.w(TAG, "Not downloading the image at %s. It is %d bytes long, more than the maximum of %d bytes.",
+            imageUrl, connection.getContentLength(), MAX_DOWNLOAD_BYTES);
+        return null;
+      }
+      // The content length may be missing or wrong, so the size is checked while the image is being written too.
+      inputStream = new SizeLimitedInputStream(connection.getInputStream(), MAX_DOWNLOAD_BYTES);
+      return diskCache.put(imageUrl, inputStream);
+    } catch (IOException e) {
+      AppboyLogger.w(TAG, "Unable to download the image at %s.", imageUrl);
+      return null;
+    } finally {
+      if (inputStream != null) {
+        try {
+          inputStream.close();
+        } catch (IOException e) {
+          // Nothing left to do.
+        }
+      }
+      if (connection != null) {
+        connection.disconnect();
+      }
+    }
+  }
+
+  /**
+   * Fails with an IOException once more than the maximum number of bytes have been read, so that the disk cache
+   * deletes the partially written file.
+   */
+  static class SizeLimitedInputStream extends FilterInputStream {
+    private final long mMaxBytes;
+    private long mBytesRead;
+
+    SizeLimitedInputStream(InputStream inputStream, long maxBytes) {
+      super(inputStream);
+      mMaxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        countBytesRead(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+      int read = super.read(buffer, offset, count);
+      if (read > 0) {
+        countBytesRead(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+      long skipped = super.skip(count);
+      countBytesRead(skipped);
+      return skipped;
+    }
+
+    private void countBytesRead(long count) throws IOException {
+      mBytesRead += count;
+      if (mBytesRead > mMaxBytes) {
+        throw new IOException("The image is larger than " + mMaxBytes + " bytes.");
+      }
+    }
+  }
+}
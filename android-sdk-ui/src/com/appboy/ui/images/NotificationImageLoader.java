@@ -0,0 +1,153 @@
+package com.appboy.ui.images;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.appboy.ui.support.AppboyLogger;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Loads the images of push notifications through a disk cache and the network.
+ *
+ * Images are downloaded on a small pool of background threads into their own disk cache, so that repeat campaigns
+ * don't download them again. The caller waits for the download until a deadline, and falls back to a notification
+ * without an image if it is missed. A download that misses its deadline keeps going and is cached for the next push.
+ *
+ * Memory use is bounded while many pushes arrive: only a few downloads are queued at a time, and pushes beyond that
+ * get no image. Images are only decoded on the caller's thread once downloaded, sampled down and then scaled to fit
+ * both the requested size and {@link #MAX_IMAGE_BYTES}, and aren't kept in memory afterwards.
+ */
+public final class NotificationImageLoader {
+  private static final String TAG = AppboyLogger.getAppboyTag(NotificationImageLoader.class);
+  private static final String DISK_CACHE_DIRECTORY_NAME = "appboy.notification_images";
+  private static final long DISK_CACHE_SIZE_BYTES = 5l * 1024l * 1024l;
+  private static final int DOWNLOAD_THREAD_COUNT = 2;
+  private static final int MAX_QUEUED_DOWNLOADS = 4;
+  // Notifications are parceled to the system server, and binder transactions are limited to 1MB.
+  static final int MAX_IMAGE_BYTES = 512 * 1024;
+  private static volatile NotificationImageLoader sInstance = null;
+
+  private final ImageDiskCache mDiskCache;
+  private final ExecutorService mExecutor;
+
+  public static NotificationImageLoader getInstance(Context context) {
+    if (sInstance == null) {
+      synchronized (NotificationImageLoader.class) {
+        if (sInstance == null) {
+          sInstance = new NotificationImageLoader(context.getApplicationContext());
+        }
+      }
+    }
+    return sInstance;
+  }
+
+  private NotificationImageLoader(Context context) {
+    mDiskCache = new ImageDiskCache(new File(context.getCacheDir(), DISK_CACHE_DIRECTORY_NAME), DISK_CACHE_SIZE_BYTES);
+    mExecutor = new ThreadPoolExecutor(DOWNLOAD_THREAD_COUNT, DOWNLOAD_THREAD_COUNT, 0l, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(MAX_QUEUED_DOWNLOADS), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "AppboyNotificationImageLoader");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+          }
+        });
+  }
+
+  /**
+   * Loads the image at the given URL, decoded to fit the given size. Blocks until the image is loaded or the timeout
+   * has passed, and must not be called on the main thread.
+   *
+   * @param imageUrl The URL of the image.
+   * @param maxWidth The maximum width of the decoded image.
+   * @param maxHeight The maximum height of the decoded image.
+   * @param timeoutMillis How long to wait for the image to be downloaded.
+   * @return The image, or null if it couldn't be loaded in time.
+   */
+  public Bitmap loadImage(String imageUrl, int maxWidth, int maxHeight, long timeoutMillis) {
+    File file = mDiskCache.get(imageUrl);
+    if (file == null) {
+      file = download(imageUrl, timeoutMillis);
+    }
+    if (file == null) {
+      return null;
+    }
+    Bitmap bitmap = BitmapDecoder.decodeSampledBitmap(file, maxWidth, maxHeight);
+    return bitmap != null ? scaleToFit(bitmap, maxWidth, maxHeight) : null;
+  }
+
+  private File download(final String imageUrl, final long timeoutMillis) {
+    Future<File> download;
+    try {
+      download = mExecutor.submit(new Callable<File>() {
+        @Override
+        public File call() {
+          // The timeouts only make sure that the thread is freed, the caller stops waiting at the deadline anyway.
+          return ImageDownloader.download(imageUrl, mDiskCache, (int) timeoutMillis, (int) timeoutMillis);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      AppboyLogger.w(TAG, "%d notification images are already being downloaded. Skipping the image at %s.",
+          DOWNLOAD_THREAD_COUNT + MAX_QUEUED_DOWNLOADS, imageUrl);
+      return null;
+    }
+    try {
+      return download.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      AppboyLogger.w(TAG, "The notification image at %s wasn't downloaded within %d ms. It will be cached for " +
+          "the next push.", imageUrl, timeoutMillis);
+    } catch (ExecutionException e) {
+      AppboyLogger.w(TAG, "Unable to download the notification image at %s.", imageUrl);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return null;
+  }
+
+  /**
+   * Scales the bitmap down, keeping its aspect ratio, so that it fits the given size and {@link #MAX_IMAGE_BYTES}.
+   * The original bitmap is recycled if it is scaled.
+   */
+  private static Bitmap scaleToFit(Bitmap bitmap, int maxWidth, int maxHeight) {
+    int width = bitmap.getWidth();
+    int height = bitmap.getHeight();
+    float scale = 1f;
+    if (maxWidth > 0) {
+      scale = Math.min(scale, (float) maxWidth / width);
+    }
+    if (maxHeight > 0) {
+      scale = Math.min(scale, (float) maxHeight / height);
+    }
+    long bytes = (long) bitmap.getRowBytes() * height;
+    if (bytes * scale * scale > MAX_IMAGE_BYTES) {
+      scale = (float) Math.sqrt((double) MAX_IMAGE_BYTES / bytes);
+    }
+    if (scale >= 1f) {
+      return bitmap;
+    }
+    int scaledWidth = Math.max(1, Math.round(width * scale));
+    int scaledHeight = Math.max(1, Math.round(height * scale));
+    try {
+      Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, scaledWidth, scaledHeight, true);
+      if (scaledBitmap != bitmap) {
+        bitmap.recycle();
+      }
+      return scaledBitmap;
+    } catch (OutOfMemoryError e) {
+      AppboyLogger.e(TAG, "Ran out of memory scaling a notification image to %dx%d.", scaledWidth, scaledHeight);
+      bitmap.recycle();
+      return null;
+    }
+  }
+}
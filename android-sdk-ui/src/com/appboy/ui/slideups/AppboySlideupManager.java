@@ -1,32 +1,49 @@
 package com.appboy.ui.slideups;
 
 import android.app.Activity;
-import android.util.Log;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
 import android.view.View;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.appboy.Appboy;
-import com.appboy.Constants;
 import com.appboy.IAppboyNavigator;
 import com.appboy.enums.Slideup.ClickAction;
+import com.appboy.enums.Slideup.SlideFrom;
 import com.appboy.events.IEventSubscriber;
 import com.appboy.events.SlideupEvent;
 import com.appboy.models.Slideup;
 import com.appboy.support.BundleUtils;
 import com.appboy.ui.AppboyNavigator;
 import com.appboy.ui.R;
-import com.appboy.ui.support.ViewUtils;
+import com.appboy.ui.support.AppboyLogger;
 
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The AppboySlideupManager is used to display slideup messages that are either sent down from Appboy
  * or are created navitely in the host app. It will only show one slideup message at a time and will
- * place all other slideups onto a stack. The AppboySlideupManager will also keep track of slideup
- * impressions and clicks, which can be viewed on the dashboard.
+ * place all other slideups into a queue, unless multi-slot display is enabled with
+ * {@link AppboySlideupManager#setMultiSlotDisplayEnabled(boolean)}. In that case, one slideup can be
+ * displayed in each slot, at the top and at the bottom of the screen, according to its SlideFrom.
+ * Each displayed slideup has its own lifecycle and dismiss timer. The AppboySlideupManager will
+ * also keep track of slideup impressions and clicks, which can be viewed on the dashboard.
  *
  * When a slideup is received from Appboy, the
  * {@link com.appboy.ui.slideups.ISlideupManagerListener#onSlideupReceived(com.appboy.models.Slideup)}
@@ -35,8 +52,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * AppboySlideupManager. This method should be used if you choose to display the slideup in a custom
  * way. If false is returned, the AppboySlideupManager attempts to display the slideup.
  *
- * If there is already a slideup being displayed, the new slideup will be put onto the top of the
- * stack and can be displayed at a later time. If there is no slideup being displayed, then the
+ * If there is already a slideup being displayed, the new slideup will be put into the queue and can
+ * be displayed at a later time. Queued slideups are displayed in order of the priority given by the
+ * {@link com.appboy.ui.slideups.ISlideupQueuePolicy} (newest first by default), and are dropped once
+ * their time to live has elapsed or when the queue is full of slideups with a higher priority. A
+ * custom policy can be set with {@link AppboySlideupManager#setCustomSlideupQueuePolicy(ISlideupQueuePolicy)}.
+ * If there is no slideup being displayed, then the
  * {@link com.appboy.ui.slideups.ISlideupManagerListener#beforeSlideupDisplayed(com.appboy.models.Slideup)}
  * will be called. The {@link com.appboy.ui.slideups.SlideupOperation} return value can be used to
  * control when the slideup should be displayed. A suggested usage of this method would be to delay
@@ -59,25 +80,114 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *
  * A new slideup {@link android.view.View} object is created when a slideup is displayed and also
  * when the user navigates away to another {@link android.app.Activity}. This happens so that the
- * Activity can be garbage collected and does not create a memory leak. For that reason, the
+ * Activity can be garbage collected and does not create a memory leak. If the view factory implements
+ * {@link com.appboy.ui.slideups.IRecyclableSlideupViewFactory} (as the default one does), the views
+ * are instead created ahead of time for each Activity and reused for every slideup displayed in it.
+ * For that reason, the
  * {@link com.appboy.ui.slideups.AppboySlideupManager#registerSlideupManager(android.app.Activity)}
  * and {@link com.appboy.ui.slideups.AppboySlideupManager#unregisterSlideupManager(android.app.Activity)}
  * must be called in the {@link android.app.Activity#onResume()} and {@link android.app.Activity#onPause()}
  * methods of every Activity.
+ *
+ * Slideups arrive on Appboy's event threads, but all of the manager's state is owned by the main
+ * thread. Incoming slideups are put into a lock-free queue and handed over to the main thread in a
+ * single message, however many arrive at once. The slideup queue, the current Activity and the
+ * displayed slideup are only ever touched on the main thread.
+ *
+ * Slideups are never displayed while the host Activity is starting up. A display is deferred until
+ * the registered Activity has drawn its first frame and the main thread is idle, and consecutive
+ * slideups are separated by a minimum gap, which can be changed with
+ * {@link AppboySlideupManager#setMinDisplayGapMillis(long)}. The number of slideups displayed per
+ * session can be capped with {@link AppboySlideupManager#setMaxSlideupsPerSession(int)}. A session
+ * ends when no Activity has been registered for 10 seconds, or when
+ * {@link AppboySlideupManager#startNewSlideupSession()} is called.
+ *
+ * The slideups waiting to be displayed only live in memory, and are lost when the process is
+ * killed, unless {@link AppboySlideupManager#setPendingSlideupPersistenceEnabled(boolean)} is used
+ * to save them to disk. Saved slideups are read back the next time the manager is registered.
+ *
+ * The manager records {@link com.appboy.ui.slideups.SlideupMetrics} for every slideup once it has
+ * been closed or dropped. The most recent ones can be read with
+ * {@link AppboySlideupManager#getRecentSlideupMetrics()}, and each one is also handed to the
+ * {@link com.appboy.ui.slideups.ISlideupMetricsListener} set with
+ * {@link AppboySlideupManager#setSlideupMetricsListener(ISlideupMetricsListener)}.
  */
 public final class AppboySlideupManager {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, AppboySlideupManager.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(AppboySlideupManager.class);
+  private static final int DEFAULT_MAX_QUEUE_SIZE = 10;
+  private static final int MAX_POOLED_SLIDEUP_VIEWS = 2;
+  private static final int PREINFLATED_SLIDEUP_VIEWS = 1;
+  private static final long DEFAULT_SLIDEUP_TIME_TO_LIVE_MS = 60l * 60l * 1000l;
+  private static final long DEFAULT_MIN_DISPLAY_GAP_MS = 1000l;
+  private static final int DEFAULT_MAX_SLIDEUPS_PER_SESSION = 0;
+  private static final long SESSION_TIMEOUT_MS = 10000l;
+  // Changes to the pending slideups within this time are saved together.
+  private static final long PENDING_SLIDEUPS_SAVE_DELAY_MS = 1000l;
+  private static final int RECENT_SLIDEUP_METRICS_CAPACITY = 50;
   private static volatile AppboySlideupManager sInstance = null;
 
-  private final Stack<Slideup> mSlideupStack = new Stack<Slideup>();
   private final IAppboyNavigator mDefaultAppboyNavigator = new AppboyNavigator();
+  private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+  // Slideups added from any thread, waiting to be moved into mSlideupQueue on the main thread.
+  private final Queue<SlideupMetricsRecorder> mIncomingSlideups = new ConcurrentLinkedQueue<SlideupMetricsRecorder>();
+  private final AtomicBoolean mDispatchScheduled = new AtomicBoolean(false);
+  private final Runnable mDispatchRunnable = new Runnable() {
+    @Override
+    public void run() {
+      mDispatchScheduled.set(false);
+      dispatchIncomingSlideups();
+    }
+  };
+  private volatile ISlideupManagerListener mCustomSlideupManagerListener;
+  private volatile ISlideupViewFactory mCustomSlideupViewFactory;
+  private volatile ISlideupQueuePolicy mCustomSlideupQueuePolicy;
+  private volatile ISlideupAnimationProvider mCustomSlideupAnimationProvider;
+  private volatile ISlideupMetricsListener mSlideupMetricsListener;
+  private final SlideupMetricsBuffer mRecentSlideupMetrics = new SlideupMetricsBuffer(RECENT_SLIDEUP_METRICS_CAPACITY);
+
+  // The following fields are only accessed on the main thread.
+  private final SlideupQueue.IDropListener mSlideupDropListener = new SlideupQueue.IDropListener() {
+    @Override
+    public void onSlideupDropped(SlideupQueue.QueuedSlideup queuedSlideup, SlideupOutcome outcome) {
+      recordSlideupMetrics(queuedSlideup.mMetricsRecorder, outcome);
+    }
+  };
+  private final SlideupQueue mSlideupQueue = new SlideupQueue(DEFAULT_MAX_QUEUE_SIZE, mSlideupDropListener);
+  private final SlideupViewPool mSlideupViewPool = new SlideupViewPool(MAX_POOLED_SLIDEUP_VIEWS);
+  private final SlideupDisplayScheduler mDisplayScheduler = new SlideupDisplayScheduler(new Runnable() {
+    @Override
+    public void run() {
+      displayNextSlideup();
+    }
+  }, DEFAULT_MIN_DISPLAY_GAP_MS, DEFAULT_MAX_SLIDEUPS_PER_SESSION, SESSION_TIMEOUT_MS);
   private Activity mActivity;
   private IEventSubscriber<SlideupEvent> mSlideupEventSubscriber;
-  private ISlideupManagerListener mCustomSlideupManagerListener;
-  private ISlideupViewFactory mCustomSlideupViewFactory;
-  private SlideupViewWrapper mSlideupViewWrapper;
-  private Slideup mCarryoverSlideup;
-  private AtomicBoolean mDisplayingSlideup = new AtomicBoolean(false);
+  // The displayed slideups, by the slot they are displayed in.
+  private final Map<SlideFrom, SlideupViewWrapper> mSlideupViewWrappers =
+      new EnumMap<SlideFrom, SlideupViewWrapper>(SlideFrom.class);
+  private final List<CarryoverSlideup> mCarryoverSlideups = new ArrayList<CarryoverSlideup>();
+  // The metrics of the displayed and carried over slideups.
+  private final Map<Slideup, SlideupMetricsRecorder> mDisplayedSlideupMetrics =
+      new IdentityHashMap<Slideup, SlideupMetricsRecorder>();
+  private boolean mMultiSlotDisplayEnabled;
+  private boolean mPendingSlideupPersistenceEnabled;
+  private SlideupQueueStore mSlideupQueueStore;
+  private boolean mRestoringPendingSlideups;
+  // The copy keys of the restored slideups that were displayed, whose next copy delivered by Appboy is dropped.
+  private final Set<String> mDisplayedRestoredSlideupKeys = new HashSet<String>();
+  private boolean mSavePendingSlideupsScheduled;
+  private final Runnable mSavePendingSlideupsRunnable = new Runnable() {
+    @Override
+    public void run() {
+      mSavePendingSlideupsScheduled = false;
+      if (mPendingSlideupPersistenceEnabled) {
+        savePendingSlideups();
+      }
+    }
+  };
+  // Whether slideups were added while no Activity was registered, in which case a display is
+  // requested as soon as one is.
+  private boolean mDisplayRequestPending;
 
   public static AppboySlideupManager getInstance() {
     if (sInstance == null) {
@@ -99,21 +209,50 @@ public final class AppboySlideupManager {
    *
    * @param activity The current Activity.
    */
-  public void registerSlideupManager(Activity activity) {
+  public void registerSlideupManager(final Activity activity) {
     // We need the current Activity so that we can inflate or programmatically create the slideup
     // View for each Activity. We cannot share the View because doing so would create a memory leak.
     mActivity = activity;
+    mDisplayScheduler.onActivityRegistered(activity);
+    restorePendingSlideups(activity);
+
+    // Slideup views are created once the Activity has finished resuming and the main thread is
+    // idle, so that displaying the first slideup doesn't have to inflate a layout.
+    Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+      @Override
+      public boolean queueIdle() {
+        ISlideupViewFactory slideupViewFactory = getSlideupViewFactory();
+        if (mActivity == activity && slideupViewFactory instanceof IRecyclableSlideupViewFactory) {
+          mSlideupViewPool.preinflate(activity, (IRecyclableSlideupViewFactory) slideupViewFactory,
+              PREINFLATED_SLIDEUP_VIEWS);
+        }
+        return false;
+      }
+    });
 
     // We have a special check to see if the host app switched to a different Activity (or recreated
-    // the same Activity during an orientation change) so that we can redisplay the slideup.
-    if (mCarryoverSlideup != null) {
-      mCarryoverSlideup.setAnimateIn(false);
-      displaySlideup(mCarryoverSlideup);
-      mCarryoverSlideup = null;
+    // the same Activity during an orientation change) so that we can redisplay the slideups. They
+    // are redisplayed once the Activity has drawn its first frame, and stay carried over if the
+    // Activity is unregistered before that.
+    if (!mCarryoverSlideups.isEmpty()) {
+      mDisplayScheduler.runAfterFirstFrame(new Runnable() {
+        @Override
+        public void run() {
+          List<CarryoverSlideup> carryoverSlideups = new ArrayList<CarryoverSlideup>(mCarryoverSlideups);
+          mCarryoverSlideups.clear();
+          onPendingSlideupsChanged();
+          for (CarryoverSlideup carryoverSlideup : carryoverSlideups) {
+            redisplayCarryoverSlideup(carryoverSlideup);
+          }
+        }
+      });
+    } else if (mDisplayRequestPending) {
+      mDisplayRequestPending = false;
+      requestDisplaySlideup();
     }
 
     // Every time the AppboySlideupManager is registered to an Activity, we add a slideup subscriber
-    // which listens to new slideups, adds it to the stack, and displays it if it can.
+    // which listens to new slideups, adds it to the queue, and displays it if it can.
     mSlideupEventSubscriber = createSlideupEventSubscriber();
     Appboy.getInstance(activity).subscribeToNewSlideups(mSlideupEventSubscriber);
   }
@@ -126,13 +265,44 @@ public final class AppboySlideupManager {
   public void unregisterSlideupManager(Activity activity) {
     // If there is slideup being displayed when the host app transitions to another Activity (or
     // requests an orientation change), we save it in memory so that we can redisplay it when the
-    // operation is done.
-    if (mSlideupViewWrapper != null) {
-      mCarryoverSlideup = mSlideupViewWrapper.getSlideup();
-      ViewUtils.removeViewFromParent(mSlideupViewWrapper.getSlideupView());
-      mSlideupViewWrapper = null;
-    } else {
-      mCarryoverSlideup = null;
+    // operation is done. The view is kept as well, so that it can be put back as is if the same
+    // Activity is resumed.
+    boolean finishing = activity.isFinishing();
+    for (SlideupViewWrapper slideupViewWrapper : mSlideupViewWrappers.values()) {
+      slideupViewWrapper.detach();
+      Slideup slideup = slideupViewWrapper.getSlideup();
+      long remainingDismissMillis = slideupViewWrapper.getRemainingDismissMillis();
+      if (slideupViewWrapper.isClosing()) {
+        // The closing animation was stopped, so the slideup is closed right away instead.
+        mSlideupViewPool.release(slideupViewWrapper.getSlideupView());
+        mDisplayScheduler.onSlideupClosed();
+        recordSlideupMetrics(mDisplayedSlideupMetrics.remove(slideup), SlideupOutcome.DISPLAYED);
+        continue;
+      }
+      if (finishing) {
+        mSlideupViewPool.release(slideupViewWrapper.getSlideupView());
+        slideupViewWrapper = null;
+      }
+      mCarryoverSlideups.add(new CarryoverSlideup(slideup, slideupViewWrapper, remainingDismissMillis));
+    }
+    mSlideupViewWrappers.clear();
+    if (finishing) {
+      // Views carried over from an earlier unregistration of this Activity can't be put back either.
+      for (CarryoverSlideup carryoverSlideup : mCarryoverSlideups) {
+        if (carryoverSlideup.mSlideupViewWrapper != null
+            && carryoverSlideup.mSlideupViewWrapper.getSlideupView().getContext() == activity) {
+          carryoverSlideup.mSlideupViewWrapper = null;
+        }
+      }
+    }
+    onPendingSlideupsChanged();
+    mDisplayScheduler.onActivityUnregistered();
+    if (mActivity == activity) {
+      mActivity = null;
+    }
+    // The pooled views hold on to the Activity, so they are dropped once it won't come back.
+    if (finishing) {
+      mSlideupViewPool.clear();
     }
 
     // Slideup subscriptions are per Activity, so we must remove the subscriber when the host app
@@ -163,121 +333,549 @@ public final class AppboySlideupManager {
     mCustomSlideupViewFactory = slideupViewFactory;
   }
 
+  /**
+   * Assigns a custom ISlideupQueuePolicy that will be used to prioritize and expire the slideups
+   * waiting to be displayed. The policy is applied when a slideup is added. To revert back to the
+   * default ISlideupQueuePolicy, call the setCustomSlideupQueuePolicy method with null.
+   *
+   * @param slideupQueuePolicy A custom ISlideupQueuePolicy or null (to revert back to the default
+   *                           ISlideupQueuePolicy).
+   */
+  public void setCustomSlideupQueuePolicy(ISlideupQueuePolicy slideupQueuePolicy) {
+    mCustomSlideupQueuePolicy = slideupQueuePolicy;
+  }
+
+  /**
+   * Assigns a custom ISlideupAnimationProvider that will be used to choose the duration and
+   * interpolator of each slideup's opening and closing animations. To revert back to the default
+   * animations, call the setCustomSlideupAnimationProvider method with null.
+   *
+   * @param slideupAnimationProvider A custom ISlideupAnimationProvider or null (to revert back to the
+   *                                 default ISlideupAnimationProvider).
+   */
+  public void setCustomSlideupAnimationProvider(ISlideupAnimationProvider slideupAnimationProvider) {
+    mCustomSlideupAnimationProvider = slideupAnimationProvider;
+  }
+
+  /**
+   * Sets the maximum number of slideups that can wait to be displayed. When the queue is full, the
+   * slideup that would be displayed last is dropped.
+   *
+   * @param maxQueueSize The maximum number of queued slideups. Must be at least 1.
+   */
+  public void setMaxQueueSize(final int maxQueueSize) {
+    runOnMainThread(new Runnable() {
+      @Override
+      public void run() {
+        mSlideupQueue.setMaxSize(maxQueueSize);
+        onPendingSlideupsChanged();
+      }
+    });
+  }
+
+  /**
+   * Assigns an ISlideupMetricsListener that is handed the metrics of every slideup once it has been
+   * closed or dropped. Call the setSlideupMetricsListener method with null to remove it.
+   *
+   * @param slideupMetricsListener An ISlideupMetricsListener or null.
+   */
+  public void setSlideupMetricsListener(ISlideupMetricsListener slideupMetricsListener) {
+    mSlideupMetricsListener = slideupMetricsListener;
+  }
+
+  /**
+   * Returns the metrics of the most recently closed or dropped slideups, up to 50 of them. This
+   * method can be called from any thread.
+   *
+   * @return A copy of the recent slideup metrics, from the oldest to the most recent.
+   */
+  public List<SlideupMetrics> getRecentSlideupMetrics() {
+    return mRecentSlideupMetrics.snapshot();
+  }
+
+  /**
+   * Enables or disables saving the slideups waiting to be displayed to disk, so that they are not
+   * lost when the process is killed in the background. Saved slideups are read back in the
+   * background the first time the manager is registered after the process starts, and keep their
+   * priority and expiration time. Disabled by default.
+   *
+   * Only slideups received from Appboy are saved. Analytics are lost for restored slideups: they
+   * are no longer connected to Appboy, so their impressions and clicks are not logged, and their
+   * metrics report the {@link SlideupOutcome#DISPLAYED_RESTORED} outcome instead of DISPLAYED.
+   *
+   * Appboy may deliver a restored slideup again, for example after requestSlideupRefresh. The
+   * delivered copy replaces the restored one if it is still waiting, so its analytics are logged,
+   * and is dropped if the restored one was already displayed, so the message is never shown twice.
+   * Copies are recognized by their campaign id, or by their JSON if they have none.
+   *
+   * @param pendingSlideupPersistenceEnabled Whether pending slideups are saved to disk.
+   */
+  public void setPendingSlideupPersistenceEnabled(final boolean pendingSlideupPersistenceEnabled) {
+    runOnMainThread(new Runnable() {
+      @Override
+      public void run() {
+        mPendingSlideupPersistenceEnabled = pendingSlideupPersistenceEnabled;
+        if (!pendingSlideupPersistenceEnabled && mSlideupQueueStore != null) {
+          // Drop the saved slideups, so they don't come back if persistence is enabled again later.
+          mSlideupQueueStore.write(Collections.<SlideupQueue.QueuedSlideup>emptyList());
+        } else if (pendingSlideupPersistenceEnabled && mActivity != null) {
+          restorePendingSlideups(mActivity);
+        }
+      }
+    });
+  }
+
+  /**
+   * Enables or disables multi-slot display. When enabled, up to two slideups are displayed at the
+   * same time, one sliding in from the top and one from the bottom of the screen, so queued
+   * slideups are displayed faster when several arrive at once. Disabled by default.
+   *
+   * @param multiSlotDisplayEnabled Whether a slideup can be displayed in each slot at once.
+   */
+  public void setMultiSlotDisplayEnabled(final boolean multiSlotDisplayEnabled) {
+    runOnMainThread(new Runnable() {
+      @Override
+      public void run() {
+        mMultiSlotDisplayEnabled = multiSlotDisplayEnabled;
+      }
+    });
+  }
+
+  /**
+   * Sets the minimum time between a slideup closing and the next one being displayed. Defaults to
+   * 1 second.
+   *
+   * @param minDisplayGapMillis The minimum gap between consecutive slideups, in milliseconds.
+   */
+  public void setMinDisplayGapMillis(final long minDisplayGapMillis) {
+    runOnMainThread(new Runnable() {
+      @Override
+      public void run() {
+        mDisplayScheduler.setMinDisplayGapMillis(minDisplayGapMillis);
+      }
+    });
+  }
+
+  /**
+   * Sets the maximum number of slideups displayed per session. Slideups that arrive once the
+   * maximum has been reached stay in the queue until they expire or a new session starts.
+   *
+   * @param maxSlideupsPerSession The maximum number of slideups per session, or 0 (the default)
+   *                              for no maximum.
+   */
+  public void setMaxSlideupsPerSession(final int maxSlideupsPerSession) {
+    runOnMainThread(new Runnable() {
+      @Override
+      public void run() {
+        mDisplayScheduler.setMaxDisplaysPerSession(maxSlideupsPerSession);
+      }
+    });
+  }
+
+  /**
+   * Starts a new slideup session, resetting the number of slideups displayed towards the
+   * per-session maximum. This can be used to align slideup sessions with the host app's own.
+   */
+  public void startNewSlideupSession() {
+    runOnMainThread(new Runnable() {
+      @Override
+      public void run() {
+        mDisplayScheduler.resetSession();
+      }
+    });
+  }
+
   /**
    * Provides a slideup that will then be handled by the slideup manager. If no slideup is being
-   * displayed, it will attempt to display the slideup immediately.
+   * displayed, it will attempt to display the slideup as soon as possible on the main thread. This
+   * method can be called from any thread.
    *
    * @param slideup The slideup to add.
    */
   public void addSlideup(Slideup slideup) {
-    mSlideupStack.push(slideup);
-    requestDisplaySlideup();
+    mIncomingSlideups.offer(new SlideupMetricsRecorder(slideup));
+    if (mDispatchScheduled.compareAndSet(false, true)) {
+      mMainThreadHandler.post(mDispatchRunnable);
+    }
   }
 
   /**
    * Asks the SlideupManager to display the next slideup if one is not currently being displayed.
    * If one is being displayed, this method will return false and will not display the next slideup.
+   * With multi-slot display enabled, the next slideup for a free slot is displayed, and this method
+   * only returns false if every slot is taken.
+   *
+   * The slideup isn't displayed right away, but as soon as the Activity has drawn its first frame,
+   * the main thread is idle and the minimum gap since the previous slideup has elapsed. Once the
+   * maximum number of slideups was displayed this session, the request is kept until the next
+   * session starts, and this method returns false.
    *
-   * @return A boolean value indicating whether a slideup was displayed.
+   * When called from a background thread, the request is handed over to the main thread and this
+   * method returns false.
+   *
+   * @return A boolean value indicating whether a slideup was scheduled to be displayed.
    */
   public boolean requestDisplaySlideup() {
-    if (!mDisplayingSlideup.compareAndSet(false, true)) {
-      Log.d(TAG, "A slideup is currently being displayed. Ignoring request to display slideup.");
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      mMainThreadHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          requestDisplaySlideup();
+        }
+      });
+      return false;
+    }
+    drainIncomingSlideups();
+    if (getFreeSlots().isEmpty()) {
+      AppboyLogger.d(TAG, "A slideup is currently being displayed. Ignoring request to display slideup.");
+      return false;
+    }
+    if (mActivity == null) {
+      AppboyLogger.e(TAG, "Cannot display the slideup because the Activity was null.");
+      return false;
+    }
+    if (mSlideupQueue.isEmpty()) {
+      AppboyLogger.d(TAG, "The slideup queue is empty. No slideup will be displayed.");
       return false;
     }
-    if (mSlideupStack.isEmpty()) {
-      Log.d(TAG, "The slideup stack is empty. No slideup will be displayed.");
-      mDisplayingSlideup.set(false);
+    if (mDisplayScheduler.isSessionCapReached()) {
+      AppboyLogger.d(TAG, "The maximum number of slideups was displayed this session. The slideup will be displayed " +
+          "once the next session starts.");
+      mDisplayScheduler.scheduleDisplay();
       return false;
     }
+    mDisplayScheduler.scheduleDisplay();
+    return true;
+  }
+
+  /**
+   * Displays the next queued slideup. Called by the display scheduler once a slideup may be
+   * displayed.
+   */
+  private void displayNextSlideup() {
+    drainIncomingSlideups();
+    Set<SlideFrom> freeSlots = getFreeSlots();
+    if (freeSlots.isEmpty() || mActivity == null) {
+      return;
+    }
+    SlideupQueue.QueuedSlideup queuedSlideup = mMultiSlotDisplayEnabled ? mSlideupQueue.poll(freeSlots)
+        : mSlideupQueue.poll();
+    if (queuedSlideup == null) {
+      return;
+    }
+    onPendingSlideupsChanged();
 
-    final Slideup slideup = mSlideupStack.pop();
+    Slideup slideup = queuedSlideup.mSlideup;
     SlideupOperation slideupOperation = getSlideupManagerListener().beforeSlideupDisplayed(slideup);
 
     switch (slideupOperation) {
       case DISPLAY_NOW:
-        Log.d(TAG, "The ISlideupManagerListener method beforeSlideupDisplayed returned DISPLAY_NOW. The " +
+        AppboyLogger.d(TAG, "The ISlideupManagerListener method beforeSlideupDisplayed returned DISPLAY_NOW. The " +
             "slideup will be displayed.");
         break;
       case DISPLAY_LATER:
-        Log.d(TAG, "The ISlideupManagerListener method beforeSlideupDisplayed returned DISPLAY_LATER. The " +
-            "slideup will be pushed back onto the stack.");
-        mSlideupStack.push(slideup);
-        mDisplayingSlideup.set(false);
-        return false;
+        AppboyLogger.d(TAG, "The ISlideupManagerListener method beforeSlideupDisplayed returned DISPLAY_LATER. The " +
+            "slideup will be put back into the queue.");
+        queuedSlideup.mMetricsRecorder.mDisplayLaterCount++;
+        mSlideupQueue.requeue(queuedSlideup);
+        return;
       case DISCARD:
-        Log.d(TAG, "The ISlideupManagerListener method beforeSlideupDisplayed returned DISCARD. The " +
-            "slideup will not be displayed and will not be put back on the stack.");
-        mDisplayingSlideup.set(false);
-        return false;
+        AppboyLogger.d(TAG, "The ISlideupManagerListener method beforeSlideupDisplayed returned DISCARD. The " +
+            "slideup will not be displayed and will not be put back into the queue.");
+        recordSlideupMetrics(queuedSlideup.mMetricsRecorder, SlideupOutcome.DISCARDED);
+        return;
       default:
-        Log.e(TAG, "The ISlideupManagerListener method beforeSlideupDisplayed returned null instead of a " +
+        AppboyLogger.e(TAG, "The ISlideupManagerListener method beforeSlideupDisplayed returned null instead of a " +
             "SlideupOperation. Ignoring the slideup. Please check the ISlideupStackBehaviour " +
             "implementation.");
-        mDisplayingSlideup.set(false);
-        return false;
+        recordSlideupMetrics(queuedSlideup.mMetricsRecorder, SlideupOutcome.DISCARDED);
+        return;
     }
 
-    Activity activity = mActivity;
-    if (activity != null) {
-      activity.runOnUiThread(new Runnable() {
-        @Override
-        public void run() {
-          displaySlideup(slideup);
+    if (displaySlideup(slideup, queuedSlideup.mMetricsRecorder)) {
+      mDisplayScheduler.onSlideupDisplayed();
+      // Fill the other slot as well if a slideup is waiting for it.
+      if (mMultiSlotDisplayEnabled && !getFreeSlots().isEmpty() && !mSlideupQueue.isEmpty()) {
+        mDisplayScheduler.scheduleDisplay();
+      }
+    }
+  }
+
+  /**
+   * Hides the slideups that are currently being displayed, if any. This method can be called from
+   * any thread.
+   *
+   * @param animate Whether the slideup should animate out of view.
+   */
+  public void hideCurrentSlideup(final boolean animate) {
+    runOnMainThread(new Runnable() {
+      @Override
+      public void run() {
+        // Closing a slideup removes it from the displayed slideups, so we iterate over a copy.
+        for (SlideupViewWrapper slideupWrapperView : new ArrayList<SlideupViewWrapper>(mSlideupViewWrappers.values())) {
+          Slideup slideup = slideupWrapperView.getSlideup();
+          if (slideup != null) {
+            slideup.setAnimateOut(animate);
+          }
+          slideupWrapperView.close();
         }
-      });
-      return true;
-    } else {
-      Log.e(TAG, "Cannot display the slideup because the Activity was null.");
-      mDisplayingSlideup.set(false);
-      return false;
+      }
+    });
+  }
+
+  /**
+   * Moves the slideups that were added since the last dispatch into the slideup queue and tries to
+   * display the next one. Runs on the main thread.
+   */
+  private void dispatchIncomingSlideups() {
+    if (!drainIncomingSlideups()) {
+      return;
+    }
+    if (mActivity == null) {
+      AppboyLogger.d(TAG, "No Activity is registered. The slideups will be displayed once one is.");
+      mDisplayRequestPending = true;
+      return;
     }
+    requestDisplaySlideup();
   }
 
-  public void hideCurrentSlideup(boolean animate) {
-    SlideupViewWrapper slideupWrapperView = mSlideupViewWrapper;
-    if (slideupWrapperView != null) {
-      Slideup slideup = slideupWrapperView.getSlideup();
-      if (slideup != null) {
-        slideup.setAnimateOut(animate);
+  /**
+   * @return Whether any slideups were moved into the slideup queue.
+   */
+  private boolean drainIncomingSlideups() {
+    boolean drained = false;
+    ISlideupQueuePolicy slideupQueuePolicy = getSlideupQueuePolicy();
+    SlideupMetricsRecorder metricsRecorder;
+    while ((metricsRecorder = mIncomingSlideups.poll()) != null) {
+      String copyKey = mDisplayedRestoredSlideupKeys.isEmpty() ? null
+          : SlideupQueue.getCopyKey(metricsRecorder.mSlideup);
+      if (copyKey != null && mDisplayedRestoredSlideupKeys.remove(copyKey)) {
+        AppboyLogger.d(TAG, "Dropping slideup %s, whose restored copy was already displayed.",
+            metricsRecorder.mSlideup);
+        recordSlideupMetrics(metricsRecorder, SlideupOutcome.DUPLICATE);
+        continue;
       }
-      slideupWrapperView.close();
+      metricsRecorder.mQueueDepthAtEnqueue = mSlideupQueue.size();
+      mSlideupQueue.add(metricsRecorder, slideupQueuePolicy);
+      drained = true;
+    }
+    if (drained) {
+      onPendingSlideupsChanged();
     }
+    return drained;
+  }
+
+  /**
+   * Reads back the pending slideups saved by an earlier process, the first time the manager is
+   * registered with persistence enabled.
+   */
+  private void restorePendingSlideups(Context context) {
+    if (!mPendingSlideupPersistenceEnabled || mSlideupQueueStore != null) {
+      return;
+    }
+    mSlideupQueueStore = new SlideupQueueStore(context.getApplicationContext());
+    mRestoringPendingSlideups = true;
+    mSlideupQueueStore.read(new SlideupQueueStore.IRestoreListener() {
+      @Override
+      public void onRestored(List<SlideupQueue.QueuedSlideup> queuedSlideups) {
+        mRestoringPendingSlideups = false;
+        mSlideupQueue.restore(queuedSlideups);
+        // Save the merged queue, which may also hold slideups that arrived while reading.
+        onPendingSlideupsChanged();
+        if (queuedSlideups.isEmpty()) {
+          return;
+        }
+        if (mActivity != null) {
+          requestDisplaySlideup();
+        } else {
+          mDisplayRequestPending = true;
+        }
+      }
+    });
+  }
+
+  /**
+   * Schedules a save of the pending slideups, if persistence is enabled. Saves are coalesced, and
+   * are held back until the saved slideups have been read, so that they aren't overwritten.
+   */
+  private void onPendingSlideupsChanged() {
+    if (!mPendingSlideupPersistenceEnabled || mSlideupQueueStore == null || mRestoringPendingSlideups
+        || mSavePendingSlideupsScheduled) {
+      return;
+    }
+    mSavePendingSlideupsScheduled = true;
+    mMainThreadHandler.postDelayed(mSavePendingSlideupsRunnable, PENDING_SLIDEUPS_SAVE_DELAY_MS);
+  }
+
+  private void savePendingSlideups() {
+    List<SlideupQueue.QueuedSlideup> pendingSlideups = mSlideupQueue.snapshot();
+    // Carried over slideups were already on screen, so they are saved to be displayed first.
+    ISlideupQueuePolicy slideupQueuePolicy = getSlideupQueuePolicy();
+    long now = System.currentTimeMillis();
+    for (CarryoverSlideup carryoverSlideup : mCarryoverSlideups) {
+      long timeToLiveMillis = slideupQueuePolicy.getTimeToLiveMillis(carryoverSlideup.mSlideup);
+      long expiresAt = timeToLiveMillis > 0 ? now + timeToLiveMillis : Long.MAX_VALUE;
+      pendingSlideups.add(new SlideupQueue.QueuedSlideup(carryoverSlideup.mSlideup, Integer.MAX_VALUE, 0l, expiresAt,
+          null));
+    }
+    mSlideupQueueStore.write(pendingSlideups);
+  }
+
+  private void recordSlideupMetrics(SlideupMetricsRecorder metricsRecorder, SlideupOutcome outcome) {
+    if (metricsRecorder == null) {
+      return;
+    }
+    SlideupMetrics slideupMetrics = metricsRecorder.finish(outcome);
+    AppboyLogger.v(TAG, "Recorded slideup metrics: %s", slideupMetrics);
+    mRecentSlideupMetrics.add(slideupMetrics);
+    ISlideupMetricsListener slideupMetricsListener = mSlideupMetricsListener;
+    if (slideupMetricsListener != null) {
+      slideupMetricsListener.onSlideupMetricsRecorded(slideupMetrics);
+    }
+  }
+
+  private void runOnMainThread(Runnable runnable) {
+    if (Looper.myLooper() == Looper.getMainLooper()) {
+      runnable.run();
+    } else {
+      mMainThreadHandler.post(runnable);
+    }
+  }
+
+  /**
+   * @return The slots a slideup can be displayed in right now.
+   */
+  private Set<SlideFrom> getFreeSlots() {
+    if (mMultiSlotDisplayEnabled) {
+      Set<SlideFrom> freeSlots = EnumSet.allOf(SlideFrom.class);
+      freeSlots.removeAll(mSlideupViewWrappers.keySet());
+      return freeSlots;
+    }
+    return mSlideupViewWrappers.isEmpty() ? EnumSet.allOf(SlideFrom.class) : EnumSet.noneOf(SlideFrom.class);
+  }
+
+  /**
+   * @return The slot the slideup is displayed in. Slideups that don't slide in from the top are
+   * displayed at the bottom.
+   */
+  private static SlideFrom getSlot(Slideup slideup) {
+    return slideup.getSlideFrom() == SlideFrom.TOP ? SlideFrom.TOP : SlideFrom.BOTTOM;
   }
 
   private ISlideupManagerListener getSlideupManagerListener() {
     return mCustomSlideupManagerListener != null ? mCustomSlideupManagerListener : mDefaultSlideupManagerListener;
   }
 
+  /**
+   * @return Whether the displayed slideup was restored from disk. Restored slideups can't log their impression or
+   *         clicks, since they are no longer connected to Appboy.
+   */
+  private boolean isRestored(Slideup slideup) {
+    SlideupMetricsRecorder metricsRecorder = mDisplayedSlideupMetrics.get(slideup);
+    return metricsRecorder != null && metricsRecorder.mRestored;
+  }
+
+  private ISlideupQueuePolicy getSlideupQueuePolicy() {
+    return mCustomSlideupQueuePolicy != null ? mCustomSlideupQueuePolicy : mDefaultSlideupQueuePolicy;
+  }
+
+  private ISlideupAnimationProvider getSlideupAnimationProvider() {
+    return mCustomSlideupAnimationProvider != null ? mCustomSlideupAnimationProvider
+        : SlideupViewWrapper.DEFAULT_ANIMATION_PROVIDER;
+  }
+
   private ISlideupViewFactory getSlideupViewFactory() {
     return mCustomSlideupViewFactory != null ? mCustomSlideupViewFactory : mDefaultSlideupViewFactory;
   }
 
-  private boolean displaySlideup(Slideup slideup) {
-    final View slideupView = getSlideupViewFactory().createSlideupView(mActivity, slideup);
+  /**
+   * Puts a carried over slideup back on screen. Its view is reattached if it was created for the
+   * current Activity, and is otherwise rebuilt through the ISlideupViewFactory. Either way the
+   * slideup isn't animated in again, and is auto dismissed after the time that was left.
+   */
+  private void redisplayCarryoverSlideup(CarryoverSlideup carryoverSlideup) {
+    Slideup slideup = carryoverSlideup.mSlideup;
+    SlideupViewWrapper slideupViewWrapper = carryoverSlideup.mSlideupViewWrapper;
+    SlideupMetricsRecorder metricsRecorder = mDisplayedSlideupMetrics.get(slideup);
+    if (!getFreeSlots().contains(getSlot(slideup))) {
+      if (slideupViewWrapper != null) {
+        mSlideupViewPool.release(slideupViewWrapper.getSlideupView());
+      }
+      mDisplayedSlideupMetrics.remove(slideup);
+      recordSlideupMetrics(metricsRecorder, SlideupOutcome.EVICTED);
+      return;
+    }
+    if (slideupViewWrapper != null && slideupViewWrapper.getSlideupView().getContext() == mActivity) {
+      mSlideupViewWrappers.put(getSlot(slideup), slideupViewWrapper);
+      slideupViewWrapper.reattach(getContentView());
+      return;
+    }
+
+    if (slideupViewWrapper != null) {
+      mSlideupViewPool.release(slideupViewWrapper.getSlideupView());
+    }
+    slideup.setAnimateIn(false);
+    displaySlideup(slideup, metricsRecorder, carryoverSlideup.mRemainingDismissMillis);
+  }
+
+  private boolean displaySlideup(Slideup slideup, SlideupMetricsRecorder metricsRecorder) {
+    return displaySlideup(slideup, metricsRecorder, -1l);
+  }
+
+  /**
+   * @param metricsRecorder The recorder of the slideup's metrics, which already holds the display
+   *                        timing if the slideup was carried over. May be null.
+   * @param remainingDismissMillis The delay before the slideup is auto dismissed, or -1 for its full
+   *                               duration.
+   */
+  private boolean displaySlideup(Slideup slideup, SlideupMetricsRecorder metricsRecorder, long remainingDismissMillis) {
+    long inflateStartNanos = System.nanoTime();
+    ISlideupViewFactory slideupViewFactory = getSlideupViewFactory();
+    final View slideupView;
+    if (slideupViewFactory instanceof IRecyclableSlideupViewFactory) {
+      slideupView = mSlideupViewPool.acquire(mActivity, (IRecyclableSlideupViewFactory) slideupViewFactory, slideup);
+    } else {
+      slideupView = slideupViewFactory.createSlideupView(mActivity, slideup);
+    }
 
     if (slideupView == null) {
-      Log.e(TAG, "The slideup view returned from the ISlideupViewFactory was null. The slideup will " +
-          "not be displayed and will not be put back on the stack.");
-      mDisplayingSlideup.set(false);
+      AppboyLogger.e(TAG, "The slideup view returned from the ISlideupViewFactory was null. The slideup will " +
+          "not be displayed and will not be put back into the queue.");
+      mDisplayedSlideupMetrics.remove(slideup);
+      recordSlideupMetrics(metricsRecorder, SlideupOutcome.NULL_VIEW);
       return false;
     }
 
     if (slideupView.getParent() != null) {
-      Log.e(TAG, "The slideup view returned from the ISlideupViewFactory already has a parent. This " +
+      AppboyLogger.e(TAG, "The slideup view returned from the ISlideupViewFactory already has a parent. This " +
           "is a sign that the view is being reused. The ISlideupViewFactory method createSlideupView" +
           "must return a new view without a parent. The slideup will not be displayed and will not " +
-          "be put back on the stack.");
-      mDisplayingSlideup.set(false);
+          "be put back into the queue.");
+      mDisplayedSlideupMetrics.remove(slideup);
+      recordSlideupMetrics(metricsRecorder, SlideupOutcome.NULL_VIEW);
       return false;
     }
 
-    mSlideupViewWrapper = new SlideupViewWrapper(slideupView, slideup, mSlideupViewLifecycleListener);
-    FrameLayout root = (FrameLayout) mActivity.getWindow().getDecorView().findViewById(android.R.id.content);
-    mSlideupViewWrapper.open(root);
+    if (metricsRecorder != null) {
+      if (metricsRecorder.mDisplayedAt < 0) {
+        metricsRecorder.mInflateMicros = (System.nanoTime() - inflateStartNanos) / 1000l;
+        metricsRecorder.mDisplayedAt = SystemClock.elapsedRealtime();
+      }
+      mDisplayedSlideupMetrics.put(slideup, metricsRecorder);
+    }
+
+    SlideupViewWrapper slideupViewWrapper = new SlideupViewWrapper(slideupView, slideup,
+        mSlideupViewLifecycleListener, getSlideupAnimationProvider());
+    slideupViewWrapper.setRemainingDismissMillis(remainingDismissMillis);
+    mSlideupViewWrappers.put(getSlot(slideup), slideupViewWrapper);
+    slideupViewWrapper.open(getContentView());
     return true;
   }
 
+  private FrameLayout getContentView() {
+    return (FrameLayout) mActivity.getWindow().getDecorView().findViewById(android.R.id.content);
+  }
+
   private IEventSubscriber<SlideupEvent> createSlideupEventSubscriber() {
     return new IEventSubscriber<SlideupEvent>() {
       @Override
@@ -311,48 +909,95 @@ public final class AppboySlideupManager {
     }
   };
 
-  private ISlideupViewFactory mDefaultSlideupViewFactory = new ISlideupViewFactory() {
+  private ISlideupQueuePolicy mDefaultSlideupQueuePolicy = new ISlideupQueuePolicy() {
+    @Override
+    public int getPriority(Slideup slideup) {
+      return 0;
+    }
+
+    @Override
+    public long getTimeToLiveMillis(Slideup slideup) {
+      return DEFAULT_SLIDEUP_TIME_TO_LIVE_MS;
+    }
+  };
+
+  private ISlideupViewFactory mDefaultSlideupViewFactory = new IRecyclableSlideupViewFactory() {
     @Override
     public View createSlideupView(Activity activity, Slideup slideup) {
-      View slideupView = activity.getLayoutInflater().inflate(R.layout.com_appboy_slideup_view, null);
+      View slideupView = createUnboundSlideupView(activity);
+      bindSlideupView(slideupView, slideup);
+      return slideupView;
+    }
+
+    @Override
+    public View createUnboundSlideupView(Activity activity) {
+      return activity.getLayoutInflater().inflate(R.layout.com_appboy_slideup_view, null);
+    }
+
+    @Override
+    public void bindSlideupView(View slideupView, Slideup slideup) {
       TextView message = (TextView) slideupView.findViewById(R.id.com_appboy_slideup_message);
       message.setText(slideup.getMessage());
-      if (slideup.getClickAction() == ClickAction.NONE) {
-        ImageView chevron = (ImageView) slideupView.findViewById(R.id.com_appboy_slideup_chevron);
-        chevron.setVisibility(View.GONE);
-      }
-      return slideupView;
+      ImageView chevron = (ImageView) slideupView.findViewById(R.id.com_appboy_slideup_chevron);
+      chevron.setVisibility(slideup.getClickAction() == ClickAction.NONE ? View.GONE : View.VISIBLE);
     }
   };
 
   private final ISlideupViewLifecycleListener mSlideupViewLifecycleListener = new ISlideupViewLifecycleListener() {
     @Override
     public void beforeOpened(View slideupView, Slideup slideup) {
-      Log.d(TAG, "SlideupViewWrapper.ISlideupViewLifecycleListener.beforeOpened called.");
-      slideup.logImpression();
+      AppboyLogger.d(TAG, "SlideupViewWrapper.ISlideupViewLifecycleListener.beforeOpened called.");
+      if (isRestored(slideup)) {
+        AppboyLogger.d(TAG, "Not logging the impression of a slideup restored from disk.");
+        String copyKey = SlideupQueue.getCopyKey(slideup);
+        if (copyKey != null) {
+          mDisplayedRestoredSlideupKeys.add(copyKey);
+        }
+      } else {
+        slideup.logImpression();
+      }
     }
 
     @Override
     public void afterOpened(View slideupView, Slideup slideup) {
-      Log.d(TAG, "SlideupViewWrapper.ISlideupViewLifecycleListener.afterOpened called.");
+      AppboyLogger.d(TAG, "SlideupViewWrapper.ISlideupViewLifecycleListener.afterOpened called.");
+      SlideupMetricsRecorder metricsRecorder = mDisplayedSlideupMetrics.get(slideup);
+      // Carried over slideups keep the timing of their first opening.
+      if (metricsRecorder != null && metricsRecorder.mAnimateInMillis < 0) {
+        metricsRecorder.mAnimateInMillis = SystemClock.elapsedRealtime() - metricsRecorder.mDisplayedAt;
+        SlideupViewWrapper slideupViewWrapper = mSlideupViewWrappers.get(getSlot(slideup));
+        if (slideupViewWrapper != null && slideup.getAnimateIn()) {
+          metricsRecorder.mOpeningAnimationFrameStats = slideupViewWrapper.getLastAnimationFrameStats();
+        }
+      }
     }
 
     @Override
     public void beforeClosed(View slideupView, Slideup slideup) {
-      Log.d(TAG, "SlideupViewWrapper.ISlideupViewLifecycleListener.beforeClosed called.");
+      AppboyLogger.d(TAG, "SlideupViewWrapper.ISlideupViewLifecycleListener.beforeClosed called.");
     }
 
     @Override
     public void afterClosed(Slideup slideup) {
-      mSlideupViewWrapper = null;
-      Log.d(TAG, "SlideupViewWrapper.ISlideupViewLifecycleListener.afterClosed called.");
-      mDisplayingSlideup.set(false);
+      SlideupViewWrapper slideupViewWrapper = mSlideupViewWrappers.get(getSlot(slideup));
+      // The wrapper may already have been replaced if the slideup was carried over to another Activity.
+      if (slideupViewWrapper != null && slideupViewWrapper.getSlideup() == slideup) {
+        mSlideupViewPool.release(slideupViewWrapper.getSlideupView());
+        mSlideupViewWrappers.remove(getSlot(slideup));
+        mDisplayScheduler.onSlideupClosed();
+        recordSlideupMetrics(mDisplayedSlideupMetrics.remove(slideup), SlideupOutcome.DISPLAYED);
+      }
+      AppboyLogger.d(TAG, "SlideupViewWrapper.ISlideupViewLifecycleListener.afterClosed called.");
     }
 
     @Override
     public void onClicked(SlideupCloser slideupCloser, View slideupView, Slideup slideup) {
-      Log.d(TAG, "SlideupViewWrapper.ISlideupViewLifecycleListener.onClicked called.");
-      slideup.logClick();
+      AppboyLogger.d(TAG, "SlideupViewWrapper.ISlideupViewLifecycleListener.onClicked called.");
+      if (isRestored(slideup)) {
+        AppboyLogger.d(TAG, "Not logging the click of a slideup restored from disk.");
+      } else {
+        slideup.logClick();
+      }
 
       // Perform the slideup clicked listener action from the host application first. This give
       // the app the option to override the values that are sent from the server and handle the
@@ -400,4 +1045,22 @@ public final class AppboySlideupManager {
     IAppboyNavigator customAppboyNavigator = Appboy.getInstance(mActivity).getAppboyNavigator();
     return customAppboyNavigator != null ? customAppboyNavigator : mDefaultAppboyNavigator;
   }
+
+  /**
+   * A slideup that was on screen when the Activity was unregistered, along with its detached view
+   * if it may be put back as is. The time left until it is auto dismissed is kept separately, since
+   * the view is dropped when the Activity is finishing.
+   */
+  private static class CarryoverSlideup {
+    final Slideup mSlideup;
+    SlideupViewWrapper mSlideupViewWrapper;
+    // The time that was left until the slideup would have been auto dismissed, or -1.
+    final long mRemainingDismissMillis;
+
+    CarryoverSlideup(Slideup slideup, SlideupViewWrapper slideupViewWrapper, long remainingDismissMillis) {
+      mSlideup = slideup;
+      mSlideupViewWrapper = slideupViewWrapper;
+      mRemainingDismissMillis = remainingDismissMillis;
+    }
+  }
 }
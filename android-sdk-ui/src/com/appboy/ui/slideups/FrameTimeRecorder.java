@@ -0,0 +1,83 @@
+package com.appboy.ui.slideups;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.WindowManager;
+
+/**
+ * Records the time between the frames in which a view is drawn, using a pre-draw listener, which works on every API
+ * level unlike Choreographer frame callbacks.
+ *
+ * This class is not thread safe and must only be used from the main thread.
+ */
+class FrameTimeRecorder implements ViewTreeObserver.OnPreDrawListener {
+  private static final float DEFAULT_REFRESH_RATE = 60f;
+
+  private final long mFrameIntervalNanos;
+  private View mView;
+  private long mStartNanos;
+  private long mLastFrameNanos;
+  private long mMaxFrameIntervalNanos;
+  private int mFrameCount;
+  private int mDroppedFrameCount;
+
+  FrameTimeRecorder(Context context) {
+    WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+    float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+    if (refreshRate < 1f) {
+      refreshRate = DEFAULT_REFRESH_RATE;
+    }
+    mFrameIntervalNanos = (long) (1000000000l / refreshRate);
+  }
+
+  void start(View view) {
+    cancel();
+    mStartNanos = System.nanoTime();
+    mLastFrameNanos = mStartNanos;
+    mMaxFrameIntervalNanos = 0l;
+    mFrameCount = 0;
+    mDroppedFrameCount = 0;
+    mView = view;
+    view.getViewTreeObserver().addOnPreDrawListener(this);
+  }
+
+  /**
+   * Stops recording.
+   *
+   * @return The frame timing since recording started.
+   */
+  SlideupAnimationFrameStats stop(boolean opening) {
+    cancel();
+    return new SlideupAnimationFrameStats(opening, (System.nanoTime() - mStartNanos) / 1000000l, mFrameCount,
+        mDroppedFrameCount, mMaxFrameIntervalNanos / 1000000l);
+  }
+
+  @Override
+  public boolean onPreDraw() {
+    long now = System.nanoTime();
+    long frameIntervalNanos = now - mLastFrameNanos;
+    mLastFrameNanos = now;
+    mFrameCount++;
+    mMaxFrameIntervalNanos = Math.max(mMaxFrameIntervalNanos, frameIntervalNanos);
+    // Every whole refresh interval beyond the first that passed without a frame is a dropped frame.
+    long missedFrames = (frameIntervalNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+    if (missedFrames > 0) {
+      mDroppedFrameCount += missedFrames;
+    }
+    return true;
+  }
+
+  /**
+   * Stops recording, discarding the frame timing.
+   */
+  void cancel() {
+    if (mView != null) {
+      ViewTreeObserver viewTreeObserver = mView.getViewTreeObserver();
+      if (viewTreeObserver.isAlive()) {
+        viewTreeObserver.removeOnPreDrawListener(this);
+      }
+      mView = null;
+    }
+  }
+}
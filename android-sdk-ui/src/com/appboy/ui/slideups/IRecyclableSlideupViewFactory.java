@@ -0,0 +1,33 @@
+package com.appboy.ui.slideups;
+
+import android.app.Activity;
+import android.view.View;
+
+import com.appboy.models.Slideup;
+
+/**
+ * An ISlideupViewFactory whose views can be reused for several slideups. When the slideup view
+ * factory implements this interface, the AppboySlideupManager keeps a small pool of slideup views
+ * for the current Activity. Views are created ahead of time, when the slideup manager is registered,
+ * and are bound to each slideup as it is displayed, so that displaying a slideup doesn't require
+ * inflating a layout.
+ *
+ * Factories that only implement ISlideupViewFactory keep creating a new view for every slideup.
+ */
+public interface IRecyclableSlideupViewFactory extends ISlideupViewFactory {
+  /**
+   * This method should either inflate or programmatically create a new View that is not yet bound to
+   * any slideup. The View will only be used in the given Activity.
+   */
+  View createUnboundSlideupView(Activity activity);
+
+  /**
+   * This method should display the given slideup in a View that was returned by
+   * createUnboundSlideupView. The View may previously have displayed another slideup, so every part
+   * of the View that depends on the slideup must be set.
+   *
+   * Note: Do not add a click/touch listeners directly to the view. They will be ignored. Instead,
+   * use an ISlideupManagerListener to perform custom logic.
+   */
+  void bindSlideupView(View slideupView, Slideup slideup);
+}
@@ -0,0 +1,27 @@
+package com.appboy.ui.slideups;
+
+import android.view.animation.Interpolator;
+
+import com.appboy.models.Slideup;
+
+public interface ISlideupAnimationProvider {
+  /**
+   * Returns how long, in milliseconds, the given slideup takes to slide into view.
+   */
+  long getOpeningDurationMillis(Slideup slideup);
+
+  /**
+   * Returns how long, in milliseconds, the given slideup takes to slide out of view.
+   */
+  long getClosingDurationMillis(Slideup slideup);
+
+  /**
+   * Returns the interpolator used when the given slideup slides into view.
+   */
+  Interpolator getOpeningInterpolator(Slideup slideup);
+
+  /**
+   * Returns the interpolator used when the given slideup slides out of view.
+   */
+  Interpolator getClosingInterpolator(Slideup slideup);
+}
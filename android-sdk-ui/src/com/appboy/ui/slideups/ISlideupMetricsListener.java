@@ -0,0 +1,12 @@
+package com.appboy.ui.slideups;
+
+public interface ISlideupMetricsListener {
+  /**
+   * Called on the main thread once a slideup's lifecycle in the AppboySlideupManager is over, either because it was
+   * displayed and closed, or because it was dropped without being displayed. Implementations should return quickly,
+   * for example by handing the metrics over to a background thread.
+   *
+   * @param slideupMetrics The metrics of the slideup.
+   */
+  void onSlideupMetricsRecorded(SlideupMetrics slideupMetrics);
+}
@@ -0,0 +1,17 @@
+package com.appboy.ui.slideups;
+
+import com.appboy.models.Slideup;
+
+public interface ISlideupQueuePolicy {
+  /**
+   * Returns the priority of a slideup waiting to be displayed. Slideups with a higher priority are displayed first.
+   * Slideups with the same priority are displayed newest first.
+   */
+  int getPriority(Slideup slideup);
+
+  /**
+   * Returns how long, in milliseconds, a slideup may wait to be displayed before it expires and is dropped from the
+   * queue. A value of 0 or less means that the slideup never expires.
+   */
+  long getTimeToLiveMillis(Slideup slideup);
+}
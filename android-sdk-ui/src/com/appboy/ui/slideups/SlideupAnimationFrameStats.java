@@ -0,0 +1,56 @@
+package com.appboy.ui.slideups;
+
+/**
+ * Frame timing of a single slideup opening or closing animation. A frame is counted as dropped for every display
+ * refresh that passed without the slideup being redrawn.
+ */
+public final class SlideupAnimationFrameStats {
+  private final boolean mOpening;
+  private final long mDurationMillis;
+  private final int mFrameCount;
+  private final int mDroppedFrameCount;
+  private final long mMaxFrameIntervalMillis;
+
+  SlideupAnimationFrameStats(boolean opening, long durationMillis, int frameCount, int droppedFrameCount,
+                             long maxFrameIntervalMillis) {
+    mOpening = opening;
+    mDurationMillis = durationMillis;
+    mFrameCount = frameCount;
+    mDroppedFrameCount = droppedFrameCount;
+    mMaxFrameIntervalMillis = maxFrameIntervalMillis;
+  }
+
+  /**
+   * @return true for an opening animation, false for a closing one.
+   */
+  public boolean isOpening() {
+    return mOpening;
+  }
+
+  public long getDurationMillis() {
+    return mDurationMillis;
+  }
+
+  public int getFrameCount() {
+    return mFrameCount;
+  }
+
+  public int getDroppedFrameCount() {
+    return mDroppedFrameCount;
+  }
+
+  public long getMaxFrameIntervalMillis() {
+    return mMaxFrameIntervalMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "SlideupAnimationFrameStats{"
+        + "opening=" + mOpening
+        + ", durationMillis=" + mDurationMillis
+        + ", frameCount=" + mFrameCount
+        + ", droppedFrameCount=" + mDroppedFrameCount
+        + ", maxFrameIntervalMillis=" + mMaxFrameIntervalMillis
+        + "}";
+  }
+}
@@ -0,0 +1,236 @@
+package com.appboy.ui.slideups;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.appboy.ui.support.AppboyLogger;
+
+/**
+ * Decides when the AppboySlideupManager may display the next slideup.
+ *
+ * A slideup is only displayed once the registered Activity has drawn its first frame and the main thread has become
+ * idle, so that creating and laying out the slideup never competes with the Activity's startup rendering or with
+ * other work on the main thread. On top of that, consecutive slideups are separated by a minimum gap, measured from
+ * the time the previous slideup closed, and no more than a maximum number of slideups are displayed per session. A
+ * session ends when no Activity has been registered for the session timeout, or when it is reset explicitly. A display
+ * requested while the session's maximum is reached waits for the next session.
+ *
+ * This class is not thread safe and must only be used from the main thread.
+ */
+class SlideupDisplayScheduler {
+  private static final String TAG = AppboyLogger.getAppboyTag(SlideupDisplayScheduler.class);
+  // Activities that are resumed without being redrawn never report a first frame, so we stop waiting after this long.
+  private static final long FIRST_FRAME_TIMEOUT_MS = 1000l;
+
+  private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+  private final Runnable mDisplayRunnable;
+  private final Runnable mFirstFrameDrawnRunnable = new Runnable() {
+    @Override
+    public void run() {
+      onFirstFrameDrawn();
+    }
+  };
+  private final Runnable mRetryRunnable = new Runnable() {
+    @Override
+    public void run() {
+      trySchedule();
+    }
+  };
+  private final ViewTreeObserver.OnPreDrawListener mFirstFrameListener = new ViewTreeObserver.OnPreDrawListener() {
+    @Override
+    public boolean onPreDraw() {
+      stopWatchingFirstFrame();
+      // Messages posted before a draw run after it, once the frame has been drawn.
+      mMainThreadHandler.post(mFirstFrameDrawnRunnable);
+      return true;
+    }
+  };
+  private final MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+    @Override
+    public boolean queueIdle() {
+      mIdleHandlerAdded = false;
+      if (mDisplayScheduled && canDisplayNow()) {
+        mDisplayScheduled = false;
+        mDisplayRunnable.run();
+      }
+      return false;
+    }
+  };
+
+  private long mMinDisplayGapMillis;
+  private int mMaxDisplaysPerSession;
+  private long mSessionTimeoutMillis;
+  private int mSessionDisplayCount;
+  private long mLastSlideupClosedAt = -1l;
+  private long mLastActivityUnregisteredAt = -1l;
+  private View mDecorView;
+  private Runnable mAfterFirstFrameRunnable;
+  private boolean mFirstFrameDrawn;
+  private boolean mDisplayScheduled;
+  private boolean mIdleHandlerAdded;
+
+  /**
+   * @param displayRunnable Displays the next slideup. Run on the main thread whenever a slideup may be displayed.
+   */
+  SlideupDisplayScheduler(Runnable displayRunnable, long minDisplayGapMillis, int maxDisplaysPerSession,
+                          long sessionTimeoutMillis) {
+    mDisplayRunnable = displayRunnable;
+    mMinDisplayGapMillis = minDisplayGapMillis;
+    mMaxDisplaysPerSession = maxDisplaysPerSession;
+    mSessionTimeoutMillis = sessionTimeoutMillis;
+  }
+
+  void setMinDisplayGapMillis(long minDisplayGapMillis) {
+    mMinDisplayGapMillis = Math.max(0l, minDisplayGapMillis);
+    trySchedule();
+  }
+
+  /**
+   * @param maxDisplaysPerSession The maximum number of slideups displayed per session, or 0 for no maximum.
+   */
+  void setMaxDisplaysPerSession(int maxDisplaysPerSession) {
+    mMaxDisplaysPerSession = Math.max(0, maxDisplaysPerSession);
+    trySchedule();
+  }
+
+  void setSessionTimeoutMillis(long sessionTimeoutMillis) {
+    mSessionTimeoutMillis = Math.max(0l, sessionTimeoutMillis);
+  }
+
+  void resetSession() {
+    mSessionDisplayCount = 0;
+    trySchedule();
+  }
+
+  boolean isSessionCapReached() {
+    return mMaxDisplaysPerSession > 0 && mSessionDisplayCount >= mMaxDisplaysPerSession;
+  }
+
+  void onActivityRegistered(Activity activity) {
+    long now = SystemClock.elapsedRealtime();
+    if (mLastActivityUnregisteredAt >= 0 && now - mLastActivityUnregisteredAt >= mSessionTimeoutMillis) {
+      AppboyLogger.d(TAG, "No Activity was registered for %d ms. Starting a new slideup session.",
+          now - mLastActivityUnregisteredAt);
+      mSessionDisplayCount = 0;
+    }
+    mFirstFrameDrawn = false;
+    stopWatchingFirstFrame();
+    mDecorView = activity.getWindow().getDecorView();
+    mDecorView.getViewTreeObserver().addOnPreDrawListener(mFirstFrameListener);
+    mMainThreadHandler.postDelayed(mFirstFrameDrawnRunnable, FIRST_FRAME_TIMEOUT_MS);
+  }
+
+  void onActivityUnregistered() {
+    mLastActivityUnregisteredAt = SystemClock.elapsedRealtime();
+    mFirstFrameDrawn = false;
+    mAfterFirstFrameRunnable = null;
+    stopWatchingFirstFrame();
+    mMainThreadHandler.removeCallbacks(mFirstFrameDrawnRunnable);
+    mMainThreadHandler.removeCallbacks(mRetryRunnable);
+    removeIdleHandler();
+    // A scheduled display stays scheduled and happens in the next registered Activity.
+  }
+
+  /**
+   * Requests that the next slideup be displayed as soon as the scheduling constraints allow.
+   */
+  void scheduleDisplay() {
+    mDisplayScheduled = true;
+    trySchedule();
+  }
+
+  /**
+   * Runs the given runnable once the current Activity has drawn its first frame, or immediately if it already has.
+   * Replaces any runnable that is still waiting.
+   */
+  void runAfterFirstFrame(Runnable runnable) {
+    if (mFirstFrameDrawn) {
+      runnable.run();
+    } else {
+      mAfterFirstFrameRunnable = runnable;
+    }
+  }
+
+  void onSlideupDisplayed() {
+    mSessionDisplayCount++;
+  }
+
+  void onSlideupClosed() {
+    mLastSlideupClosedAt = SystemClock.elapsedRealtime();
+  }
+
+  private void onFirstFrameDrawn() {
+    if (mFirstFrameDrawn) {
+      return;
+    }
+    stopWatchingFirstFrame();
+    mMainThreadHandler.removeCallbacks(mFirstFrameDrawnRunnable);
+    mFirstFrameDrawn = true;
+    Runnable afterFirstFrameRunnable = mAfterFirstFrameRunnable;
+    mAfterFirstFrameRunnable = null;
+    if (afterFirstFrameRunnable != null) {
+      afterFirstFrameRunnable.run();
+    }
+    trySchedule();
+  }
+
+  private void trySchedule() {
+    if (!mDisplayScheduled || !mFirstFrameDrawn) {
+      return;
+    }
+    if (isSessionCapReached()) {
+      // The display stays scheduled, and happens once a new session starts or the maximum is raised.
+      AppboyLogger.i(TAG, "%d slideups were already displayed this session. No more slideups will be displayed " +
+          "until the next session.", mSessionDisplayCount);
+      return;
+    }
+    long remainingGapMillis = getRemainingGapMillis();
+    if (remainingGapMillis > 0) {
+      mMainThreadHandler.removeCallbacks(mRetryRunnable);
+      mMainThreadHandler.postDelayed(mRetryRunnable, remainingGapMillis);
+      return;
+    }
+    if (!mIdleHandlerAdded) {
+      mIdleHandlerAdded = true;
+      Looper.myQueue().addIdleHandler(mIdleHandler);
+    }
+  }
+
+  private boolean canDisplayNow() {
+    if (!mFirstFrameDrawn || isSessionCapReached() || getRemainingGapMillis() > 0) {
+      // Something changed since the idle handler was added. Start over.
+      trySchedule();
+      return false;
+    }
+    return true;
+  }
+
+  private long getRemainingGapMillis() {
+    if (mLastSlideupClosedAt < 0) {
+      return 0l;
+    }
+    return mLastSlideupClosedAt + mMinDisplayGapMillis - SystemClock.elapsedRealtime();
+  }
+
+  private void stopWatchingFirstFrame() {
+    if (mDecorView != null) {
+      ViewTreeObserver viewTreeObserver = mDecorView.getViewTreeObserver();
+      if (viewTreeObserver.isAlive()) {
+        viewTreeObserver.removeOnPreDrawListener(mFirstFrameListener);
+      }
+      mDecorView = null;
+    }
+  }
+
+  private void removeIdleHandler() {
+    if (mIdleHandlerAdded) {
+      mIdleHandlerAdded = false;
+      Looper.myQueue().removeIdleHandler(mIdleHandler);
+    }
+  }
+}
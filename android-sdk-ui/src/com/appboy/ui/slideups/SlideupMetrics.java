@@ -0,0 +1,108 @@
+package com.appboy.ui.slideups;
+
+import com.appboy.models.Slideup;
+
+/**
+ * Timing of a single slideup, from the moment it was handed to the AppboySlideupManager until it was closed or
+ * dropped. Durations that don't apply to the slideup's outcome, such as the display latency of a slideup that was
+ * never displayed, are -1.
+ */
+public final class SlideupMetrics {
+  private final Slideup mSlideup;
+  private final SlideupOutcome mOutcome;
+  private final int mQueueDepthAtEnqueue;
+  private final int mDisplayLaterCount;
+  private final long mReceiveToDisplayMillis;
+  private final long mInflateMicros;
+  private final long mAnimateInMillis;
+  private final SlideupAnimationFrameStats mOpeningAnimationFrameStats;
+  private final long mDwellMillis;
+
+  SlideupMetrics(Slideup slideup, SlideupOutcome outcome, int queueDepthAtEnqueue, int displayLaterCount,
+                 long receiveToDisplayMillis, long inflateMicros, long animateInMillis,
+                 SlideupAnimationFrameStats openingAnimationFrameStats, long dwellMillis) {
+    mSlideup = slideup;
+    mOutcome = outcome;
+    mQueueDepthAtEnqueue = queueDepthAtEnqueue;
+    mDisplayLaterCount = displayLaterCount;
+    mReceiveToDisplayMillis = receiveToDisplayMillis;
+    mInflateMicros = inflateMicros;
+    mAnimateInMillis = animateInMillis;
+    mOpeningAnimationFrameStats = openingAnimationFrameStats;
+    mDwellMillis = dwellMillis;
+  }
+
+  public Slideup getSlideup() {
+    return mSlideup;
+  }
+
+  public SlideupOutcome getOutcome() {
+    return mOutcome;
+  }
+
+  /**
+   * @return The number of slideups that were already waiting when this one was queued, or -1 if the slideup was
+   *         restored from disk.
+   */
+  public int getQueueDepthAtEnqueue() {
+    return mQueueDepthAtEnqueue;
+  }
+
+  /**
+   * @return The number of times the ISlideupManagerListener returned DISPLAY_LATER for the slideup.
+   */
+  public int getDisplayLaterCount() {
+    return mDisplayLaterCount;
+  }
+
+  /**
+   * @return The time from the slideup being added to the manager until it started to be displayed.
+   */
+  public long getReceiveToDisplayMillis() {
+    return mReceiveToDisplayMillis;
+  }
+
+  /**
+   * @return The time spent creating (or taking from the pool) and binding the slideup view, in microseconds.
+   */
+  public long getInflateMicros() {
+    return mInflateMicros;
+  }
+
+  /**
+   * @return The time from the slideup starting to be displayed until its opening animation ended.
+   */
+  public long getAnimateInMillis() {
+    return mAnimateInMillis;
+  }
+
+  /**
+   * @return The frame timing of the opening animation, or null if the slideup wasn't animated in, or was animated on
+   *         a device below API 12.
+   */
+  public SlideupAnimationFrameStats getOpeningAnimationFrameStats() {
+    return mOpeningAnimationFrameStats;
+  }
+
+  /**
+   * @return The time from the slideup starting to be displayed until it was removed from the screen.
+   */
+  public long getDwellMillis() {
+    return mDwellMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "SlideupMetrics{"
+        + "outcome=" + mOutcome
+        + ", campaignId=" + mSlideup.getCampaignId()
+        + ", queueDepthAtEnqueue=" + mQueueDepthAtEnqueue
+        + ", displayLaterCount=" + mDisplayLaterCount
+        + ", receiveToDisplayMillis=" + mReceiveToDisplayMillis
+        + ", inflateMicros=" + mInflateMicros
+        + ", animateInMillis=" + mAnimateInMillis
+        + ", openingAnimationFrameStats=" + mOpeningAnimationFrameStats
+        + ", dwellMillis=" + mDwellMillis
+        + "}";
+  }
+}
@@ -0,0 +1,38 @@
+package com.appboy.ui.slideups;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed size ring buffer of the most recently recorded slideup metrics. Once the buffer is full, each new entry
+ * overwrites the oldest one.
+ *
+ * This class is thread safe. Metrics are added on the main thread, and may be read from any thread.
+ */
+class SlideupMetricsBuffer {
+  private final SlideupMetrics[] mEntries;
+  private int mNextIndex;
+  private int mSize;
+
+  SlideupMetricsBuffer(int capacity) {
+    mEntries = new SlideupMetrics[capacity];
+  }
+
+  synchronized void add(SlideupMetrics slideupMetrics) {
+    mEntries[mNextIndex] = slideupMetrics;
+    mNextIndex = (mNextIndex + 1) % mEntries.length;
+    mSize = Math.min(mSize + 1, mEntries.length);
+  }
+
+  /**
+   * @return A copy of the buffered metrics, from the oldest to the most recent.
+   */
+  synchronized List<SlideupMetrics> snapshot() {
+    List<SlideupMetrics> snapshot = new ArrayList<SlideupMetrics>(mSize);
+    int firstIndex = (mNextIndex - mSize + mEntries.length) % mEntries.length;
+    for (int i = 0; i < mSize; i++) {
+      snapshot.add(mEntries[(firstIndex + i) % mEntries.length]);
+    }
+    return snapshot;
+  }
+}
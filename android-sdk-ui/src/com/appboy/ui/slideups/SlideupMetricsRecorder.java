@@ -0,0 +1,38 @@
+package com.appboy.ui.slideups;
+
+import android.os.SystemClock;
+
+import com.appboy.models.Slideup;
+
+/**
+ * Collects the timing of a single slideup while it moves through the AppboySlideupManager, and turns it into
+ * {@link SlideupMetrics} once its lifecycle is over.
+ *
+ * A recorder is created on the thread that adds the slideup, and is only used on the main thread afterwards.
+ */
+class SlideupMetricsRecorder {
+  final Slideup mSlideup;
+  final long mReceivedAt = SystemClock.elapsedRealtime();
+  int mQueueDepthAtEnqueue = -1;
+  int mDisplayLaterCount;
+  long mDisplayedAt = -1l;
+  long mInflateMicros = -1l;
+  long mAnimateInMillis = -1l;
+  SlideupAnimationFrameStats mOpeningAnimationFrameStats;
+  // Whether the slideup was saved by an earlier process and read back from disk.
+  boolean mRestored;
+
+  SlideupMetricsRecorder(Slideup slideup) {
+    mSlideup = slideup;
+  }
+
+  SlideupMetrics finish(SlideupOutcome outcome) {
+    boolean displayed = mDisplayedAt >= 0;
+    if (mRestored && outcome == SlideupOutcome.DISPLAYED) {
+      outcome = SlideupOutcome.DISPLAYED_RESTORED;
+    }
+    return new SlideupMetrics(mSlideup, outcome, mQueueDepthAtEnqueue, mDisplayLaterCount,
+        displayed ? mDisplayedAt - mReceivedAt : -1l, mInflateMicros, mAnimateInMillis, mOpeningAnimationFrameStats,
+        displayed ? SystemClock.elapsedRealtime() - mDisplayedAt : -1l);
+  }
+}
@@ -0,0 +1,39 @@
+package com.appboy.ui.slideups;
+
+/**
+ * How a slideup handled by the AppboySlideupManager ended up, as reported in its {@link SlideupMetrics}.
+ */
+public enum SlideupOutcome {
+  /**
+   * The slideup was displayed and has since been closed.
+   */
+  DISPLAYED,
+  /**
+   * The slideup was restored from disk after the process restarted, then displayed, and has since been closed. Its
+   * impression and clicks were not logged, since a restored slideup is no longer connected to Appboy.
+   */
+  DISPLAYED_RESTORED,
+  /**
+   * The ISlideupManagerListener returned DISCARD (or null) from beforeSlideupDisplayed.
+   */
+  DISCARDED,
+  /**
+   * The ISlideupViewFactory returned a null view, or a view that already had a parent.
+   */
+  NULL_VIEW,
+  /**
+   * The slideup's time to live elapsed before it could be displayed.
+   */
+  EXPIRED,
+  /**
+   * The slideup was dropped to make room in the queue, or could not be redisplayed after being carried over to
+   * another Activity.
+   */
+  EVICTED,
+  /**
+   * The slideup was a copy of a slideup restored from disk. Either it replaced the restored copy while that one was
+   * still waiting, in which case the restored copy reports this outcome, or it arrived after the restored copy was
+   * displayed, and was dropped.
+   */
+  DUPLICATE
+}
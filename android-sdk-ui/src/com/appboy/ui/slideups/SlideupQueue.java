@@ -0,0 +1,292 @@
+package com.appboy.ui.slideups;
+
+import com.appboy.enums.Slideup.SlideFrom;
+import com.appboy.models.Slideup;
+import com.appboy.ui.support.AppboyLogger;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A bounded priority queue of the slideups waiting to be displayed.
+ *
+ * Slideups are ordered by the priority given by the {@link ISlideupQueuePolicy}, and then by recency, so with equal
+ * priorities the newest slideup is displayed first. Every slideup expires after the time to live given by the policy,
+ * and expired slideups are dropped whenever a slideup is added or polled. When the queue is full, the slideup that
+ * would be displayed last is evicted to make room.
+ *
+ * The slideups are kept in a list sorted from the last to the first one to be displayed, so polling removes the last
+ * element of the list. The queue is small, so inserting and pruning are linear in its size.
+ *
+ * Slideups restored from disk may be delivered again by Appboy. A restored slideup is not restored if a copy of it is
+ * already queued, and a copy added while the restored slideup is queued replaces it. Copies are recognized by their
+ * campaign id, or by their JSON if they have none.
+ *
+ * Every slideup that leaves the queue without being polled is reported to the {@link IDropListener}, if there is one.
+ *
+ * This class is not thread safe. It is owned by the AppboySlideupManager and must only be used from the main thread.
+ */
+class SlideupQueue {
+  private static final String TAG = AppboyLogger.getAppboyTag(SlideupQueue.class);
+
+  private final List<QueuedSlideup> mQueuedSlideups = new ArrayList<QueuedSlideup>();
+  private long mNextSequenceNumber;
+  private int mMaxSize;
+  private final IDropListener mDropListener;
+
+  interface IDropListener {
+    /**
+     * Called when a slideup leaves the queue without being polled.
+     *
+     * @param outcome {@link SlideupOutcome#EXPIRED} if the slideup expired, {@link SlideupOutcome#EVICTED} if it was
+     *                dropped because the queue was full, or {@link SlideupOutcome#DUPLICATE} if it was restored from
+     *                disk and replaced by a copy.
+     */
+    void onSlideupDropped(QueuedSlideup queuedSlideup, SlideupOutcome outcome);
+  }
+
+  /**
+   * @param dropListener Notified of every slideup that leaves the queue without being polled. May be null.
+   */
+  SlideupQueue(int maxSize, IDropListener dropListener) {
+    mMaxSize = Math.max(1, maxSize);
+    mDropListener = dropListener;
+  }
+
+  void setMaxSize(int maxSize) {
+    mMaxSize = Math.max(1, maxSize);
+    while (mQueuedSlideups.size() > mMaxSize) {
+      QueuedSlideup evicted = mQueuedSlideups.remove(0);
+      AppboyLogger.d(TAG, "Evicting slideup %s because the queue is full.", evicted.mSlideup);
+      notifyDropped(evicted, SlideupOutcome.EVICTED);
+    }
+  }
+
+  /**
+   * Adds the recorder's slideup to the queue.
+   *
+   * @return false if the slideup was dropped because the queue is full of slideups that will be displayed first.
+   */
+  boolean add(SlideupMetricsRecorder metricsRecorder, ISlideupQueuePolicy policy) {
+    Slideup slideup = metricsRecorder.mSlideup;
+    long now = System.currentTimeMillis();
+    long timeToLiveMillis = policy.getTimeToLiveMillis(slideup);
+    long expiresAt = timeToLiveMillis > 0 ? now + timeToLiveMillis : Long.MAX_VALUE;
+    removeRestoredCopies(slideup);
+    return insert(new QueuedSlideup(slideup, policy.getPriority(slideup), mNextSequenceNumber++, expiresAt,
+        metricsRecorder), now);
+  }
+
+  /**
+   * Puts a slideup that was polled but couldn't be displayed back into the queue, in the same position, with the same
+   * expiration time.
+   */
+  void requeue(QueuedSlideup queuedSlideup) {
+    insert(queuedSlideup, System.currentTimeMillis());
+  }
+
+  /**
+   * Removes the next slideup to display from the queue, dropping any expired slideups on the way.
+   *
+   * @return The next slideup, or null if there is none.
+   */
+  QueuedSlideup poll() {
+    long now = System.currentTimeMillis();
+    while (!mQueuedSlideups.isEmpty()) {
+      QueuedSlideup queuedSlideup = mQueuedSlideups.remove(mQueuedSlideups.size() - 1);
+      if (!queuedSlideup.isExpired(now)) {
+        return queuedSlideup;
+      }
+      AppboyLogger.d(TAG, "Dropping expired slideup %s.", queuedSlideup.mSlideup);
+      notifyDropped(queuedSlideup, SlideupOutcome.EXPIRED);
+    }
+    return null;
+  }
+
+  /**
+   * Removes the next slideup to display that slides in from one of the given sides of the screen, dropping any expired
+   * slideups on the way. Slideups that slide in from other sides keep their place in the queue.
+   *
+   * @return The next slideup for one of the given sides, or null if there is none.
+   */
+  QueuedSlideup poll(Set<SlideFrom> slideFroms) {
+    long now = System.currentTimeMillis();
+    for (int i = mQueuedSlideups.size() - 1; i >= 0; i--) {
+      QueuedSlideup queuedSlideup = mQueuedSlideups.get(i);
+      if (queuedSlideup.isExpired(now)) {
+        AppboyLogger.d(TAG, "Dropping expired slideup %s.", queuedSlideup.mSlideup);
+        mQueuedSlideups.remove(i);
+        notifyDropped(queuedSlideup, SlideupOutcome.EXPIRED);
+      } else if (slideFroms.contains(queuedSlideup.mSlideup.getSlideFrom())) {
+        return mQueuedSlideups.remove(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds slideups that were saved by an earlier process. They keep their priority and expiration time, and are ordered
+   * as if they had been added before every slideup already in the queue. Slideups that are already queued are skipped.
+   *
+   * @param queuedSlideups The slideups to add, in the order returned by {@link SlideupQueue#snapshot()}.
+   */
+  void restore(List<QueuedSlideup> queuedSlideups) {
+    long now = System.currentTimeMillis();
+    long sequenceNumber = -queuedSlideups.size();
+    for (QueuedSlideup queuedSlideup : queuedSlideups) {
+      if (containsCopy(queuedSlideup.mSlideup)) {
+        AppboyLogger.d(TAG, "Not restoring slideup %s, which is already queued.", queuedSlideup.mSlideup);
+        sequenceNumber++;
+        continue;
+      }
+      SlideupMetricsRecorder metricsRecorder = new SlideupMetricsRecorder(queuedSlideup.mSlideup);
+      metricsRecorder.mRestored = true;
+      insert(new QueuedSlideup(queuedSlideup.mSlideup, queuedSlideup.mPriority, sequenceNumber++,
+          queuedSlideup.mExpiresAt, metricsRecorder), now);
+    }
+  }
+
+  /**
+   * @return A copy of the queued slideups, from the last to the first one to be displayed.
+   */
+  List<QueuedSlideup> snapshot() {
+    return new ArrayList<QueuedSlideup>(mQueuedSlideups);
+  }
+
+  boolean isEmpty() {
+    return mQueuedSlideups.isEmpty();
+  }
+
+  int size() {
+    return mQueuedSlideups.size();
+  }
+
+  void clear() {
+    mQueuedSlideups.clear();
+  }
+
+  private boolean insert(QueuedSlideup queuedSlideup, long now) {
+    removeExpired(now);
+    if (mQueuedSlideups.size() >= mMaxSize) {
+      if (compare(queuedSlideup, mQueuedSlideups.get(0)) <= 0) {
+        AppboyLogger.d(TAG, "Dropping slideup %s because the queue is full.", queuedSlideup.mSlideup);
+        notifyDropped(queuedSlideup, SlideupOutcome.EVICTED);
+        return false;
+      }
+      QueuedSlideup evicted = mQueuedSlideups.remove(0);
+      AppboyLogger.d(TAG, "Evicting slideup %s because the queue is full.", evicted.mSlideup);
+      notifyDropped(evicted, SlideupOutcome.EVICTED);
+    }
+
+    // Binary search for the insertion point, keeping the list sorted in ascending display order.
+    int low = 0;
+    int high = mQueuedSlideups.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (compare(mQueuedSlideups.get(middle), queuedSlideup) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    mQueuedSlideups.add(low, queuedSlideup);
+    return true;
+  }
+
+  /**
+   * @return The key that identifies copies of the same slideup: its campaign id, or its JSON if it has none. Null for
+   *         slideups created in the host app, which are never saved to disk.
+   */
+  static String getCopyKey(Slideup slideup) {
+    String campaignId = slideup.getCampaignId();
+    if (campaignId != null && campaignId.length() > 0) {
+      return campaignId;
+    }
+    JSONObject slideupJson = slideup.forJsonPut();
+    return slideupJson == null ? null : slideupJson.toString();
+  }
+
+  private boolean containsCopy(Slideup slideup) {
+    String copyKey = getCopyKey(slideup);
+    if (copyKey == null) {
+      return false;
+    }
+    for (QueuedSlideup queuedSlideup : mQueuedSlideups) {
+      if (copyKey.equals(getCopyKey(queuedSlideup.mSlideup))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void removeRestoredCopies(Slideup slideup) {
+    String copyKey = null;
+    for (int i = mQueuedSlideups.size() - 1; i >= 0; i--) {
+      QueuedSlideup queuedSlideup = mQueuedSlideups.get(i);
+      if (queuedSlideup.mMetricsRecorder == null || !queuedSlideup.mMetricsRecorder.mRestored) {
+        continue;
+      }
+      if (copyKey == null) {
+        copyKey = getCopyKey(slideup);
+        if (copyKey == null) {
+          return;
+        }
+      }
+      if (copyKey.equals(getCopyKey(queuedSlideup.mSlideup))) {
+        AppboyLogger.d(TAG, "Replacing restored slideup %s with a copy that was delivered again.",
+            queuedSlideup.mSlideup);
+        mQueuedSlideups.remove(i);
+        notifyDropped(queuedSlideup, SlideupOutcome.DUPLICATE);
+      }
+    }
+  }
+
+  private void removeExpired(long now) {
+    for (int i = mQueuedSlideups.size() - 1; i >= 0; i--) {
+      if (mQueuedSlideups.get(i).isExpired(now)) {
+        AppboyLogger.d(TAG, "Dropping expired slideup %s.", mQueuedSlideups.get(i).mSlideup);
+        notifyDropped(mQueuedSlideups.remove(i), SlideupOutcome.EXPIRED);
+      }
+    }
+  }
+
+  private void notifyDropped(QueuedSlideup queuedSlideup, SlideupOutcome outcome) {
+    if (mDropListener != null) {
+      mDropListener.onSlideupDropped(queuedSlideup, outcome);
+    }
+  }
+
+  /**
+   * Orders slideups by priority, then by recency. Greater slideups are displayed first.
+   */
+  private static int compare(QueuedSlideup lhs, QueuedSlideup rhs) {
+    if (lhs.mPriority != rhs.mPriority) {
+      return lhs.mPriority < rhs.mPriority ? -1 : 1;
+    }
+    return lhs.mSequenceNumber < rhs.mSequenceNumber ? -1 : (lhs.mSequenceNumber == rhs.mSequenceNumber ? 0 : 1);
+  }
+
+  static final class QueuedSlideup {
+    final Slideup mSlideup;
+    final int mPriority;
+    final long mSequenceNumber;
+    final long mExpiresAt;
+    // Null for the slideups read by the SlideupQueueStore, until they are restored into a queue.
+    final SlideupMetricsRecorder mMetricsRecorder;
+
+    QueuedSlideup(Slideup slideup, int priority, long sequenceNumber, long expiresAt,
+                  SlideupMetricsRecorder metricsRecorder) {
+      mSlideup = slideup;
+      mPriority = priority;
+      mSequenceNumber = sequenceNumber;
+      mExpiresAt = expiresAt;
+      mMetricsRecorder = metricsRecorder;
+    }
+
+    boolean isExpired(long now) {
+      return now >= mExpiresAt;
+    }
+  }
+}
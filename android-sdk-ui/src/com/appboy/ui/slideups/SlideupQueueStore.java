@@ -0,0 +1,201 @@
+package com.appboy.ui.slideups;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.appboy.models.Slideup;
+import com.appboy.ui.support.AppboyLogger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Saves the slideups waiting to be displayed to a file, so that they survive the process being killed, and reads
+ * them back.
+ *
+ * Slideups are saved as the JSON they were received as, along with their priority and expiration time. Slideups
+ * created in the host app with {@link Slideup#createSlideup} have no JSON and are not saved. Slideups read back
+ * from the file are not connected to the Appboy SDK's analytics, so their impressions and clicks are not logged.
+ *
+ * Files are read and written on a single background thread, in the order the calls were made. Each write replaces the
+ * file atomically, so a process killed during a write leaves the previous snapshot in place.
+ */
+class SlideupQueueStore {
+  private static final String TAG = AppboyLogger.getAppboyTag(SlideupQueueStore.class);
+  static final String FILE_NAME = "appboy.pending_slideups.json";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final int FORMAT_VERSION = 1;
+  private static final int BUFFER_SIZE_BYTES = 4096;
+  private static final String VERSION_KEY = "version";
+  private static final String SLIDEUPS_KEY = "slideups";
+  private static final String SLIDEUP_KEY = "slideup";
+  private static final String PRIORITY_KEY = "priority";
+  private static final String EXPIRES_AT_KEY = "expires_at";
+
+  private final File mFile;
+  private final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+  private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "AppboySlideupQueueStore");
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    }
+  });
+
+  interface IRestoreListener {
+    /**
+     * Called on the main thread with the slideups that were read, in the order they were written.
+     */
+    void onRestored(List<SlideupQueue.QueuedSlideup> queuedSlideups);
+  }
+
+  SlideupQueueStore(Context context) {
+    mFile = new File(context.getFilesDir(), FILE_NAME);
+  }
+
+  /**
+   * Replaces the saved slideups with the given ones in the background. Deletes the file if there are none.
+   */
+  void write(final List<SlideupQueue.QueuedSlideup> queuedSlideups) {
+    mExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        writeFile(queuedSlideups);
+      }
+    });
+  }
+
+  /**
+   * Reads the saved slideups in the background, and hands them over to the listener on the main thread. Expired
+   * slideups are handed over as well, and are dropped once they are added to a {@link SlideupQueue}.
+   */
+  void read(final IRestoreListener restoreListener) {
+    mExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final List<SlideupQueue.QueuedSlideup> queuedSlideups = readFile();
+        mMainThreadHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            restoreListener.onRestored(queuedSlideups);
+          }
+        });
+      }
+    });
+  }
+
+  private void writeFile(List<SlideupQueue.QueuedSlideup> queuedSlideups) {
+    JSONArray slideups = new JSONArray();
+    try {
+      for (SlideupQueue.QueuedSlideup queuedSlideup : queuedSlideups) {
+        JSONObject slideupJson = queuedSlideup.mSlideup.forJsonPut();
+        if (slideupJson == null) {
+          continue;
+        }
+        slideups.put(new JSONObject()
+            .put(SLIDEUP_KEY, slideupJson)
+            .put(PRIORITY_KEY, queuedSlideup.mPriority)
+            .put(EXPIRES_AT_KEY, queuedSlideup.mExpiresAt));
+      }
+    } catch (JSONException e) {
+      AppboyLogger.e(TAG, "Unable to save the pending slideups.", e);
+      return;
+    }
+    if (slideups.length() == 0) {
+      mFile.delete();
+      return;
+    }
+
+    File tempFile = new File(mFile.getPath() + TEMP_FILE_SUFFIX);
+    OutputStream outputStream = null;
+    try {
+      String snapshot = new JSONObject().put(VERSION_KEY, FORMAT_VERSION).put(SLIDEUPS_KEY, slideups).toString();
+      outputStream = new FileOutputStream(tempFile);
+      outputStream.write(snapshot.getBytes("UTF-8"));
+      outputStream.close();
+      outputStream = null;
+      if (!tempFile.renameTo(mFile)) {
+        AppboyLogger.w(TAG, "Unable to replace the pending slideups file %s.", mFile);
+        tempFile.delete();
+      }
+    } catch (IOException e) {
+      AppboyLogger.w(TAG, "Unable to write the pending slideups to %s.", mFile);
+      closeQuietly(outputStream);
+      tempFile.delete();
+    } catch (JSONException e) {
+      AppboyLogger.e(TAG, "Unable to save the pending slideups.", e);
+    }
+  }
+
+  private List<SlideupQueue.QueuedSlideup> readFile() {
+    if (!mFile.exists()) {
+      return Collections.emptyList();
+    }
+    InputStream inputStream = null;
+    try {
+      inputStream = new FileInputStream(mFile);
+      ByteArrayOutputStream contents = new ByteArrayOutputStream((int) mFile.length());
+      byte[] buffer = new byte[BUFFER_SIZE_BYTES];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        contents.write(buffer, 0, read);
+      }
+      JSONObject snapshot = new JSONObject(contents.toString("UTF-8"));
+      if (snapshot.optInt(VERSION_KEY) != FORMAT_VERSION) {
+        AppboyLogger.w(TAG, "Ignoring pending slideups saved in an unknown format.");
+        mFile.delete();
+        return Collections.emptyList();
+      }
+
+      JSONArray slideups = snapshot.getJSONArray(SLIDEUPS_KEY);
+      List<SlideupQueue.QueuedSlideup> queuedSlideups = new ArrayList<SlideupQueue.QueuedSlideup>(slideups.length());
+      for (int i = 0; i < slideups.length(); i++) {
+        JSONObject entry = slideups.getJSONObject(i);
+        try {
+          Slideup slideup = new Slideup(entry.getJSONObject(SLIDEUP_KEY), null);
+          queuedSlideups.add(new SlideupQueue.QueuedSlideup(slideup, entry.getInt(PRIORITY_KEY), i,
+              entry.getLong(EXPIRES_AT_KEY), null));
+        } catch (Exception e) {
+          AppboyLogger.w(TAG, "Skipping a pending slideup that could not be restored.", e);
+        }
+      }
+      AppboyLogger.d(TAG, "Restored %d pending slideups.", queuedSlideups.size());
+      return queuedSlideups;
+    } catch (IOException e) {
+      AppboyLogger.w(TAG, "Unable to read the pending slideups from %s.", mFile);
+    } catch (JSONException e) {
+      AppboyLogger.w(TAG, "Ignoring a corrupt pending slideups file.", e);
+      mFile.delete();
+    } finally {
+      closeQuietly(inputStream);
+    }
+    return Collections.emptyList();
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // Nothing left to do.
+      }
+    }
+  }
+}
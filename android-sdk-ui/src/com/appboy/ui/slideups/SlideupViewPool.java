@@ -0,0 +1,113 @@
+package com.appboy.ui.slideups;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.os.Build;
+import android.view.View;
+
+import com.appboy.models.Slideup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A small pool of slideup views for the current Activity, created by an
+ * {@link com.appboy.ui.slideups.IRecyclableSlideupViewFactory}. Views are returned to the pool once their slideup has
+ * been closed and are bound to the next slideup when it is displayed.
+ *
+ * Slideup views hold on to the Activity they were created for, so the pool is emptied as soon as it is used with a
+ * different Activity or factory, and should be cleared when its Activity finishes.
+ *
+ * This class is not thread safe and must only be used from the main thread.
+ */
+class SlideupViewPool {
+  private final int mMaxSize;
+  private final List<View> mFreeViews;
+  // Every view created by the pool since it was last cleared, whether free or in use.
+  private final Set<View> mOwnedViews = new HashSet<View>();
+  private Activity mActivity;
+  private IRecyclableSlideupViewFactory mSlideupViewFactory;
+
+  SlideupViewPool(int maxSize) {
+    mMaxSize = maxSize;
+    mFreeViews = new ArrayList<View>(maxSize);
+  }
+
+  /**
+   * @return A view from the pool, or a new one if the pool is empty, bound to the given slideup.
+   */
+  View acquire(Activity activity, IRecyclableSlideupViewFactory slideupViewFactory, Slideup slideup) {
+    prepare(activity, slideupViewFactory);
+    View slideupView = mFreeViews.isEmpty() ? createView() : mFreeViews.remove(mFreeViews.size() - 1);
+    slideupViewFactory.bindSlideupView(slideupView, slideup);
+    return slideupView;
+  }
+
+  /**
+   * Creates views until the pool holds the given number of free views.
+   */
+  void preinflate(Activity activity, IRecyclableSlideupViewFactory slideupViewFactory, int count) {
+    prepare(activity, slideupViewFactory);
+    while (mFreeViews.size() < Math.min(count, mMaxSize)) {
+      mFreeViews.add(createView());
+    }
+  }
+
+  /**
+   * Returns a view that is no longer displayed to the pool. Views that weren't created by the pool, or that were
+   * created before it was last cleared, are ignored.
+   */
+  void release(View slideupView) {
+    if (!mOwnedViews.contains(slideupView) || slideupView.getParent() != null) {
+      return;
+    }
+    if (mFreeViews.size() >= mMaxSize) {
+      mOwnedViews.remove(slideupView);
+      return;
+    }
+    // Undo whatever the opening and closing animations left behind.
+    slideupView.clearAnimation();
+    if (Build.VERSION.SDK_INT >= 12) {
+      resetAnimatedProperties(slideupView);
+    }
+    slideupView.setVisibility(View.VISIBLE);
+    slideupView.setClickable(true);
+    if (!mFreeViews.contains(slideupView)) {
+      mFreeViews.add(slideupView);
+    }
+  }
+
+  void clear() {
+    mFreeViews.clear();
+    mOwnedViews.clear();
+    mActivity = null;
+    mSlideupViewFactory = null;
+  }
+
+  /**
+   * Stops a property animation that was interrupted when the view was removed, without notifying its listener.
+   */
+  @TargetApi(12)
+  private static void resetAnimatedProperties(View slideupView) {
+    slideupView.animate().setListener(null);
+    slideupView.animate().cancel();
+    slideupView.setTranslationY(0f);
+    slideupView.setLayerType(View.LAYER_TYPE_NONE, null);
+  }
+
+  private void prepare(Activity activity, IRecyclableSlideupViewFactory slideupViewFactory) {
+    if (activity != mActivity || slideupViewFactory != mSlideupViewFactory) {
+      clear();
+      mActivity = activity;
+      mSlideupViewFactory = slideupViewFactory;
+    }
+  }
+
+  private View createView() {
+    View slideupView = mSlideupViewFactory.createUnboundSlideupView(mActivity);
+    mOwnedViews.add(slideupView);
+    return slideupView;
+  }
+}
@@ -1,9 +1,14 @@
 package com.appboy.ui.slideups;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.annotation.TargetApi;
 import android.os.Build;
+import android.os.SystemClock;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.animation.Animation;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
@@ -13,21 +18,75 @@ import android.widget.FrameLayout;
 import com.appboy.enums.Slideup.DismissType;
 import com.appboy.enums.Slideup.SlideFrom;
 import com.appboy.models.Slideup;
+import com.appboy.ui.support.AppboyLogger;
 import com.appboy.ui.support.ViewUtils;
 
+/**
+ * Displays a slideup view in an Activity's content view, and animates it in and out.
+ *
+ * On API 12 and above, the slideup is animated with a ViewPropertyAnimator on its translationY, while rendered into a
+ * temporary hardware layer, so the view's real position always matches what is drawn. The frame timing of every
+ * animation is recorded, and the number of dropped frames is logged. Older devices fall back to a TranslateAnimation.
+ *
+ * When the host Activity is paused, the slideup can be detached and later reattached (or rebuilt in another
+ * Activity) where it left off, keeping the time left until it is auto dismissed.
+ */
 public class SlideupViewWrapper {
+  private static final String TAG = AppboyLogger.getAppboyTag(SlideupViewWrapper.class);
   private static Interpolator sInterpolator = new DecelerateInterpolator();
   private static final long sAnimationDurationInMilliseconds = 400l;
+  static final ISlideupAnimationProvider DEFAULT_ANIMATION_PROVIDER = new ISlideupAnimationProvider() {
+    @Override
+    public long getOpeningDurationMillis(Slideup slideup) {
+      return sAnimationDurationInMilliseconds;
+    }
+
+    @Override
+    public long getClosingDurationMillis(Slideup slideup) {
+      return sAnimationDurationInMilliseconds;
+    }
+
+    @Override
+    public Interpolator getOpeningInterpolator(Slideup slideup) {
+      return sInterpolator;
+    }
+
+    @Override
+    public Interpolator getClosingInterpolator(Slideup slideup) {
+      return sInterpolator;
+    }
+  };
 
   private final View mSlideupView;
   private final Slideup mSlideup;
   private final ISlideupViewLifecycleListener mSlideupViewLifecycleListener;
-  private Runnable mDismissRunnable;
+  private final ISlideupAnimationProvider mAnimationProvider;
+  private FrameTimeRecorder mFrameTimeRecorder;
+  private SlideupAnimationFrameStats mLastAnimationFrameStats;
+  private final Runnable mDismissRunnable = new Runnable() {
+    @Override
+    public void run() {
+      close();
+    }
+  };
+  private ViewTreeObserver.OnPreDrawListener mOpeningPreDrawListener;
+  // The uptime at which the pending auto dismiss fires, or -1 if none is pending.
+  private long mDismissAt = -1l;
+  // The delay of the next auto dismiss, if it shouldn't be the slideup's full duration, or -1.
+  private long mRemainingDismissMillis = -1l;
+  private boolean mOpened;
+  private boolean mClosing;
 
   public SlideupViewWrapper(View slideupView, Slideup slideup, ISlideupViewLifecycleListener slideupViewLifecycleListener) {
+    this(slideupView, slideup, slideupViewLifecycleListener, DEFAULT_ANIMATION_PROVIDER);
+  }
+
+  public SlideupViewWrapper(View slideupView, Slideup slideup, ISlideupViewLifecycleListener slideupViewLifecycleListener,
+                            ISlideupAnimationProvider animationProvider) {
     mSlideupView = slideupView;
     mSlideup = slideup;
     mSlideupViewLifecycleListener = slideupViewLifecycleListener;
+    mAnimationProvider = animationProvider;
 
     // We only apply the swipe touch listener to the slideup View on devices running Android version
     // 12 or higher. Pre-12 devices will have to click to close the slideup.
@@ -65,6 +124,13 @@ public class SlideupViewWrapper {
   }
 
   public void close() {
+    // The slideup view may be reused for another slideup, which must not be closed by this slideup's
+    // pending auto dismiss.
+    removeDismissRunnable();
+    // The view is still attached, so its pending opening listener can still be removed from the view tree observer
+    // it was added to.
+    removeOpeningPreDrawListener();
+    mClosing = true;
     preClose();
     performClose();
   }
@@ -77,6 +143,76 @@ public class SlideupViewWrapper {
     return mSlideup;
   }
 
+  /**
+   * Takes the slideup off the screen without closing it, so that it can be reattached or rebuilt once an Activity is
+   * registered again. Any running animation is stopped, and the time left until the slideup is auto dismissed is
+   * kept.
+   */
+  void detach() {
+    if (mDismissAt >= 0) {
+      mRemainingDismissMillis = Math.max(0l, mDismissAt - SystemClock.uptimeMillis());
+    }
+    removeDismissRunnable();
+    removeOpeningPreDrawListener();
+    stopAnimation();
+    removeViewFromLayout();
+  }
+
+  private void removeOpeningPreDrawListener() {
+    if (mOpeningPreDrawListener != null) {
+      ViewTreeObserver viewTreeObserver = mSlideupView.getViewTreeObserver();
+      if (viewTreeObserver.isAlive()) {
+        viewTreeObserver.removeOnPreDrawListener(mOpeningPreDrawListener);
+      }
+      mOpeningPreDrawListener = null;
+    }
+  }
+
+  /**
+   * Puts a detached slideup back on screen, without an opening animation, and restarts its auto dismiss timer with
+   * the time that was left.
+   */
+  void reattach(FrameLayout root) {
+    addViewToLayout(root);
+    if (!mOpened) {
+      // The opening animation was interrupted when the slideup was detached.
+      onOpeningAnimationEnd();
+    } else if (mSlideup.getDismissType() == DismissType.AUTO_DISMISS) {
+      addDismissRunnable();
+    }
+  }
+
+  /**
+   * @return The time that was left until the slideup would have been auto dismissed when it was detached, or -1 if
+   *         its auto dismiss timer wasn't running.
+   */
+  long getRemainingDismissMillis() {
+    return mRemainingDismissMillis;
+  }
+
+  /**
+   * Sets the delay of the slideup's first auto dismiss, for a slideup rebuilt from a detached one. Must be called
+   * before the slideup is opened.
+   */
+  void setRemainingDismissMillis(long remainingDismissMillis) {
+    mRemainingDismissMillis = remainingDismissMillis;
+  }
+
+  /**
+   * @return Whether the slideup has started closing.
+   */
+  boolean isClosing() {
+    return mClosing;
+  }
+
+  /**
+   * @return The frame timing of the most recent opening or closing animation, or null if the slideup hasn't been
+   *         animated yet, or was animated on a device below API 12.
+   */
+  public SlideupAnimationFrameStats getLastAnimationFrameStats() {
+    return mLastAnimationFrameStats;
+  }
+
   private View.OnClickListener createClickListener() {
     return new View.OnClickListener() {
       @Override
@@ -103,23 +239,23 @@ public class SlideupViewWrapper {
       // The afterOpened lifecycle method gets called when the opening animation ends.
     } else {
       // There is no opening animation, so we call the afterOpened lifecycle method immediately.
-      if (mSlideup.getDismissType() == DismissType.AUTO_DISMISS) {
-        addDismissRunnable();
-      }
-      mSlideupViewLifecycleListener.afterOpened(mSlideupView, mSlideup);
+      onOpeningAnimationEnd();
     }
   }
 
   private void addDismissRunnable() {
-    if (mDismissRunnable == null) {
-      mDismissRunnable = new Runnable() {
-        @Override
-        public void run() {
-          close();
-        }
-      };
-      mSlideupView.postDelayed(mDismissRunnable, mSlideup.getDurationInMilliseconds());
-    }
+    // Removing first makes sure the slideup is dismissed only once, whether the timer is started by the opening
+    // animation or restarted at the end of a touch.
+    removeDismissRunnable();
+    long delayMillis = mRemainingDismissMillis >= 0 ? mRemainingDismissMillis : mSlideup.getDurationInMilliseconds();
+    mRemainingDismissMillis = -1l;
+    mDismissAt = SystemClock.uptimeMillis() + delayMillis;
+    mSlideupView.postDelayed(mDismissRunnable, delayMillis);
+  }
+
+  private void removeDismissRunnable() {
+    mSlideupView.removeCallbacks(mDismissRunnable);
+    mDismissAt = -1l;
   }
 
   private SwipeDismissTouchListener.DismissCallbacks createDismissCallbacks() {
@@ -141,7 +277,7 @@ public class SlideupViewWrapper {
     return new TouchAwareSwipeDismissTouchListener.ITouchListener() {
       @Override
       public void onTouchStartedOrContinued() {
-        mSlideupView.removeCallbacks(mDismissRunnable);
+        removeDismissRunnable();
       }
       @Override
       public void onTouchEnded() {
@@ -152,27 +288,136 @@ public class SlideupViewWrapper {
     };
   }
 
-  private Animation createAnimation(float fromY, float toY, long duration) {
+  private Animation createAnimation(float fromY, float toY, long duration, Interpolator interpolator) {
     TranslateAnimation animation = new TranslateAnimation(Animation.RELATIVE_TO_PARENT, 0f,
         Animation.RELATIVE_TO_PARENT, 0f, Animation.RELATIVE_TO_SELF, fromY,
         Animation.RELATIVE_TO_SELF, toY);
     animation.setDuration(duration);
     animation.setFillAfter(true);
     animation.setFillEnabled(true);
-    animation.setInterpolator(sInterpolator);
+    animation.setInterpolator(interpolator);
     return animation;
   }
 
   private void setAndStartAnimation(boolean opening) {
+    if (Build.VERSION.SDK_INT >= 12) {
+      if (opening) {
+        startOpeningPropertyAnimationAfterLayout();
+      } else {
+        startPropertyAnimation(false);
+      }
+    } else {
+      startLegacyAnimation(opening);
+    }
+  }
+
+  /**
+   * The slideup's height, and so its off screen position, is only known once it has been laid out, so the opening
+   * animation starts right before the slideup would first be drawn.
+   */
+  @TargetApi(12)
+  private void startOpeningPropertyAnimationAfterLayout() {
+    mOpeningPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+      @Override
+      public boolean onPreDraw() {
+        ViewTreeObserver currentViewTreeObserver = mSlideupView.getViewTreeObserver();
+        if (currentViewTreeObserver.isAlive()) {
+          currentViewTreeObserver.removeOnPreDrawListener(this);
+        }
+        mOpeningPreDrawListener = null;
+        mSlideupView.setTranslationY(getOffScreenTranslationY());
+        startPropertyAnimation(true);
+        // Skips this frame, which would show the slideup at its final position for a single frame.
+        return false;
+      }
+    };
+    mSlideupView.getViewTreeObserver().addOnPreDrawListener(mOpeningPreDrawListener);
+  }
+
+  @TargetApi(12)
+  private void startPropertyAnimation(final boolean opening) {
+    if (mFrameTimeRecorder == null) {
+      mFrameTimeRecorder = new FrameTimeRecorder(mSlideupView.getContext());
+    }
+    mSlideupView.setClickable(false);
+    mSlideupView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+    mFrameTimeRecorder.start(mSlideupView);
+    mSlideupView.animate()
+        .translationY(opening ? 0f : getOffScreenTranslationY())
+        .setDuration(opening ? mAnimationProvider.getOpeningDurationMillis(mSlideup)
+            : mAnimationProvider.getClosingDurationMillis(mSlideup))
+        .setInterpolator(opening ? mAnimationProvider.getOpeningInterpolator(mSlideup)
+            : mAnimationProvider.getClosingInterpolator(mSlideup))
+        .setListener(new AnimatorListenerAdapter() {
+          @Override
+          public void onAnimationEnd(Animator animation) {
+            mSlideupView.animate().setListener(null);
+            mSlideupView.setLayerType(View.LAYER_TYPE_NONE, null);
+            mLastAnimationFrameStats = mFrameTimeRecorder.stop(opening);
+            AppboyLogger.d(TAG, "Slideup animation finished: %s", mLastAnimationFrameStats);
+            mSlideupView.setClickable(true);
+            if (opening) {
+              onOpeningAnimationEnd();
+            } else {
+              removeViewFromLayout();
+              mSlideupView.setTranslationY(0f);
+              mSlideupViewLifecycleListener.afterClosed(mSlideup);
+            }
+          }
+        });
+  }
+
+  private float getOffScreenTranslationY() {
+    return mSlideup.getSlideFrom() == SlideFrom.TOP ? -mSlideupView.getHeight() : mSlideupView.getHeight();
+  }
+
+  /**
+   * Stops the running animation, if any, without its end callbacks, and puts the view back in its resting state.
+   */
+  @TargetApi(12)
+  private void stopAnimation() {
+    if (Build.VERSION.SDK_INT >= 12) {
+      mSlideupView.animate().setListener(null);
+      mSlideupView.animate().cancel();
+      mSlideupView.setTranslationX(0f);
+      mSlideupView.setTranslationY(0f);
+      mSlideupView.setAlpha(1f);
+      mSlideupView.setLayerType(View.LAYER_TYPE_NONE, null);
+      if (mFrameTimeRecorder != null) {
+        mFrameTimeRecorder.cancel();
+      }
+    }
+    Animation animation = mSlideupView.getAnimation();
+    if (animation != null) {
+      animation.setAnimationListener(null);
+    }
+    mSlideupView.clearAnimation();
+    mSlideupView.setVisibility(View.VISIBLE);
+    mSlideupView.setClickable(true);
+  }
+
+  private void onOpeningAnimationEnd() {
+    mOpened = true;
+    if (mSlideup.getDismissType() == DismissType.AUTO_DISMISS) {
+      addDismissRunnable();
+    }
+    mSlideupViewLifecycleListener.afterOpened(mSlideupView, mSlideup);
+  }
+
+  private void startLegacyAnimation(boolean opening) {
     Animation animation;
+    long duration = opening ? mAnimationProvider.getOpeningDurationMillis(mSlideup)
+        : mAnimationProvider.getClosingDurationMillis(mSlideup);
+    Interpolator interpolator = opening ? mAnimationProvider.getOpeningInterpolator(mSlideup)
+        : mAnimationProvider.getClosingInterpolator(mSlideup);
     if (opening && mSlideup.getSlideFrom() == SlideFrom.TOP) {
-      animation = createAnimation(-1, 0, sAnimationDurationInMilliseconds);
+      animation = createAnimation(-1, 0, duration, interpolator);
     } else if (opening && mSlideup.getSlideFrom() == SlideFrom.BOTTOM) {
-      animation = createAnimation(1, 0, sAnimationDurationInMilliseconds);
+      animation = createAnimation(1, 0, duration, interpolator);
     } else if (!opening && mSlideup.getSlideFrom() == SlideFrom.TOP) {
-      animation = createAnimation(0, -1, sAnimationDurationInMilliseconds);
+      animation = createAnimation(0, -1, duration, interpolator);
     } else {
-      animation = createAnimation(0, 1, sAnimationDurationInMilliseconds);
+      animation = createAnimation(0, 1, duration, interpolator);
     }
     animation.setAnimationListener(createAnimationListener(opening));
     mSlideupView.clearAnimation();
@@ -193,10 +438,7 @@ public class SlideupViewWrapper {
         public void onAnimationEnd(Animation animation) {
           mSlideupView.setVisibility(View.VISIBLE);
           mSlideupView.setClickable(true);
-          if (mSlideup.getDismissType() == DismissType.AUTO_DISMISS) {
-            addDismissRunnable();
-          }
-          mSlideupViewLifecycleListener.afterOpened(mSlideupView, mSlideup);
+          onOpeningAnimationEnd();
         }
         @Override
         public void onAnimationRepeat(Animation animation) {}
@@ -52,6 +52,9 @@ import android.view.ViewGroup;
  * <p>This class Requires API level 12 or later due to use of {@link
  * android.view.ViewPropertyAnimator}.</p>
  *
+ * <p>The velocity tracker, animators and listeners are created once and reused for every gesture,
+ * so handling touch events doesn't allocate.</p>
+ *
  * @see SwipeDismissListViewTouchListener
  */
 public class SwipeDismissTouchListener implements View.OnTouchListener {
@@ -73,7 +76,20 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
   private int mSwipingSlop;
   private Object mToken;
   private VelocityTracker mVelocityTracker;
+  // Whether the current gesture is tracked, which is only the case if the view could be dismissed
+  // when it started.
+  private boolean mTracking;
   private float mTranslationX;
+  private int mOriginalHeight;
+
+  // Reused animation listeners and animator
+  private final Animator.AnimatorListener mSwipeOutListener = new AnimatorListenerAdapter() {
+    @Override
+    public void onAnimationEnd(Animator animation) {
+      performDismiss();
+    }
+  };
+  private ValueAnimator mDismissAnimator;
 
   /**
    * The callback interface used by {@link SwipeDismissTouchListener} to inform its client
@@ -130,14 +146,17 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
         mDownX = motionEvent.getRawX();
         mDownY = motionEvent.getRawY();
         if (mCallbacks.canDismiss(mToken)) {
-          mVelocityTracker = VelocityTracker.obtain();
+          if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+          }
+          mTracking = true;
           mVelocityTracker.addMovement(motionEvent);
         }
         return false;
       }
 
       case MotionEvent.ACTION_UP: {
-        if (mVelocityTracker == null) {
+        if (!mTracking) {
           break;
         }
 
@@ -165,12 +184,7 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
               .translationX(dismissRight ? mViewWidth : -mViewWidth)
               .alpha(0)
               .setDuration(mAnimationTime)
-              .setListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                  performDismiss();
-                }
-              });
+              .setListener(mSwipeOutListener);
         } else if (mSwiping) {
           // cancel
           mView.animate()
@@ -179,17 +193,12 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
               .setDuration(mAnimationTime)
               .setListener(null);
         }
-        mVelocityTracker.recycle();
-        mVelocityTracker = null;
-        mTranslationX = 0;
-        mDownX = 0;
-        mDownY = 0;
-        mSwiping = false;
+        resetGesture();
         break;
       }
 
       case MotionEvent.ACTION_CANCEL: {
-        if (mVelocityTracker == null) {
+        if (!mTracking) {
           break;
         }
 
@@ -198,24 +207,20 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
             .alpha(1)
             .setDuration(mAnimationTime)
             .setListener(null);
-        mVelocityTracker.recycle();
-        mVelocityTracker = null;
-        mTranslationX = 0;
-        mDownX = 0;
-        mDownY = 0;
-        mSwiping = false;
+        resetGesture();
         break;
       }
 
       case MotionEvent.ACTION_MOVE: {
-        if (mVelocityTracker == null) {
+        if (!mTracking) {
           break;
         }
 
         mVelocityTracker.addMovement(motionEvent);
         float deltaX = motionEvent.getRawX() - mDownX;
         float deltaY = motionEvent.getRawY() - mDownY;
-        if (Math.abs(deltaX) > mSlop && Math.abs(deltaY) < Math.abs(deltaX) / 2) {
+        // The parent's touch handling only needs to be cancelled once, when the swipe starts.
+        if (!mSwiping && Math.abs(deltaX) > mSlop && Math.abs(deltaY) < Math.abs(deltaX) / 2) {
           mSwiping = true;
           mSwipingSlop = (deltaX > 0 ? mSlop : -mSlop);
           mView.getParent().requestDisallowInterceptTouchEvent(true);
@@ -243,37 +248,63 @@ public class SwipeDismissTouchListener implements View.OnTouchListener {
     return false;
   }
 
+  private void resetGesture() {
+    // The velocity tracker is kept for the next gesture.
+    mVelocityTracker.clear();
+    mTracking = false;
+    mTranslationX = 0;
+    mDownX = 0;
+    mDownY = 0;
+    mSwiping = false;
+  }
+
   @TargetApi(12)
   public void performDismiss() {
     // Animate the dismissed view to zero-height and then fire the dismiss callback.
     // This triggers layout on each animation frame; in the future we may want to do something
     // smarter and more performant.
 
-    final ViewGroup.LayoutParams lp = mView.getLayoutParams();
-    final int originalHeight = mView.getHeight();
+    mOriginalHeight = mView.getHeight();
+    if (mDismissAnimator == null) {
+      mDismissAnimator = createDismissAnimator();
+    }
+    mDismissAnimator.start();
+  }
 
-    ValueAnimator animator = ValueAnimator.ofInt(originalHeight, 1).setDuration(mAnimationTime);
+  @TargetApi(12)
+  private ValueAnimator createDismissAnimator() {
+    // The height is computed from the animated fraction rather than animated as an int, which
+    // would box every frame's value.
+    ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f).setDuration(mAnimationTime);
 
     animator.addListener(new AnimatorListenerAdapter() {
       @Override
       public void onAnimationEnd(Animator animation) {
         mCallbacks.onDismiss(mView, mToken);
         // Reset view presentation
+        ViewGroup.LayoutParams lp = mView.getLayoutParams();
         mView.setAlpha(1f);
         mView.setTranslationX(0);
-        lp.height = originalHeight;
+        lp.height = mOriginalHeight;
         mView.setLayoutParams(lp);
+        // The view is gone, so the velocity tracker won't be needed again, unless a new gesture
+        // started during the animation.
+        if (mVelocityTracker != null && !mTracking) {
+          mVelocityTracker.recycle();
+          mVelocityTracker = null;
+        }
       }
     });
 
     animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
       @Override
       public void onAnimationUpdate(ValueAnimator valueAnimator) {
-        lp.height = (Integer) valueAnimator.getAnimatedValue();
+        ViewGroup.LayoutParams lp = mView.getLayoutParams();
+        float fraction = valueAnimator.getAnimatedFraction();
+        lp.height = Math.max(1, Math.round(mOriginalHeight - (mOriginalHeight - 1) * fraction));
         mView.setLayoutParams(lp);
       }
     });
-
-    animator.start();
+    return animator;
   }
 }
@@ -0,0 +1,192 @@
+package com.appboy.ui.support;
+
+import android.util.Log;
+
+import com.appboy.Constants;
+
+/**
+ * Logging facade used by the Appboy UI classes.
+ *
+ * Every method checks the log level before doing any work, and messages are passed as a format string with
+ * separate arguments, so no message is ever formatted (and none of the arguments' toString methods are called)
+ * unless it will actually be logged. The overloads with up to three arguments avoid allocating a varargs array.
+ * Primitive arguments are still boxed at the call site before the level is checked, so calls on hot paths such as
+ * getView or scroll callbacks should be guarded with {@link AppboyLogger#isLoggable(int)}.
+ *
+ * Everything is logged by default. Apps choose the minimum level that is logged with
+ * {@link AppboyLogger#setLogLevel(int)}, typically from their own BuildConfig in Application.onCreate, before any
+ * Appboy UI class is used:
+ *
+ * <pre>
+ * if (!BuildConfig.DEBUG) {
+ *   AppboyLogger.setLogLevel(Log.INFO);
+ * }
+ * </pre>
+ *
+ * Use {@link AppboyLogger#SUPPRESS} to turn off all logging.
+ */
+public final class AppboyLogger {
+  /**
+   * A log level above every {@link android.util.Log} level, which turns off all logging.
+   */
+  public static final int SUPPRESS = Log.ASSERT + 1;
+
+  private static volatile int sLogLevel = Log.VERBOSE;
+
+  private AppboyLogger() {}
+
+  /**
+   * @return The tag used by the given Appboy class.
+   */
+  public static String getAppboyTag(Class<?> clazz) {
+    return Constants.APPBOY + "." + clazz.getName();
+  }
+
+  /**
+   * Sets the minimum level that will be logged, using the {@link android.util.Log} level constants. Use
+   * {@link AppboyLogger#SUPPRESS} to turn off all logging.
+   */
+  public static void setLogLevel(int logLevel) {
+    sLogLevel = logLevel;
+  }
+
+  public static int getLogLevel() {
+    return sLogLevel;
+  }
+
+  public static boolean isLoggable(int logLevel) {
+    return logLevel >= sLogLevel;
+  }
+
+  public static void v(String tag, String message) {
+    if (isLoggable(Log.VERBOSE)) {
+      Log.v(tag, message);
+    }
+  }
+
+  public static void v(String tag, String format, Object arg1) {
+    if (isLoggable(Log.VERBOSE)) {
+      Log.v(tag, String.format(format, arg1));
+    }
+  }
+
+  public static void v(String tag, String format, Object arg1, Object arg2) {
+    if (isLoggable(Log.VERBOSE)) {
+      Log.v(tag, String.format(format, arg1, arg2));
+    }
+  }
+
+  public static void d(String tag, String message) {
+    if (isLoggable(Log.DEBUG)) {
+      Log.d(tag, message);
+    }
+  }
+
+  public static void d(String tag, String format, Object arg1) {
+    if (isLoggable(Log.DEBUG)) {
+      Log.d(tag, String.format(format, arg1));
+    }
+  }
+
+  public static void d(String tag, String format, Object arg1, Object arg2) {
+    if (isLoggable(Log.DEBUG)) {
+      Log.d(tag, String.format(format, arg1, arg2));
+    }
+  }
+
+  public static void d(String tag, String format, Object arg1, Object arg2, Object arg3) {
+    if (isLoggable(Log.DEBUG)) {
+      Log.d(tag, String.format(format, arg1, arg2, arg3));
+    }
+  }
+
+  public static void d(String tag, String format, Object... args) {
+    if (isLoggable(Log.DEBUG)) {
+      Log.d(tag, String.format(format, args));
+    }
+  }
+
+  public static void i(String tag, String message) {
+    if (isLoggable(Log.INFO)) {
+      Log.i(tag, message);
+    }
+  }
+
+  public static void i(String tag, String format, Object arg1) {
+    if (isLoggable(Log.INFO)) {
+      Log.i(tag, String.format(format, arg1));
+    }
+  }
+
+  public static void i(String tag, String format, Object arg1, Object arg2) {
+    if (isLoggable(Log.INFO)) {
+      Log.i(tag, String.format(format, arg1, arg2));
+    }
+  }
+
+  public static void i(String tag, String format, Object... args) {
+    if (isLoggable(Log.INFO)) {
+      Log.i(tag, String.format(format, args));
+    }
+  }
+
+  public static void w(String tag, String message) {
+    if (isLoggable(Log.WARN)) {
+      Log.w(tag, message);
+    }
+  }
+
+  public static void w(String tag, String message, Throwable throwable) {
+    if (isLoggable(Log.WARN)) {
+      Log.w(tag, message, throwable);
+    }
+  }
+
+  public static void w(String tag, String format, Object arg1) {
+    if (isLoggable(Log.WARN)) {
+      Log.w(tag, String.format(format, arg1));
+    }
+  }
+
+  public static void w(String tag, String format, Object arg1, Object arg2) {
+    if (isLoggable(Log.WARN)) {
+      Log.w(tag, String.format(format, arg1, arg2));
+    }
+  }
+
+  public static void w(String tag, String format, Object... args) {
+    if (isLoggable(Log.WARN)) {
+      Log.w(tag, String.format(format, args));
+    }
+  }
+
+  public static void e(String tag, String message) {
+    if (isLoggable(Log.ERROR)) {
+      Log.e(tag, message);
+    }
+  }
+
+  public static void e(String tag, String message, Throwable throwable) {
+    if (isLoggable(Log.ERROR)) {
+      Log.e(tag, message, throwable);
+    }
+  }
+
+  public static void e(String tag, String format, Object arg1) {
+    if (isLoggable(Log.ERROR)) {
+      Log.e(tag, String.format(format, arg1));
+    }
+  }
+
+  public static void e(String tag, String format, Object arg1, Object arg2) {
+    if (isLoggable(Log.ERROR)) {
+      Log.e(tag, String.format(format, arg1, arg2));
+    }
+  }
+
+  public static void e(String tag, String format, Object... args) {
+    if (isLoggable(Log.ERROR)) {
+      Log.e(tag, String.format(format, args));
+    }
+  }
+}
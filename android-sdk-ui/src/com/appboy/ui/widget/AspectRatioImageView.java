@@ -0,0 +1,58 @@
+package com.appboy.ui.widget;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.widget.ImageView;
+import com.appboy.ui.R;
+
+/**
+ * ImageView that derives its height from its width and a fixed aspect ratio (width / height) while it is being
+ * measured. This lets card images be sized in a single layout pass, before their image has been loaded.
+ *
+ * An aspect ratio of 0 (the default) disables this and the view measures itself like a regular ImageView.
+ */
+public class AspectRatioImageView extends ImageView {
+  private float mAspectRatio;
+
+  public AspectRatioImageView(Context context) {
+    super(context);
+  }
+
+  public AspectRatioImageView(Context context, AttributeSet attrs) {
+    this(context, attrs, 0);
+  }
+
+  public AspectRatioImageView(Context context, AttributeSet attrs, int defStyle) {
+    super(context, attrs, defStyle);
+    TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.AspectRatioImageView, defStyle, 0);
+    mAspectRatio = typedArray.getFloat(R.styleable.AspectRatioImageView_aspectRatio, 0f);
+    typedArray.recycle();
+  }
+
+  public float getAspectRatio() {
+    return mAspectRatio;
+  }
+
+  public void setAspectRatio(float aspectRatio) {
+    if (aspectRatio != mAspectRatio) {
+      mAspectRatio = aspectRatio;
+      requestLayout();
+    }
+  }
+
+  @Override
+  protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    if (mAspectRatio <= 0f || MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY) {
+      return;
+    }
+    int width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY
+        ? MeasureSpec.getSize(widthMeasureSpec) : getMeasuredWidth();
+    int height = (int) (width / mAspectRatio);
+    if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.AT_MOST) {
+      height = Math.min(height, MeasureSpec.getSize(heightMeasureSpec));
+    }
+    setMeasuredDimension(width, height);
+  }
+}
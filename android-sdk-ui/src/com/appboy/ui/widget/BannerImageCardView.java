@@ -2,7 +2,6 @@ package com.appboy.ui.widget;
 
 import android.content.Context;
 import android.view.View;
-import android.widget.ImageView;
 import com.appboy.Appboy;
 import com.appboy.models.cards.BannerImageCard;
 import com.appboy.ui.R;
@@ -10,7 +9,8 @@ import com.appboy.ui.actions.ActionFactory;
 import com.appboy.ui.actions.IAction;
 
 public class BannerImageCardView  extends BaseCardView<BannerImageCard> {
-  private final ImageView mImage;
+  private static final float IMAGE_ASPECT_RATIO = 6f;
+  private final AspectRatioImageView mImage;
   private IAction mCardAction;
 
   public BannerImageCardView(Context context) {
@@ -19,7 +19,8 @@ public class BannerImageCardView  extends BaseCardView<BannerImageCard> {
 
   public BannerImageCardView(final Context context, BannerImageCard card) {
     super(context);
-    mImage = (ImageView) findViewById(R.id.com_appboy_banner_image_card_image);
+    mImage = (AspectRatioImageView) findViewById(R.id.com_appboy_banner_image_card_image);
+    mImage.setAspectRatio(IMAGE_ASPECT_RATIO);
 
     if (card != null) {
       setCard(card);
@@ -35,7 +36,7 @@ public class BannerImageCardView  extends BaseCardView<BannerImageCard> {
 
   @Override
   public void onSetCard(final BannerImageCard card) {
-    setImageViewToUrl(mImage, card.getImageUrl(), 6f);
+    setImageViewToUrl(mImage, card.getImageUrl(), IMAGE_ASPECT_RATIO);
     mCardAction = ActionFactory.createUriAction(getContext(), card.getUrl());
 
     setOnClickListener(new OnClickListener() {
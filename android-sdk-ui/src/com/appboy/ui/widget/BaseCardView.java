@@ -3,23 +3,22 @@ package com.appboy.ui.widget;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.drawable.Drawable;
-import android.util.Log;
 import android.view.LayoutInflater;
-import android.view.ViewTreeObserver;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
-import com.appboy.Appboy;
-import com.appboy.Constants;
 import com.appboy.models.cards.Card;
+import com.appboy.ui.images.AppboyImageLoader;
+import com.appboy.ui.support.AppboyLogger;
 import com.appboy.ui.support.StringUtils;
 
 /**
  * Base class for Appboy feed card views
  */
 public abstract class BaseCardView<T extends Card> extends RelativeLayout {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, BaseCardView.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(BaseCardView.class);
 
   protected final Context mContext;
   protected T mCard;
@@ -72,45 +71,40 @@ public abstract class BaseCardView<T extends Card> extends RelativeLayout {
   }
 
   /**
-   * Asynchronously fetches the image at the given imageUrl and displays the image in the ImageView. No image will be
-   * displayed if the image cannot be downloaded or fetched from the cache.
+   * Asynchronously fetches the image at the given imageUrl and displays the image in the ImageView. The image is
+   * decoded at about the size it will be displayed at, based on the layout width of the ImageView and the aspect ratio.
+   * No image will be displayed if the image cannot be downloaded or fetched from the cache.
    *
    * @param imageView the ImageView in which to display the image
    * @param imageUrl the URL of the image resource
+   * @param aspectRatio the width / height ratio the image will be displayed at. Views that need a fixed aspect ratio
+   *                    should size themselves, e.g. with {@link AspectRatioImageView}.
    */
   void setImageViewToUrl(final ImageView imageView, final String imageUrl, final float aspectRatio) {
     if (imageUrl == null) {
-      Log.w(TAG, "The image url to render is null. Not setting the card image.");
+      AppboyLogger.w(TAG, "The image url to render is null. Not setting the card image.");
       return;
     }
 
-    if (aspectRatio != 1) {
-      ViewTreeObserver viewTreeObserver = imageView.getViewTreeObserver();
-      if (viewTreeObserver.isAlive()) {
-        viewTreeObserver.addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
-          @Override
-          public void onGlobalLayout() {
-            int width = imageView.getWidth();
-            imageView.setLayoutParams(new LayoutParams(width, (int) (width / aspectRatio)));
-            safeRemoveOnGlobalLayoutListener(imageView.getViewTreeObserver(), this);
-          }
-        });
-      }
-    }
-
     if (!imageUrl.equals(imageView.getTag())) {
-      imageView.setImageResource(android.R.color.transparent);
-      Appboy.getInstance(getContext()).fetchAndRenderImage(imageUrl, imageView);
+      int targetWidth = getTargetImageWidth(imageView);
+      int targetHeight = (int) (targetWidth / aspectRatio);
+      AppboyImageLoader.getInstance(getContext()).loadImage(imageView, imageUrl, targetWidth, targetHeight);
       imageView.setTag(imageUrl);
     }
   }
 
-  private void safeRemoveOnGlobalLayoutListener(ViewTreeObserver viewTreeObserver,
-                                                ViewTreeObserver.OnGlobalLayoutListener onGlobalLayoutListener) {
-    if (android.os.Build.VERSION.SDK_INT < 16) {
-      viewTreeObserver.removeGlobalOnLayoutListener(onGlobalLayoutListener);
-    } else {
-      viewTreeObserver.removeOnGlobalLayoutListener(onGlobalLayoutListener);
+  /**
+   * @return The width the image is decoded at. This is the ImageView's fixed layout width if it has one, or otherwise
+   *         the width of the display, which is an upper bound for the full width images used by the cards. The
+   *         measured width isn't used, since it is only known once the view has been laid out, and the memory cache
+   *         would then hold the same image decoded at two sizes.
+   */
+  private int getTargetImageWidth(ImageView imageView) {
+    ViewGroup.LayoutParams layoutParams = imageView.getLayoutParams();
+    if (layoutParams != null && layoutParams.width > 0) {
+      return layoutParams.width;
     }
+    return getResources().getDisplayMetrics().widthPixels;
   }
 }
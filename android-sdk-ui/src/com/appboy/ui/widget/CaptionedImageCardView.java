@@ -2,7 +2,6 @@ package com.appboy.ui.widget;
 
 import android.content.Context;
 import android.view.View;
-import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.appboy.Appboy;
@@ -14,7 +13,8 @@ import com.appboy.ui.actions.WebAction;
 import com.appboy.ui.support.StringUtils;
 
 public class CaptionedImageCardView  extends BaseCardView<CaptionedImageCard> {
-  private final ImageView mImage;
+  private static final float IMAGE_ASPECT_RATIO = 1.5f;
+  private final AspectRatioImageView mImage;
   private final TextView mTitle;
   private final TextView mDescription;
   private final TextView mDomain;
@@ -26,7 +26,8 @@ public class CaptionedImageCardView  extends BaseCardView<CaptionedImageCard> {
 
   public CaptionedImageCardView(final Context context, CaptionedImageCard card) {
     super(context);
-    mImage = (ImageView) findViewById(R.id.com_appboy_captioned_image_card_image);
+    mImage = (AspectRatioImageView) findViewById(R.id.com_appboy_captioned_image_card_image);
+    mImage.setAspectRatio(IMAGE_ASPECT_RATIO);
     mTitle = (TextView) findViewById(R.id.com_appboy_captioned_image_title);
     mDescription = (TextView) findViewById(R.id.com_appboy_captioned_image_description);
     mDomain = (TextView) findViewById(R.id.com_appboy_captioned_image_card_domain);
@@ -60,6 +61,6 @@ public class CaptionedImageCardView  extends BaseCardView<CaptionedImageCard> {
       }
     });
 
-    setImageViewToUrl(mImage, card.getImageUrl(), 1.5f);
+    setImageViewToUrl(mImage, card.getImageUrl(), IMAGE_ASPECT_RATIO);
   }
 }
@@ -3,7 +3,6 @@ package com.appboy.ui.widget;
 import android.content.Context;
 import android.view.View;
 import android.widget.Button;
-import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.appboy.Appboy;
@@ -16,10 +15,11 @@ import java.text.NumberFormat;
 import java.util.Locale;
 
 public class CrossPromotionLargeCardView extends BaseCardView<CrossPromotionLargeCard> {
+  private static final float IMAGE_ASPECT_RATIO = 1.5f;
 
   private final TextView mTitle;
   private final TextView mSubtitle;
-  private final ImageView mImage;
+  private final AspectRatioImageView mImage;
   private final StarRatingView mStarRating;
   private final TextView mReviewCount;
   private final Button mPrice;
@@ -34,7 +34,8 @@ public class CrossPromotionLargeCardView extends BaseCardView<CrossPromotionLarg
     super(context);
     mTitle = (TextView) findViewById(R.id.com_appboy_cross_promotion_large_card_title);
     mSubtitle = (TextView) findViewById(R.id.com_appboy_cross_promotion_large_card_subtitle);
-    mImage = (ImageView) findViewById(R.id.com_appboy_cross_promotion_large_card_image);
+    mImage = (AspectRatioImageView) findViewById(R.id.com_appboy_cross_promotion_large_card_image);
+    mImage.setAspectRatio(IMAGE_ASPECT_RATIO);
     mStarRating = (StarRatingView) findViewById(R.id.com_appboy_cross_promotion_large_card_star_rating);
     mReviewCount = (TextView) findViewById(R.id.com_appboy_cross_promotion_large_card_review_count);
     mDescription = (TextView) findViewById(R.id.com_appboy_cross_promotion_large_description);
@@ -69,7 +70,7 @@ public class CrossPromotionLargeCardView extends BaseCardView<CrossPromotionLarg
       }
     });
 
-    setImageViewToUrl(mImage, card.getImageUrl(), 1.5f);
+    setImageViewToUrl(mImage, card.getImageUrl(), IMAGE_ASPECT_RATIO);
   }
 
   private String getPriceString(double price) {
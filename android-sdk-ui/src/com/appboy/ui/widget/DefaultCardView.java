@@ -1,13 +1,12 @@
 package com.appboy.ui.widget;
 
 import android.content.Context;
-import android.util.Log;
-import com.appboy.Constants;
 import com.appboy.models.cards.Card;
 import com.appboy.ui.R;
+import com.appboy.ui.support.AppboyLogger;
 
 public class DefaultCardView extends BaseCardView<Card> {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, DefaultCardView.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(DefaultCardView.class);
 
   public DefaultCardView(Context context) {
     this(context, null);
@@ -27,6 +26,6 @@ public class DefaultCardView extends BaseCardView<Card> {
   }
 
   @Override public void onSetCard(Card card) {
-    Log.w(TAG, "onSetCard called for blank view with: " + card.toString());
+    AppboyLogger.w(TAG, "onSetCard called for blank view with: %s", card);
   }
 }
@@ -4,18 +4,17 @@ import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
-import com.appboy.Constants;
 import com.appboy.ui.R;
+import com.appboy.ui.support.AppboyLogger;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class StarRatingView extends LinearLayout {
-  private static final String TAG = String.format("%s.%s", Constants.APPBOY, StarRatingView.class.getName());
+  private static final String TAG = AppboyLogger.getAppboyTag(StarRatingView.class);
 
   private int mNumStars;
   private List<ImageView> mStarRating;
@@ -38,7 +37,7 @@ public class StarRatingView extends LinearLayout {
 
   public boolean setRating(float rating) {
     if (rating < 0 || rating > mNumStars) {
-      Log.e(TAG, String.format("Unable to set rating to %f. Rating must be between 0 and %d", rating, mNumStars));
+      AppboyLogger.e(TAG, "Unable to set rating to %f. Rating must be between 0 and %d", rating, mNumStars);
       return false;
     }
 
@@ -0,0 +1,202 @@
+package com.appboy;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.IBinder;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowNotificationManager;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AppboyGcmReceiverTest {
+  private static final String GCM_RECEIVE_INTENT_ACTION = "com.google.android.c2dm.intent.RECEIVE";
+  private static final int MESSAGE_COUNT = 1000;
+  private static final int NOTIFICATION_BURST_SIZE = 50;
+  private static final long TIMEOUT_MS = 30000l;
+  // A loose bound on the main thread time of a message, far above the cost of handing it to the worker thread, so
+  // that only a regression such as handling messages on the main thread fails the test.
+  private static final long MAX_MAIN_THREAD_NANOS_PER_MESSAGE = 1000000l;
+
+  private AppboyGcmReceiver mReceiver;
+
+  @Before
+  public void setUp() {
+    mReceiver = new AppboyGcmReceiver();
+  }
+
+  @Test
+  public void dataPushesAreHandledInOrderOffTheMainThread() throws InterruptedException {
+    BroadcastRecordingContext context = new BroadcastRecordingContext(RuntimeEnvironment.application, MESSAGE_COUNT);
+    Intent[] intents = new Intent[MESSAGE_COUNT];
+    for (int i = 0; i < MESSAGE_COUNT; i++) {
+      intents[i] = createDataPush(i);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MESSAGE_COUNT; i++) {
+      mReceiver.onReceive(context, intents[i]);
+    }
+    long mainThreadNanosPerMessage = (System.nanoTime() - start) / MESSAGE_COUNT;
+
+    System.out.println("AppboyGcmReceiver.onReceive: " + mainThreadNanosPerMessage + " ns on the main thread per "
+        + "message");
+    assertTrue("onReceive took " + mainThreadNanosPerMessage + " ns",
+        mainThreadNanosPerMessage < MAX_MAIN_THREAD_NANOS_PER_MESSAGE);
+    assertTrue(context.mBroadcastsSent.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertEquals(MESSAGE_COUNT, context.mBroadcastIntents.size());
+    for (int i = 0; i < MESSAGE_COUNT; i++) {
+      Intent broadcastIntent = context.mBroadcastIntents.get(i);
+      assertEquals(context.getPackageName() + ".intent.APPBOY_PUSH_RECEIVED", broadcastIntent.getAction());
+      Bundle appboyExtras = broadcastIntent.getBundleExtra(Constants.APPBOY_GCM_EXTRAS_KEY);
+      assertEquals(String.valueOf(i), appboyExtras.getString("index"));
+    }
+    for (Thread thread : context.mBroadcastThreads) {
+      assertNotSame(Looper.getMainLooper().getThread(), thread);
+    }
+  }
+
+  @Test
+  public void messagesNotFromAppboyAreIgnored() throws InterruptedException {
+    BroadcastRecordingContext context = new BroadcastRecordingContext(RuntimeEnvironment.application, 1);
+    Intent intent = createDataPush(0);
+    intent.removeExtra(Constants.APPBOY_GCM_APPBOY_KEY);
+    mReceiver.onReceive(context, intent);
+    // Messages are handled in order, so once the Appboy message sent afterwards is broadcast, the other one has been
+    // handled too.
+    mReceiver.onReceive(context, createDataPush(1));
+
+    assertTrue(context.mBroadcastsSent.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertEquals(1, context.mBroadcastIntents.size());
+    assertEquals("1", context.mBroadcastIntents.get(0).getBundleExtra(Constants.APPBOY_GCM_EXTRAS_KEY)
+        .getString("index"));
+  }
+
+  @Test
+  @Config(sdk = Build.VERSION_CODES.KITKAT)
+  public void aBurstOfOrderedNotificationPushesIsCoalesced() throws Exception {
+    BroadcastRecordingContext context = new BroadcastRecordingContext(RuntimeEnvironment.application,
+        NOTIFICATION_BURST_SIZE);
+    ShadowNotificationManager notificationManager =
+        shadowOf((NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE));
+    // Like GCM, each push is only delivered once the previous one is finished, and no time passes on the main thread
+    // meanwhile, so a push that waited for its notification to be posted would never be finished.
+    for (int i = 0; i < NOTIFICATION_BURST_SIZE; i++) {
+      deliverOrderedBroadcast(context, createNotificationPush("ordered-burst", i));
+    }
+
+    assertTrue(context.mBroadcastsSent.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertEquals(1, notificationManager.size());
+    assertEquals(0, notificationManager.getAllNotifications().get(0).number);
+
+    // The rest of the burst is posted in a single update, at the end of the rate limiting interval.
+    ShadowLooper.idleMainLooper(NotificationCoalescer.MIN_NOTIFY_INTERVAL_MS);
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    Notification notification = notificationManager.getAllNotifications().get(0);
+    while (notification.number != NOTIFICATION_BURST_SIZE && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10l);
+      notification = notificationManager.getAllNotifications().get(0);
+    }
+    assertEquals(1, notificationManager.size());
+    assertEquals(NOTIFICATION_BURST_SIZE, notification.number);
+  }
+
+  /**
+   * Delivers the intent as an ordered broadcast, the way GCM messages are delivered, and waits for the receiver to
+   * finish it. The pending result of a broadcast can only be created through reflection, as it isn't part of the SDK.
+   */
+  private void deliverOrderedBroadcast(Context context, Intent intent) throws Exception {
+    Constructor<BroadcastReceiver.PendingResult> constructor = BroadcastReceiver.PendingResult.class.getConstructor(
+        int.class, String.class, Bundle.class, int.class, boolean.class, boolean.class, IBinder.class, int.class);
+    int registeredType = BroadcastReceiver.PendingResult.class.getField("TYPE_REGISTERED").getInt(null);
+    BroadcastReceiver.PendingResult pendingResult =
+        constructor.newInstance(0, null, null, registeredType, true, false, null, 0);
+    BroadcastReceiver.class.getMethod("setPendingResult", BroadcastReceiver.PendingResult.class)
+        .invoke(mReceiver, pendingResult);
+    Field finishedField = BroadcastReceiver.PendingResult.class.getDeclaredField("mFinished");
+    finishedField.setAccessible(true);
+
+    mReceiver.onReceive(context, intent);
+
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (true) {
+      synchronized (pendingResult) {
+        if (finishedField.getBoolean(pendingResult)) {
+          return;
+        }
+      }
+      if (System.currentTimeMillis() > deadline) {
+        fail("The broadcast of " + intent + " wasn't finished.");
+      }
+      Thread.sleep(1l);
+    }
+  }
+
+  private static Intent createNotificationPush(String campaignId, int index) {
+    Intent intent = createDataPush(index);
+    intent.putExtra(Constants.APPBOY_GCM_CAMPAIGN_ID_KEY, campaignId);
+    intent.putExtra(Constants.APPBOY_GCM_TITLE_KEY, "Title " + index);
+    intent.putExtra(Constants.APPBOY_GCM_CONTENT_KEY, "Message " + index);
+    return intent;
+  }
+
+  private static Intent createDataPush(int index) {
+    Intent intent = new Intent(GCM_RECEIVE_INTENT_ACTION);
+    intent.putExtra(Constants.APPBOY_GCM_APPBOY_KEY, "true");
+    intent.putExtra(Constants.APPBOY_GCM_EXTRAS_KEY, "{\"index\":" + index + ",\"type\":\"benchmark\"}");
+    return intent;
+  }
+
+  /**
+   * Records the broadcasts sent by the receiver, along with the thread they were sent from. The receiver passes its
+   * application context on to its worker, so this context is its own application context.
+   */
+  private static class BroadcastRecordingContext extends ContextWrapper {
+    final List<Intent> mBroadcastIntents = Collections.synchronizedList(new ArrayList<Intent>());
+    final List<Thread> mBroadcastThreads = Collections.synchronizedList(new ArrayList<Thread>());
+    final CountDownLatch mBroadcastsSent;
+
+    BroadcastRecordingContext(Context base, int expectedBroadcastCount) {
+      super(base);
+      mBroadcastsSent = new CountDownLatch(expectedBroadcastCount);
+    }
+
+    @Override
+    public Context getApplicationContext() {
+      return this;
+    }
+
+    @Override
+    public void sendBroadcast(Intent intent) {
+      mBroadcastIntents.add(intent);
+      mBroadcastThreads.add(Thread.currentThread());
+      mBroadcastsSent.countDown();
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package com.appboy;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Bundle;
+
+import com.appboy.configuration.XmlAppConfigurationProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowNotificationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class NotificationCoalescerTest {
+  private static final int BURST_SIZE = 50;
+  private static final Executor DIRECT_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable runnable) {
+      runnable.run();
+    }
+  };
+  private static final Executor DROPPING_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable runnable) {}
+  };
+
+  private Context mContext;
+  private XmlAppConfigurationProvider mAppConfigurationProvider;
+  private ShadowNotificationManager mNotificationManager;
+  private NotificationCoalescer mCoalescer;
+
+  @Before
+  public void setUp() {
+    mContext = RuntimeEnvironment.application;
+    mAppConfigurationProvider = new XmlAppConfigurationProvider(mContext);
+    mNotificationManager = shadowOf((NotificationManager) mContext.getSystemService(Context.NOTIFICATION_SERVICE));
+    mCoalescer = new NotificationCoalescer(DIRECT_EXECUTOR);
+  }
+
+  @Test
+  public void burstIsCoalescedIntoOneDeferredUpdate() {
+    for (int i = 0; i < BURST_SIZE; i++) {
+      mCoalescer.add(mContext, mAppConfigurationProvider, createPush("campaign", i), null);
+    }
+
+    // The first push is posted right away, and the rest wait for the end of the rate limiting interval.
+    assertEquals(1, mNotificationManager.size());
+    assertEquals(0, getOnlyNotification().number);
+
+    ShadowLooper.idleMainLooper(NotificationCoalescer.MIN_NOTIFY_INTERVAL_MS);
+
+    assertEquals(1, mNotificationManager.size());
+    assertEquals(BURST_SIZE, getOnlyNotification().number);
+  }
+
+  @Test
+  public void deferredUpdateIsPostedAfterAProcessRestart() {
+    // The deferred update of the first process is never posted, as if the process was killed before.
+    NotificationCoalescer killedCoalescer = new NotificationCoalescer(DROPPING_EXECUTOR);
+    killedCoalescer.add(mContext, mAppConfigurationProvider, createPush("campaign", 0), null);
+    killedCoalescer.add(mContext, mAppConfigurationProvider, createPush("campaign", 1), null);
+    ShadowLooper.idleMainLooper(NotificationCoalescer.MIN_NOTIFY_INTERVAL_MS);
+    assertEquals(0, getOnlyNotification().number);
+
+    // The next push restores the group, whose notification is posted right away and then updated with the new push.
+    Bundle pushAfterRestart = createPush("campaign", 2);
+    mCoalescer.add(mContext, mAppConfigurationProvider, pushAfterRestart, null);
+    assertEquals(1, mNotificationManager.size());
+    assertEquals(2, getOnlyNotification().number);
+    ShadowLooper.idleMainLooper(NotificationCoalescer.MIN_NOTIFY_INTERVAL_MS);
+
+    assertEquals(1, mNotificationManager.size());
+    assertEquals(3, getOnlyNotification().number);
+    assertEquals("Title 2", shadowOf(getNotification(pushAfterRestart)).getContentTitle());
+  }
+
+  @Test
+  public void pushesAreGroupedByCampaign() {
+    Bundle first = createPush("first", 0);
+    Bundle second = createPush("second", 1);
+    Bundle firstAgain = createPush("first", 2);
+    mCoalescer.add(mContext, mAppConfigurationProvider, first, null);
+    mCoalescer.add(mContext, mAppConfigurationProvider, second, null);
+    mCoalescer.add(mContext, mAppConfigurationProvider, firstAgain, null);
+    ShadowLooper.idleMainLooper(NotificationCoalescer.MIN_NOTIFY_INTERVAL_MS);
+
+    assertEquals(2, mNotificationManager.size());
+    assertNotEquals(getNotificationId(first), getNotificationId(second));
+    assertEquals(getNotificationId(first), getNotificationId(firstAgain));
+    assertEquals(2, getNotification(first).number);
+  }
+
+  @Test
+  public void pushesAreGroupedByTheGroupKeyExtra() {
+    mCoalescer.setGroupKeyExtra("thread");
+    Bundle first = createPush("first", 0);
+    first.getBundle(Constants.APPBOY_GCM_EXTRAS_KEY).putString("thread", "conversation");
+    Bundle second = createPush("second", 1);
+    second.getBundle(Constants.APPBOY_GCM_EXTRAS_KEY).putString("thread", "conversation");
+    Bundle withoutExtra = createPush("first", 2);
+    mCoalescer.add(mContext, mAppConfigurationProvider, first, null);
+    mCoalescer.add(mContext, mAppConfigurationProvider, second, null);
+    mCoalescer.add(mContext, mAppConfigurationProvider, withoutExtra, null);
+
+    assertEquals(getNotificationId(first), getNotificationId(second));
+    assertNotEquals(getNotificationId(first), getNotificationId(withoutExtra));
+  }
+
+  @Test
+  public void pushOutsideTheCoalescingWindowReplacesTheNotification() {
+    mCoalescer.setCoalescingWindowMillis(0l);
+    for (int i = 0; i < 3; i++) {
+      ShadowLooper.idleMainLooper(1l);
+      mCoalescer.add(mContext, mAppConfigurationProvider, createPush("campaign", i), null);
+    }
+    ShadowLooper.idleMainLooper(NotificationCoalescer.MIN_NOTIFY_INTERVAL_MS);
+
+    // The notification only shows the latest push.
+    assertEquals(1, mNotificationManager.size());
+    assertEquals(0, getOnlyNotification().number);
+  }
+
+  @Test
+  public void notificationIdsAreStableAcrossProcessRestarts() {
+    Bundle push = createPush("campaign", 0);
+    mCoalescer.add(mContext, mAppConfigurationProvider, push, null);
+
+    NotificationCoalescer restartedCoalescer = new NotificationCoalescer(DIRECT_EXECUTOR);
+    Bundle pushAfterRestart = createPush("campaign", 1);
+    restartedCoalescer.add(mContext, mAppConfigurationProvider, pushAfterRestart, null);
+    Bundle otherPushAfterRestart = createPush("other", 2);
+    restartedCoalescer.add(mContext, mAppConfigurationProvider, otherPushAfterRestart, null);
+
+    assertEquals(getNotificationId(push), getNotificationId(pushAfterRestart));
+    assertNotEquals(getNotificationId(push), getNotificationId(otherPushAfterRestart));
+  }
+
+  @Test
+  public void notificationIdsAreNeverShared() {
+    Set<Integer> notificationIds = new HashSet<Integer>();
+    for (int i = 0; i < 1000; i++) {
+      Bundle push = createPush("campaign" + i, i);
+      mCoalescer.add(mContext, mAppConfigurationProvider, push, null);
+      assertTrue(notificationIds.add(getNotificationId(push)));
+    }
+    // Pushes without a campaign get a notification of their own.
+    for (int i = 0; i < 10; i++) {
+      Bundle push = createPush(null, i);
+      mCoalescer.add(mContext, mAppConfigurationProvider, push, null);
+      assertTrue(notificationIds.add(getNotificationId(push)));
+    }
+  }
+
+  private Notification getOnlyNotification() {
+    return mNotificationManager.getAllNotifications().get(0);
+  }
+
+  private Notification getNotification(Bundle push) {
+    return mNotificationManager.getNotification(Constants.APPBOY_GCM_NOTIFICATION_TAG, getNotificationId(push));
+  }
+
+  private static int getNotificationId(Bundle push) {
+    return push.getInt(Constants.APPBOY_GCM_NOTIFICATION_ID);
+  }
+
+  private static Bundle createPush(String campaignId, int index) {
+    Bundle push = new Bundle();
+    if (campaignId != null) {
+      push.putString(Constants.APPBOY_GCM_CAMPAIGN_ID_KEY, campaignId);
+    }
+    push.putString(Constants.APPBOY_GCM_TITLE_KEY, "Title " + index);
+    push.putString(Constants.APPBOY_GCM_CONTENT_KEY, "Message " + index);
+    push.putBundle(Constants.APPBOY_GCM_EXTRAS_KEY, new Bundle());
+    return push;
+  }
+}
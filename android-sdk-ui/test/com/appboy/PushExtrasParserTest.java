@@ -0,0 +1,159 @@
+package com.appboy;
+
+import android.os.Bundle;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PushExtrasParserTest {
+  private static final String EXTRAS = "{\"string\":\"value\",\"escaped\":\"a \\\"quoted\\\" \\u00e9\",\"int\":42,"
+      + "\"negative\":-7,\"long\":12345678901,\"double\":1.5,\"wholeDouble\":2.0,\"exponent\":1e3,"
+      + "\"boolean\":true,\"null\":null,\"object\":{\"nested\":{\"value\":2.0,\"flag\":false}},"
+      + "\"array\":[1,\"two\",{\"three\":3},[4.0],null],\"empty\":{}}";
+
+  @Test
+  public void parseMatchesJsonObjectGetString() throws JSONException {
+    Bundle bundle = PushExtrasParser.parse(EXTRAS, false);
+
+    JSONObject json = new JSONObject(EXTRAS);
+    assertEquals(json.length(), bundle.size());
+    Iterator keys = json.keys();
+    while (keys.hasNext()) {
+      String key = (String) keys.next();
+      assertEquals(key, normalize(json.getString(key)), normalize(bundle.getString(key)));
+    }
+  }
+
+  @Test
+  public void parseTypedKeepsTheTypesOfValues() {
+    Bundle bundle = PushExtrasParser.parse(EXTRAS, true);
+
+    assertEquals("value", bundle.getString("string"));
+    assertEquals("a \"quoted\" \u00e9", bundle.getString("escaped"));
+    assertEquals(42, bundle.get("int"));
+    assertEquals(-7, bundle.get("negative"));
+    assertEquals(12345678901l, bundle.get("long"));
+    assertEquals(1.5, bundle.get("double"));
+    assertEquals(2.0, bundle.get("wholeDouble"));
+    assertEquals(1000.0, bundle.get("exponent"));
+    assertEquals(true, bundle.get("boolean"));
+    assertTrue(bundle.containsKey("null"));
+    assertNull(bundle.get("null"));
+    Bundle nested = bundle.getBundle("object").getBundle("nested");
+    assertEquals(2.0, nested.get("value"));
+    assertEquals(false, nested.get("flag"));
+    assertEquals("[1,\"two\",{\"three\":3},[4],null]", bundle.getString("array"));
+    assertTrue(bundle.getBundle("empty").isEmpty());
+  }
+
+  @Test
+  public void parseEmptyObject() {
+    assertTrue(PushExtrasParser.parse("{}", false).isEmpty());
+    assertTrue(PushExtrasParser.parse("{}", true).isEmpty());
+  }
+
+  @Test
+  public void parseRejectsInvalidJson() {
+    String[] invalidExtras = {"", "not json", "{\"key\":", "{\"key\":\"value\"", "[1,2]", "\"string\"",
+        "{\"key\":\"value\"} trailing", "{\"key\":\"value\"}{}"};
+    for (String extras : invalidExtras) {
+      assertNull(extras, PushExtrasParser.parse(extras, false));
+      assertNull(extras, PushExtrasParser.parse(extras, true));
+    }
+  }
+
+  @Test
+  public void parseRejectsExtrasOverTheLengthLimit() {
+    String value = createString(PushExtrasParser.MAX_EXTRAS_LENGTH - "{\"key\":\"\"}".length());
+    String longestExtras = "{\"key\":\"" + value + "\"}";
+    assertEquals(PushExtrasParser.MAX_EXTRAS_LENGTH, longestExtras.length());
+
+    assertEquals(value, PushExtrasParser.parse(longestExtras, false).getString("key"));
+    assertNull(PushExtrasParser.parse("{\"key\":\"" + value + "x\"}", false));
+    assertNull(PushExtrasParser.parse("{\"key\":\"" + value + "x\"}", true));
+  }
+
+  @Test
+  public void parseRejectsExtrasNestedTooDeeply() {
+    for (boolean typed : new boolean[] {false, true}) {
+      assertNotNull(PushExtrasParser.parse(createNestedObjects(PushExtrasParser.MAX_NESTING_DEPTH), typed));
+      assertNull(PushExtrasParser.parse(createNestedObjects(PushExtrasParser.MAX_NESTING_DEPTH + 1), typed));
+      assertNotNull(PushExtrasParser.parse(createNestedArrays(PushExtrasParser.MAX_NESTING_DEPTH), typed));
+      assertNull(PushExtrasParser.parse(createNestedArrays(PushExtrasParser.MAX_NESTING_DEPTH + 1), typed));
+    }
+  }
+
+  @Test
+  public void parseKeepsTheLastValueOfDuplicateKeys() {
+    Bundle bundle = PushExtrasParser.parse("{\"key\":\"first\",\"key\":\"second\"}", false);
+
+    assertEquals(1, bundle.size());
+    assertEquals("second", bundle.getString("key"));
+    assertFalse(bundle.containsKey("first"));
+  }
+
+  /**
+   * Reformats nested JSON with JSONObject, whose key order differs between the JVM and Android.
+   */
+  private static String normalize(String value) throws JSONException {
+    if (value.startsWith("{")) {
+      return new JSONObject(value).toString();
+    } else if (value.startsWith("[")) {
+      return new JSONArray(value).toString();
+    }
+    return value;
+  }
+
+  /**
+   * @return Extras whose value is nested the given number of objects below the extras object.
+   */
+  private static String createNestedObjects(int depth) {
+    StringBuilder json = new StringBuilder("{");
+    for (int i = 0; i < depth; i++) {
+      json.append("\"level").append(i).append("\":{");
+    }
+    json.append("\"value\":1");
+    for (int i = 0; i <= depth; i++) {
+      json.append('}');
+    }
+    return json.toString();
+  }
+
+  /**
+   * @return Extras whose value is nested the given number of arrays below the extras object.
+   */
+  private static String createNestedArrays(int depth) {
+    StringBuilder json = new StringBuilder("{\"value\":");
+    for (int i = 0; i < depth; i++) {
+      json.append('[');
+    }
+    json.append('1');
+    for (int i = 0; i < depth; i++) {
+      json.append(']');
+    }
+    return json.append('}').toString();
+  }
+
+  private static String createString(int length) {
+    StringBuilder string = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      string.append((char) ('a' + i % 26));
+    }
+    return string.toString();
+  }
+}
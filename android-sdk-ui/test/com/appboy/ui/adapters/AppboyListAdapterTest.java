@@ -0,0 +1,154 @@
+package com.appboy.ui.adapters;
+
+import android.database.DataSetObserver;
+
+import com.appboy.models.cards.Card;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AppboyListAdapterTest {
+  private static final int[] FEED_SIZES = {1000, 5000, 10000};
+
+  private AppboyListAdapter mAdapter;
+  private int mChangeCount;
+
+  @Before
+  public void setUp() {
+    mAdapter = new AppboyListAdapter(RuntimeEnvironment.application, 0, new ArrayList<Card>());
+    mAdapter.registerDataSetObserver(new DataSetObserver() {
+      @Override
+      public void onChanged() {
+        mChangeCount++;
+      }
+    });
+  }
+
+  @Test
+  public void replaceFeedWithIdenticalFeedDoesNotNotify() throws JSONException {
+    for (int feedSize : FEED_SIZES) {
+      mAdapter.replaceFeed(createFeed(feedSize, 0));
+      mChangeCount = 0;
+
+      mAdapter.replaceFeed(createFeed(feedSize, 0));
+
+      assertEquals(0, mChangeCount);
+      assertEquals(feedSize, mAdapter.getCount());
+    }
+  }
+
+  @Test
+  public void replaceFeedRetainsInstancesOfUnchangedCards() throws JSONException {
+    for (int feedSize : FEED_SIZES) {
+      mAdapter.clear();
+      List<Card> existingFeed = createFeed(feedSize, 0);
+      mAdapter.replaceFeed(existingFeed);
+      List<Card> newFeed = createFeed(feedSize, 0);
+      // Updates every tenth card.
+      for (int i = 0; i < feedSize; i += 10) {
+        newFeed.set(i, createCard("card" + i, 1));
+      }
+      mChangeCount = 0;
+
+      mAdapter.replaceFeed(newFeed);
+
+      assertEquals(1, mChangeCount);
+      assertEquals(feedSize, mAdapter.getCount());
+      for (int i = 0; i < feedSize; i++) {
+        if (i % 10 == 0) {
+          assertSame(newFeed.get(i), mAdapter.getItem(i));
+        } else {
+          assertSame(existingFeed.get(i), mAdapter.getItem(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void replaceFeedAppliesInsertionsRemovalsAndMoves() throws JSONException {
+    Random random = new Random(42);
+    for (int feedSize : FEED_SIZES) {
+      mAdapter.clear();
+      List<Card> existingFeed = createFeed(feedSize, 0);
+      mAdapter.replaceFeed(existingFeed);
+
+      // Removes a tenth of the cards, inserts as many new ones and shuffles the result.
+      List<Card> newFeed = new ArrayList<Card>(createFeed(feedSize, 0).subList(feedSize / 10, feedSize));
+      for (int i = 0; i < feedSize / 10; i++) {
+        newFeed.add(createCard("new" + i, 0));
+      }
+      Collections.shuffle(newFeed, random);
+      mChangeCount = 0;
+
+      mAdapter.replaceFeed(newFeed);
+
+      assertEquals(1, mChangeCount);
+      assertEquals(newFeed.size(), mAdapter.getCount());
+      for (int i = 0; i < newFeed.size(); i++) {
+        Card card = mAdapter.getItem(i);
+        assertEquals(newFeed.get(i).getId(), card.getId());
+        if (card.getId().startsWith("new")) {
+          assertSame(newFeed.get(i), card);
+        } else {
+          int existingIndex = Integer.parseInt(card.getId().substring("card".length()));
+          assertSame(existingFeed.get(existingIndex), card);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void replaceFeedReplacesUpdatedCards() throws JSONException {
+    Card card = createCard("card", 0);
+    mAdapter.replaceFeed(Collections.singletonList(card));
+    Card updatedCard = createCard("card", 1);
+
+    mAdapter.replaceFeed(Collections.singletonList(updatedCard));
+
+    assertSame(updatedCard, mAdapter.getItem(0));
+    assertNotSame(card, mAdapter.getItem(0));
+  }
+
+  @Test
+  public void replaceFeedWithNullClearsTheFeed() throws JSONException {
+    mAdapter.replaceFeed(createFeed(10, 0));
+    mChangeCount = 0;
+
+    mAdapter.replaceFeed(null);
+
+    assertEquals(0, mAdapter.getCount());
+    assertEquals(1, mChangeCount);
+  }
+
+  private static List<Card> createFeed(int size, long updated) throws JSONException {
+    List<Card> cards = new ArrayList<Card>(size);
+    for (int i = 0; i < size; i++) {
+      cards.add(createCard("card" + i, updated));
+    }
+    return cards;
+  }
+
+  private static Card createCard(String id, long updated) throws JSONException {
+    return new Card(new JSONObject()
+        .put(Card.ID, id)
+        .put(Card.VIEWED, false)
+        .put(Card.CREATED, 0l)
+        .put(Card.UPDATED, updated));
+  }
+}
@@ -0,0 +1,126 @@
+package com.appboy.ui.adapters;
+
+import android.content.Context;
+
+import com.appboy.models.cards.Card;
+import com.appboy.ui.widget.BaseCardView;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class CardViewPoolTest {
+  private final CardViewTypeRegistry mRegistry = CardViewTypeRegistry.getInstance();
+  private CardViewPool mPool;
+  private int mViewType;
+  private Runnable mOnCreateCardView;
+
+  @Before
+  public void setUp() {
+    mPool = new CardViewPool(mRegistry);
+    mOnCreateCardView = null;
+    mViewType = mRegistry.registerCardViewFactory(PooledCard.class, new ICardViewFactory() {
+      @Override
+      public BaseCardView createCardView(Context context) {
+        if (mOnCreateCardView != null) {
+          mOnCreateCardView.run();
+        }
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void preinflateCreatesViewsForTheFeedUpToTheMaximum() throws Exception {
+    mPool.setMaxViewsPerType(3);
+
+    preinflateInBackground(createFeed(2));
+    assertEquals(2, mPool.getPooledViewCount(mViewType));
+
+    preinflateInBackground(createFeed(10));
+    assertEquals(3, mPool.getPooledViewCount(mViewType));
+  }
+
+  @Test
+  public void preinflateDoesNothingOnTheMainThread() throws JSONException {
+    mPool.preinflate(RuntimeEnvironment.application, createFeed(2));
+
+    assertEquals(0, mPool.getPooledViewCount(mViewType));
+  }
+
+  @Test
+  public void viewsCreatedWhileThePoolIsClearedAreDropped() throws Exception {
+    mOnCreateCardView = new Runnable() {
+      @Override
+      public void run() {
+        mPool.clear();
+      }
+    };
+
+    preinflateInBackground(createFeed(3));
+
+    assertEquals(0, mPool.getPooledViewCount(mViewType));
+  }
+
+  @Test
+  public void closedPoolsArentFilledUntilReopened() throws Exception {
+    mPool.close();
+    preinflateInBackground(createFeed(2));
+    assertEquals(0, mPool.getPooledViewCount(mViewType));
+
+    mPool.open();
+    preinflateInBackground(createFeed(2));
+    assertEquals(2, mPool.getPooledViewCount(mViewType));
+  }
+
+  @Test
+  public void acquireCountsHitsAndMisses() throws Exception {
+    preinflateInBackground(createFeed(1));
+
+    mPool.acquire(mViewType);
+    mPool.acquire(mViewType);
+
+    assertEquals(1, mPool.getHitCount());
+    assertEquals(1, mPool.getMissCount());
+  }
+
+  private void preinflateInBackground(final List<Card> cards) throws InterruptedException {
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        mPool.preinflate(RuntimeEnvironment.application, cards);
+      }
+    });
+    thread.start();
+    thread.join();
+  }
+
+  private static List<Card> createFeed(int size) throws JSONException {
+    List<Card> cards = new ArrayList<Card>(size);
+    for (int i = 0; i < size; i++) {
+      cards.add(new PooledCard(new JSONObject()
+          .put(Card.ID, "card" + i)
+          .put(Card.VIEWED, false)
+          .put(Card.CREATED, 0l)
+          .put(Card.UPDATED, 0l)));
+    }
+    return cards;
+  }
+
+  static class PooledCard extends Card {
+    PooledCard(JSONObject jsonObject) {
+      super(jsonObject);
+    }
+  }
+}
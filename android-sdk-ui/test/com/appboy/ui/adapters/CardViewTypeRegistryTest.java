@@ -0,0 +1,250 @@
+package com.appboy.ui.adapters;
+
+import android.content.Context;
+
+import com.appboy.models.cards.AppStoreReviewCard;
+import com.appboy.models.cards.BannerImageCard;
+import com.appboy.models.cards.CaptionedImageCard;
+import com.appboy.models.cards.Card;
+import com.appboy.models.cards.CrossPromotionLargeCard;
+import com.appboy.models.cards.CrossPromotionSmallCard;
+import com.appboy.models.cards.ShortNewsCard;
+import com.appboy.models.cards.TextAnnouncementCard;
+import com.appboy.ui.support.AllocationCounter;
+import com.appboy.ui.widget.BaseCardView;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class CardViewTypeRegistryTest {
+  private static final int LOOKUP_COUNT = 1000000;
+  // A loose bound, far above the cost of a map lookup, so that only a regression such as a lock or a class hierarchy
+  // walk on every lookup fails the benchmark.
+  private static final long MAX_NANOS_PER_LOOKUP = 1000l;
+
+  // Each test gets its own registry, so registrations never leak into other tests through the shared instance.
+  private final CardViewTypeRegistry mRegistry = new CardViewTypeRegistry();
+
+  @Test
+  public void unregisteredCardsUseTheDefaultViewType() throws JSONException {
+    assertEquals(0, mRegistry.getViewType(new Card(createCardJson("card"))));
+  }
+
+  @Test
+  public void subclassesUseTheViewTypeOfTheirRegisteredSuperclass() throws JSONException {
+    int viewType = mRegistry.registerCardViewFactory(CustomCard.class, new CountingCardViewFactory());
+
+    assertEquals(viewType, mRegistry.getViewType(new CustomCardSubclass(createCardJson("card"))));
+  }
+
+  @Test
+  public void registeringASubclassOverridesItsSuperclass() throws JSONException {
+    int superclassViewType = mRegistry.registerCardViewFactory(OverriddenCard.class, new CountingCardViewFactory());
+    Card card = new OverriddenCardSubclass(createCardJson("card"));
+    assertEquals(superclassViewType, mRegistry.getViewType(card));
+
+    int subclassViewType = mRegistry.registerCardViewFactory(OverriddenCardSubclass.class,
+        new CountingCardViewFactory());
+
+    assertNotEquals(superclassViewType, subclassViewType);
+    assertEquals(subclassViewType, mRegistry.getViewType(card));
+  }
+
+  @Test
+  public void reregisteringACardClassReplacesItsFactoryAndKeepsItsViewType() throws JSONException {
+    CountingCardViewFactory replacedFactory = new CountingCardViewFactory();
+    CountingCardViewFactory factory = new CountingCardViewFactory();
+    int viewType = mRegistry.registerCardViewFactory(ReplacedCard.class, replacedFactory);
+    int viewTypeCount = mRegistry.getViewTypeCount();
+
+    assertEquals(viewType, mRegistry.registerCardViewFactory(ReplacedCard.class, factory));
+    mRegistry.createCardView(RuntimeEnvironment.application, viewType);
+
+    assertEquals(viewTypeCount, mRegistry.getViewTypeCount());
+    assertEquals(0, replacedFactory.mCreatedCount);
+    assertEquals(1, factory.mCreatedCount);
+  }
+
+  @Test
+  public void imageUrlsAreResolvedThroughTheRegisteredProvider() throws JSONException {
+    mRegistry.registerCardViewFactory(ImageCard.class, new CountingCardViewFactory(), new ICardImageUrlProvider() {
+      @Override
+      public String getImageUrl(Card card) {
+        return "http://example.com/" + card.getId();
+      }
+    });
+
+    assertEquals("http://example.com/custom", mRegistry.getImageUrl(new ImageCard(createCardJson("custom"))));
+    assertEquals("image", mRegistry.getImageUrl(new ShortNewsCard(createCardJson("news")
+        .put("description", "description").put("image", "image").put("title", "title").put("url", "url")
+        .put("domain", "domain"))));
+  }
+
+  @Test
+  public void cardsWhoseViewsDontLoadImagesHaveNoImageUrl() throws JSONException {
+    // The app store review card view shows the application icon, not the card's image.
+    assertNull(mRegistry.getImageUrl(new AppStoreReviewCard(createCardJson("review").put("url", "url")
+        .put("image", "image"))));
+    assertNull(mRegistry.getImageUrl(new Card(createCardJson("default"))));
+  }
+
+  @Test
+  public void nullRegistrationsAreIgnored() {
+    int viewTypeCount = mRegistry.getViewTypeCount();
+
+    assertEquals(-1, mRegistry.registerCardViewFactory(null, new CountingCardViewFactory()));
+    assertEquals(-1, mRegistry.registerCardViewFactory(CustomCard.class, null));
+    assertEquals(viewTypeCount, mRegistry.getViewTypeCount());
+  }
+
+  @Test
+  public void viewTypeLookupsAreFastAndAllocationFree() throws JSONException {
+    mRegistry.registerCardViewFactory(CustomCard.class, new CountingCardViewFactory());
+    final Card[] cards = createLookupCards();
+    final int[] viewTypeSum = new int[1];
+    long allocatedBytes = measureLookups("CardViewTypeRegistry.getViewType", new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+          viewTypeSum[0] += mRegistry.getViewType(cards[i & 3]);
+        }
+      }
+    });
+
+    assertEquals(0l, allocatedBytes);
+  }
+
+  /**
+   * Measures the instanceof chain that AppboyListAdapter used before the registry, on the same cards, so that the
+   * registry lookup can be compared against it. Nothing is asserted beyond the lookups being allocation free.
+   */
+  @Test
+  public void instanceofChainBaseline() throws JSONException {
+    final Card[] cards = createLookupCards();
+    final int[] viewTypeSum = new int[1];
+    long allocatedBytes = measureLookups("instanceof chain (baseline)", new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+          viewTypeSum[0] += getInstanceofChainViewType(cards[i & 3]);
+        }
+      }
+    });
+
+    assertEquals(0l, allocatedBytes);
+  }
+
+  private static Card[] createLookupCards() throws JSONException {
+    return new Card[] {
+        new AppStoreReviewCard(createCardJson("review").put("url", "url").put("image", "image")),
+        new ShortNewsCard(createCardJson("news").put("description", "description").put("image", "image")
+            .put("title", "title").put("url", "url").put("domain", "domain")),
+        new CustomCardSubclass(createCardJson("custom")),
+        new Card(createCardJson("default"))};
+  }
+
+  /**
+   * Runs the lookups once to warm up the caches and the JIT, then measures a second run, prints its cost and fails
+   * if a lookup took longer than MAX_NANOS_PER_LOOKUP.
+   *
+   * @return The number of bytes allocated by the measured run.
+   */
+  private static long measureLookups(String name, Runnable lookups) {
+    lookups.run();
+
+    long start = System.nanoTime();
+    long allocatedBytes = AllocationCounter.measure(lookups);
+    long nanosPerLookup = (System.nanoTime() - start) / LOOKUP_COUNT;
+
+    System.out.println(name + ": " + nanosPerLookup + " ns/op, " + allocatedBytes + " bytes allocated over " +
+        LOOKUP_COUNT + " lookups");
+    assertTrue(name + " took " + nanosPerLookup + " ns", nanosPerLookup < MAX_NANOS_PER_LOOKUP);
+    return allocatedBytes;
+  }
+
+  // The view type dispatch of AppboyListAdapter before the CardViewTypeRegistry was introduced.
+  private static int getInstanceofChainViewType(Card card) {
+    if (card instanceof AppStoreReviewCard) {
+      return 1;
+    } else if (card instanceof BannerImageCard) {
+      return 2;
+    } else if (card instanceof CaptionedImageCard) {
+      return 3;
+    } else if (card instanceof CrossPromotionLargeCard) {
+      return 4;
+    } else if (card instanceof CrossPromotionSmallCard) {
+      return 5;
+    } else if (card instanceof ShortNewsCard) {
+      return 6;
+    } else if (card instanceof TextAnnouncementCard) {
+      return 7;
+    } else {
+      return 0;
+    }
+  }
+
+  private static JSONObject createCardJson(String id) throws JSONException {
+    return new JSONObject()
+        .put(Card.ID, id)
+        .put(Card.VIEWED, false)
+        .put(Card.CREATED, 0l)
+        .put(Card.UPDATED, 0l);
+  }
+
+  private static class CountingCardViewFactory implements ICardViewFactory {
+    int mCreatedCount;
+
+    @Override
+    public BaseCardView createCardView(Context context) {
+      mCreatedCount++;
+      return null;
+    }
+  }
+
+  static class CustomCard extends Card {
+    CustomCard(JSONObject jsonObject) {
+      super(jsonObject);
+    }
+  }
+
+  static class CustomCardSubclass extends CustomCard {
+    CustomCardSubclass(JSONObject jsonObject) {
+      super(jsonObject);
+    }
+  }
+
+  static class OverriddenCard extends Card {
+    OverriddenCard(JSONObject jsonObject) {
+      super(jsonObject);
+    }
+  }
+
+  static class OverriddenCardSubclass extends OverriddenCard {
+    OverriddenCardSubclass(JSONObject jsonObject) {
+      super(jsonObject);
+    }
+  }
+
+  static class ImageCard extends Card {
+    ImageCard(JSONObject jsonObject) {
+      super(jsonObject);
+    }
+  }
+
+  static class ReplacedCard extends Card {
+    ReplacedCard(JSONObject jsonObject) {
+      super(jsonObject);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.appboy.ui.images;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ImageDiskCacheTest {
+  private File mDirectory;
+  private ImageDiskCache mDiskCache;
+
+  @Before
+  public void setUp() throws IOException {
+    mDirectory = File.createTempFile("appboy", "images");
+    mDirectory.delete();
+    mDiskCache = new ImageDiskCache(mDirectory, 100);
+  }
+
+  @After
+  public void tearDown() {
+    mDiskCache.clear();
+    mDirectory.delete();
+  }
+
+  @Test
+  public void keysWithTheSameHashCodeAndLengthAreStoredSeparately() throws IOException {
+    String key = "http://example.com/Aa";
+    String collidingKey = "http://example.com/BB";
+    assertEquals(key.hashCode(), collidingKey.hashCode());
+
+    mDiskCache.put(key, new ByteArrayInputStream(new byte[] {1}));
+    mDiskCache.put(collidingKey, new ByteArrayInputStream(new byte[] {2}));
+
+    assertNotEquals(ImageDiskCache.getFileName(key), ImageDiskCache.getFileName(collidingKey));
+    assertArrayEquals(new byte[] {1}, read(mDiskCache.get(key)));
+    assertArrayEquals(new byte[] {2}, read(mDiskCache.get(collidingKey)));
+  }
+
+  @Test
+  public void fileNamesAreTheHexDigestOfTheKey() {
+    assertEquals("d41d8cd98f00b204e9800998ecf8427e", ImageDiskCache.getFileName(""));
+  }
+
+  @Test
+  public void leastRecentlyUsedEntriesAreDeletedBeyondTheMaximumSize() throws IOException {
+    mDiskCache.put("first", new ByteArrayInputStream(new byte[60]));
+    mDiskCache.get("first").setLastModified(1000l);
+
+    mDiskCache.put("second", new ByteArrayInputStream(new byte[60]));
+
+    assertNull(mDiskCache.get("first"));
+    assertEquals(60, mDiskCache.get("second").length());
+  }
+
+  @Test
+  public void nonHttpUrlsAreNotDownloaded() throws IOException {
+    File file = File.createTempFile("appboy", "image");
+    try {
+      assertNull(ImageDownloader.download(file.toURI().toString(), mDiskCache, 1000, 1000));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void downloadsLargerThanTheMaximumAreNotCached() {
+    byte[] image = new byte[ImageDownloader.MAX_DOWNLOAD_BYTES + 1];
+    assertNull(mDiskCache.put("image", new ImageDownloader.SizeLimitedInputStream(new ByteArrayInputStream(image),
+        ImageDownloader.MAX_DOWNLOAD_BYTES)));
+
+    assertNull(mDiskCache.get("image"));
+    // The partially written file is deleted too.
+    assertEquals(0, mDirectory.list().length);
+  }
+
+  private static byte[] read(File file) throws IOException {
+    byte[] bytes = new byte[(int) file.length()];
+    FileInputStream inputStream = new FileInputStream(file);
+    try {
+      inputStream.read(bytes);
+    } finally {
+      inputStream.close();
+    }
+    return bytes;
+  }
+}
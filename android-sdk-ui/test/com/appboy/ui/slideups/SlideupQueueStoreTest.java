@@ -0,0 +1,161 @@
+package com.appboy.ui.slideups;
+
+import com.appboy.models.Slideup;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SlideupQueueStoreTest {
+  private static final long TIMEOUT_MS = 10000l;
+
+  private File mFile;
+  private SlideupQueueStore mStore;
+
+  @Before
+  public void setUp() {
+    mFile = new File(RuntimeEnvironment.application.getFilesDir(), SlideupQueueStore.FILE_NAME);
+    mFile.delete();
+    mStore = new SlideupQueueStore(RuntimeEnvironment.application);
+  }
+
+  @Test
+  public void writtenSlideupsAreReadBackInOrder() throws JSONException, InterruptedException {
+    long expiresAt = System.currentTimeMillis() + 60000l;
+    mStore.write(Arrays.asList(
+        new SlideupQueue.QueuedSlideup(SlideupQueueTest.createSlideup("first"), 1, 7l, expiresAt, null),
+        new SlideupQueue.QueuedSlideup(SlideupQueueTest.createSlideup("second"), 2, 8l, Long.MAX_VALUE, null)));
+
+    List<SlideupQueue.QueuedSlideup> restored = read();
+
+    assertEquals(2, restored.size());
+    assertEquals("first", restored.get(0).mSlideup.getCampaignId());
+    assertEquals(1, restored.get(0).mPriority);
+    assertEquals(expiresAt, restored.get(0).mExpiresAt);
+    assertEquals("second", restored.get(1).mSlideup.getCampaignId());
+    assertEquals(2, restored.get(1).mPriority);
+    assertEquals(Long.MAX_VALUE, restored.get(1).mExpiresAt);
+    assertEquals("A restored slideup", restored.get(1).mSlideup.getMessage());
+  }
+
+  @Test
+  public void writingNoSlideupsDeletesTheFile() throws JSONException, InterruptedException {
+    mStore.write(Arrays.asList(
+        new SlideupQueue.QueuedSlideup(SlideupQueueTest.createSlideup("campaign"), 0, 0l, Long.MAX_VALUE, null)));
+    mStore.write(new ArrayList<SlideupQueue.QueuedSlideup>());
+
+    assertTrue(read().isEmpty());
+    assertFalse(mFile.exists());
+  }
+
+  @Test
+  public void aCorruptFileIsIgnoredAndDeleted() throws IOException, InterruptedException {
+    writeFile("{\"version\":1,\"slideups\":[{\"slideup\":");
+
+    assertTrue(read().isEmpty());
+    assertFalse(mFile.exists());
+  }
+
+  @Test
+  public void aFileOfAnUnknownVersionIsIgnoredAndDeleted() throws IOException, InterruptedException {
+    writeFile("{\"version\":2,\"slideups\":[]}");
+
+    assertTrue(read().isEmpty());
+    assertFalse(mFile.exists());
+  }
+
+  @Test
+  public void restoredSlideupsAreDisplayedAfterQueuedOnesOfTheSamePriority() throws JSONException,
+      InterruptedException {
+    SlideupQueue queue = new SlideupQueue(10, null);
+    ISlideupQueuePolicy policy = new ISlideupQueuePolicy() {
+      @Override
+      public int getPriority(Slideup slideup) {
+        return 0;
+      }
+
+      @Override
+      public long getTimeToLiveMillis(Slideup slideup) {
+        return 0l;
+      }
+    };
+    queue.add(new SlideupMetricsRecorder(SlideupQueueTest.createSlideup("older")), policy);
+    queue.add(new SlideupMetricsRecorder(SlideupQueueTest.createSlideup("newer")), policy);
+    // A restored slideup of a higher priority still goes first.
+    queue.add(new SlideupMetricsRecorder(SlideupQueueTest.createSlideup("saved high")), new ISlideupQueuePolicy() {
+      @Override
+      public int getPriority(Slideup slideup) {
+        return 1;
+      }
+
+      @Override
+      public long getTimeToLiveMillis(Slideup slideup) {
+        return 0l;
+      }
+    });
+    mStore.write(queue.snapshot());
+    List<SlideupQueue.QueuedSlideup> restored = read();
+
+    SlideupQueue restartedQueue = new SlideupQueue(10, null);
+    Slideup arrivedWhileReading = SlideupQueueTest.createSlideup("arrived while reading");
+    restartedQueue.add(new SlideupMetricsRecorder(arrivedWhileReading), policy);
+    restartedQueue.restore(restored);
+
+    assertEquals("saved high", restartedQueue.poll().mSlideup.getCampaignId());
+    assertSame(arrivedWhileReading, restartedQueue.poll().mSlideup);
+    SlideupQueue.QueuedSlideup newer = restartedQueue.poll();
+    assertEquals("newer", newer.mSlideup.getCampaignId());
+    assertTrue(newer.mMetricsRecorder.mRestored);
+    assertEquals("older", restartedQueue.poll().mSlideup.getCampaignId());
+  }
+
+  /**
+   * Reads the saved slideups, running the main thread's tasks until the store hands them over.
+   */
+  private List<SlideupQueue.QueuedSlideup> read() throws InterruptedException {
+    final AtomicReference<List<SlideupQueue.QueuedSlideup>> restored =
+        new AtomicReference<List<SlideupQueue.QueuedSlideup>>();
+    mStore.read(new SlideupQueueStore.IRestoreListener() {
+      @Override
+      public void onRestored(List<SlideupQueue.QueuedSlideup> queuedSlideups) {
+        restored.set(queuedSlideups);
+      }
+    });
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (restored.get() == null && System.currentTimeMillis() < deadline) {
+      ShadowLooper.runUiThreadTasks();
+      Thread.sleep(10l);
+    }
+    assertNotNull("The saved slideups weren't read in time.", restored.get());
+    return restored.get();
+  }
+
+  private void writeFile(String contents) throws IOException {
+    FileOutputStream outputStream = new FileOutputStream(mFile);
+    try {
+      outputStream.write(contents.getBytes("UTF-8"));
+    } finally {
+      outputStream.close();
+    }
+  }
+}
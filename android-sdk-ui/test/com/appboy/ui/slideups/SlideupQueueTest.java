@@ -0,0 +1,268 @@
+package com.appboy.ui.slideups;
+
+import com.appboy.enums.Slideup.DismissType;
+import com.appboy.enums.Slideup.SlideFrom;
+import com.appboy.models.Slideup;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SlideupQueueTest {
+  private static final int MAX_SIZE = 3;
+  // Short enough to expire during a brief sleep, which is the only way to advance System.currentTimeMillis.
+  private static final long SHORT_TIME_TO_LIVE_MS = 1l;
+  private static final long EXPIRY_SLEEP_MS = 20l;
+
+  private final TestQueuePolicy mPolicy = new TestQueuePolicy();
+  private final List<Slideup> mDroppedSlideups = new ArrayList<Slideup>();
+  private final List<SlideupOutcome> mDroppedOutcomes = new ArrayList<SlideupOutcome>();
+  private SlideupQueue mQueue;
+
+  @Before
+  public void setUp() {
+    mQueue = new SlideupQueue(MAX_SIZE, new SlideupQueue.IDropListener() {
+      @Override
+      public void onSlideupDropped(SlideupQueue.QueuedSlideup queuedSlideup, SlideupOutcome outcome) {
+        mDroppedSlideups.add(queuedSlideup.mSlideup);
+        mDroppedOutcomes.add(outcome);
+      }
+    });
+  }
+
+  @Test
+  public void slideupsArePolledByPriorityThenNewestFirst() {
+    Slideup lowOld = add("low old", 0);
+    Slideup highOld = add("high old", 1);
+    Slideup lowNew = add("low new", 0);
+
+    assertSame(highOld, mQueue.poll().mSlideup);
+    assertSame(lowNew, mQueue.poll().mSlideup);
+    assertSame(lowOld, mQueue.poll().mSlideup);
+    assertNull(mQueue.poll());
+  }
+
+  @Test
+  public void expiredSlideupsAreDroppedWhenASlideupIsAdded() throws InterruptedException {
+    mPolicy.mTimeToLiveMillis = SHORT_TIME_TO_LIVE_MS;
+    Slideup expiring = add("expiring", 0);
+    Thread.sleep(EXPIRY_SLEEP_MS);
+    mPolicy.mTimeToLiveMillis = 0l;
+    Slideup slideup = add("slideup", 0);
+
+    assertEquals(1, mQueue.size());
+    assertSame(slideup, mQueue.poll().mSlideup);
+    assertDropped(expiring, SlideupOutcome.EXPIRED);
+  }
+
+  @Test
+  public void expiredSlideupsAreDroppedWhenPolled() throws InterruptedException {
+    Slideup slideup = add("slideup", 0);
+    mPolicy.mTimeToLiveMillis = SHORT_TIME_TO_LIVE_MS;
+    Slideup expiring = add("expiring", 1);
+    Thread.sleep(EXPIRY_SLEEP_MS);
+
+    assertSame(slideup, mQueue.poll().mSlideup);
+    assertDropped(expiring, SlideupOutcome.EXPIRED);
+  }
+
+  @Test
+  public void aFullQueueEvictsItsLowestRankedSlideup() {
+    Slideup lowest = add("lowest", 0);
+    Slideup middle = add("middle", 1);
+    Slideup highest = add("highest", 2);
+
+    // Among equal priorities the newcomer is the most recent, so it outranks the oldest slideup.
+    Slideup newcomer = add("newcomer", 1);
+
+    assertEquals(MAX_SIZE, mQueue.size());
+    assertDropped(lowest, SlideupOutcome.EVICTED);
+    assertSame(highest, mQueue.poll().mSlideup);
+    assertSame(newcomer, mQueue.poll().mSlideup);
+    assertSame(middle, mQueue.poll().mSlideup);
+  }
+
+  @Test
+  public void aFullQueueRejectsALowerRankedNewcomer() {
+    add("first", 1);
+    add("second", 1);
+    add("third", 1);
+
+    mPolicy.mPriority = 0;
+    Slideup newcomer = Slideup.createSlideup("newcomer", SlideFrom.BOTTOM, DismissType.AUTO_DISMISS, 5000);
+    assertFalse(mQueue.add(new SlideupMetricsRecorder(newcomer), mPolicy));
+
+    assertEquals(MAX_SIZE, mQueue.size());
+    assertDropped(newcomer, SlideupOutcome.EVICTED);
+  }
+
+  @Test
+  public void pollingBySideSkipsSlideupsFromOtherSides() {
+    Slideup bottom = add("bottom", 0, SlideFrom.BOTTOM);
+    Slideup top = add("top", 1, SlideFrom.TOP);
+
+    assertSame(bottom, mQueue.poll(EnumSet.of(SlideFrom.BOTTOM)).mSlideup);
+    assertNull(mQueue.poll(EnumSet.of(SlideFrom.BOTTOM)));
+    assertEquals(1, mQueue.size());
+    assertSame(top, mQueue.poll(EnumSet.of(SlideFrom.BOTTOM, SlideFrom.TOP)).mSlideup);
+    assertTrue(mQueue.isEmpty());
+  }
+
+  @Test
+  public void pollingBySideDropsExpiredSlideups() throws InterruptedException {
+    mPolicy.mTimeToLiveMillis = SHORT_TIME_TO_LIVE_MS;
+    Slideup expiring = add("expiring", 1, SlideFrom.TOP);
+    Thread.sleep(EXPIRY_SLEEP_MS);
+
+    assertNull(mQueue.poll(EnumSet.of(SlideFrom.BOTTOM)));
+    assertTrue(mQueue.isEmpty());
+    assertDropped(expiring, SlideupOutcome.EXPIRED);
+  }
+
+  @Test
+  public void requeuedSlideupsKeepTheirPlace() {
+    Slideup older = add("older", 0);
+    Slideup newer = add("newer", 0);
+    SlideupQueue.QueuedSlideup polled = mQueue.poll();
+    assertSame(newer, polled.mSlideup);
+
+    add("lower priority", -1);
+    mQueue.requeue(polled);
+
+    assertSame(newer, mQueue.poll().mSlideup);
+    assertSame(older, mQueue.poll().mSlideup);
+  }
+
+  @Test
+  public void requeuedSlideupsKeepTheirExpirationTime() throws InterruptedException {
+    mPolicy.mTimeToLiveMillis = SHORT_TIME_TO_LIVE_MS;
+    Slideup expiring = add("expiring", 0);
+    SlideupQueue.QueuedSlideup polled = mQueue.poll();
+    Thread.sleep(EXPIRY_SLEEP_MS);
+
+    mQueue.requeue(polled);
+
+    assertNull(mQueue.poll());
+    assertDropped(expiring, SlideupOutcome.EXPIRED);
+  }
+
+  @Test
+  public void restoredSlideupsThatAreAlreadyQueuedAreSkipped() throws JSONException {
+    Slideup delivered = createSlideup("campaign");
+    assertTrue(mQueue.add(new SlideupMetricsRecorder(delivered), mPolicy));
+    Slideup other = createSlideup("other campaign");
+
+    mQueue.restore(Arrays.asList(createRestoredEntry(createSlideup("campaign")), createRestoredEntry(other)));
+
+    assertEquals(2, mQueue.size());
+    assertSame(delivered, mQueue.poll().mSlideup);
+    assertSame(other, mQueue.poll().mSlideup);
+    assertTrue(mDroppedSlideups.isEmpty());
+  }
+
+  @Test
+  public void aDeliveredCopyReplacesAQueuedRestoredSlideup() throws JSONException {
+    Slideup restored = createSlideup("campaign");
+    mQueue.restore(Collections.singletonList(createRestoredEntry(restored)));
+    Slideup delivered = createSlideup("campaign");
+
+    assertTrue(mQueue.add(new SlideupMetricsRecorder(delivered), mPolicy));
+
+    assertEquals(1, mQueue.size());
+    SlideupQueue.QueuedSlideup polled = mQueue.poll();
+    assertSame(delivered, polled.mSlideup);
+    assertFalse(polled.mMetricsRecorder.mRestored);
+    assertDropped(restored, SlideupOutcome.DUPLICATE);
+  }
+
+  @Test
+  public void slideupsWithoutACampaignAreCopiesIfTheirJsonMatches() throws JSONException {
+    mQueue.restore(Collections.singletonList(createRestoredEntry(createSlideup(null))));
+    Slideup delivered = createSlideup(null);
+
+    assertTrue(mQueue.add(new SlideupMetricsRecorder(delivered), mPolicy));
+
+    assertEquals(1, mQueue.size());
+    assertSame(delivered, mQueue.poll().mSlideup);
+  }
+
+  @Test
+  public void slideupsCreatedInTheAppAreNeverCopies() {
+    mQueue.restore(Collections.singletonList(createRestoredEntry(
+        Slideup.createSlideup("message", SlideFrom.BOTTOM, DismissType.AUTO_DISMISS, 5000))));
+    add("message", 0);
+
+    assertEquals(2, mQueue.size());
+  }
+
+  /**
+   * @return A slideup received from Appboy, as the SlideupQueueStore reads it back. A null campaign id leaves it out.
+   */
+  static Slideup createSlideup(String campaignId) throws JSONException {
+    JSONObject json = new JSONObject()
+        .put("message", "A restored slideup")
+        .put("slide_from", "BOTTOM")
+        .put("click_action", "NONE")
+        .put("duration", 5000);
+    if (campaignId != null) {
+      json.put("campaign_id", campaignId);
+    }
+    return new Slideup(json, null);
+  }
+
+  private static SlideupQueue.QueuedSlideup createRestoredEntry(Slideup slideup) {
+    return new SlideupQueue.QueuedSlideup(slideup, 0, 0l, Long.MAX_VALUE, null);
+  }
+
+  private Slideup add(String message, int priority) {
+    return add(message, priority, SlideFrom.BOTTOM);
+  }
+
+  private Slideup add(String message, int priority, SlideFrom slideFrom) {
+    Slideup slideup = Slideup.createSlideup(message, slideFrom, DismissType.AUTO_DISMISS, 5000);
+    mPolicy.mPriority = priority;
+    assertTrue(mQueue.add(new SlideupMetricsRecorder(slideup), mPolicy));
+    return slideup;
+  }
+
+  private void assertDropped(Slideup slideup, SlideupOutcome outcome) {
+    assertEquals(1, mDroppedSlideups.size());
+    assertSame(slideup, mDroppedSlideups.get(0));
+    assertEquals(outcome, mDroppedOutcomes.get(0));
+  }
+
+  /**
+   * Gives every slideup the priority and time to live it was set to when the slideup was added.
+   */
+  private static class TestQueuePolicy implements ISlideupQueuePolicy {
+    int mPriority;
+    long mTimeToLiveMillis;
+
+    @Override
+    public int getPriority(Slideup slideup) {
+      return mPriority;
+    }
+
+    @Override
+    public long getTimeToLiveMillis(Slideup slideup) {
+      return mTimeToLiveMillis;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.appboy.ui.slideups;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Robolectric's shadows of MotionEvent and VelocityTracker allocate on every call, so the check that swipe moves
+ * don't allocate runs on a device, in androidTest.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SwipeDismissTouchListenerTest {
+  private static final int MOVE_EVENT_COUNT = 10;
+
+  private View mView;
+  private SwipeDismissTouchListener mSwipeListener;
+  private MotionEvent mDownEvent;
+  private MotionEvent[] mMoveEvents;
+
+  @Before
+  public void setUp() {
+    FrameLayout parent = new FrameLayout(RuntimeEnvironment.application);
+    mView = new View(RuntimeEnvironment.application);
+    parent.addView(mView);
+    mView.layout(0, 0, 400, 100);
+    mSwipeListener = new SwipeDismissTouchListener(mView, null, new SwipeDismissTouchListener.DismissCallbacks() {
+      @Override
+      public boolean canDismiss(Object token) {
+        return true;
+      }
+
+      @Override
+      public void onDismiss(View view, Object token) {}
+    });
+
+    // A finger drags the view to the right, well past the touch slop.
+    mDownEvent = MotionEvent.obtain(0l, 0l, MotionEvent.ACTION_DOWN, 0f, 0f, 0);
+    mMoveEvents = new MotionEvent[MOVE_EVENT_COUNT];
+    for (int i = 0; i < MOVE_EVENT_COUNT; i++) {
+      mMoveEvents[i] = MotionEvent.obtain(0l, i, MotionEvent.ACTION_MOVE, 100f + i, 0f, 0);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    mDownEvent.recycle();
+    for (MotionEvent moveEvent : mMoveEvents) {
+      moveEvent.recycle();
+    }
+  }
+
+  @Test
+  public void swipeFollowsTheFinger() {
+    mSwipeListener.onTouch(mView, mDownEvent);
+    for (int i = 0; i < MOVE_EVENT_COUNT; i++) {
+      assertTrue(mSwipeListener.onTouch(mView, mMoveEvents[i]));
+    }
+
+    // The view follows the finger, minus the touch slop that had to be crossed before the swipe started.
+    assertTrue(mView.getTranslationX() > 0f);
+    assertTrue(mView.getTranslationX() < 109f);
+  }
+}
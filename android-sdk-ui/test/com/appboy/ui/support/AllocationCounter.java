@@ -0,0 +1,28 @@
+package com.appboy.ui.support;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the heap memory allocated by the current thread. Relies on the allocation counters of HotSpot, which the
+ * JVM unit tests run on.
+ */
+public final class AllocationCounter {
+  private static final com.sun.management.ThreadMXBean sThreadMXBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private AllocationCounter() {}
+
+  /**
+   * @return The number of bytes allocated by the current thread while running the given code.
+   */
+  public static long measure(Runnable runnable) {
+    long threadId = Thread.currentThread().getId();
+    // Reading the counter allocates, so the cost of reading it twice is measured first and subtracted.
+    long overheadStart = sThreadMXBean.getThreadAllocatedBytes(threadId);
+    long overheadEnd = sThreadMXBean.getThreadAllocatedBytes(threadId);
+    long start = sThreadMXBean.getThreadAllocatedBytes(threadId);
+    runnable.run();
+    long end = sThreadMXBean.getThreadAllocatedBytes(threadId);
+    return Math.max(0l, (end - start) - (overheadEnd - overheadStart));
+  }
+}
@@ -0,0 +1,36 @@
+package com.appboy.ui.benchmarks;
+
+/**
+ * A single benchmarked operation.
+ */
+abstract class Benchmark {
+  final String mName;
+  // The number of times the benchmark is run, without a warmup, or 0 to run it for a fixed time.
+  final int mOperationCount;
+
+  Benchmark(String name) {
+    this(name, 0);
+  }
+
+  Benchmark(String name, int operationCount) {
+    mName = name;
+    mOperationCount = operationCount;
+  }
+
+  /**
+   * Called once, before the benchmark is warmed up, to create its data.
+   */
+  void setUp() {}
+
+  /**
+   * Called once, after the benchmark has been measured, to undo anything setUp or run left behind.
+   */
+  void tearDown() {}
+
+  /**
+   * Runs the operation once.
+   *
+   * @param iteration The number of times the operation has run before, which lets benchmarks alternate inputs.
+   */
+  abstract void run(int iteration);
+}
@@ -0,0 +1,72 @@
+package com.appboy.ui.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Runs benchmarks on the current thread and prints their throughput and allocation rate.
+ *
+ * Each benchmark is warmed up, so that the JIT has compiled it, then run for a fixed time. Benchmarks with a fixed
+ * number of operations are run that many times, without a warmup. Allocations are read from
+ * the allocation counters of HotSpot, which the unit tests run on. Numbers are only comparable between runs on the
+ * same machine.
+ */
+final class BenchmarkRunner {
+  private static final long WARMUP_MS = 1000l;
+  private static final long MEASUREMENT_MS = 2000l;
+  private static final com.sun.management.ThreadMXBean sThreadMXBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private BenchmarkRunner() {}
+
+  static void printHeader(String title) {
+    System.out.println();
+    System.out.println(title);
+    System.out.println(String.format(Locale.US, "%-40s %14s %10s %10s %12s", "benchmark", "ops/s", "ns/op", "B/op",
+        "KB/s"));
+  }
+
+  static void run(Benchmark benchmark) {
+    benchmark.setUp();
+    long elapsedNs;
+    long allocatedBytes;
+    int operations;
+    try {
+      if (benchmark.mOperationCount == 0) {
+        runFor(benchmark, WARMUP_MS);
+      }
+
+      long threadId = Thread.currentThread().getId();
+      long startBytes = sThreadMXBean.getThreadAllocatedBytes(threadId);
+      long startNs = System.nanoTime();
+      operations = benchmark.mOperationCount > 0 ? runTimes(benchmark, benchmark.mOperationCount)
+          : runFor(benchmark, MEASUREMENT_MS);
+      elapsedNs = System.nanoTime() - startNs;
+      allocatedBytes = sThreadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+    } finally {
+      benchmark.tearDown();
+    }
+
+    double elapsedSeconds = elapsedNs / 1e9;
+    System.out.println(String.format(Locale.US, "%-40s %14.1f %10.1f %10d %12.1f", benchmark.mName,
+        operations / elapsedSeconds, (double) elapsedNs / operations, allocatedBytes / operations,
+        allocatedBytes / elapsedSeconds / 1024));
+  }
+
+  private static int runFor(Benchmark benchmark, long durationMs) {
+    long endNs = System.nanoTime() + durationMs * 1000000l;
+    int operations = 0;
+    do {
+      benchmark.run(operations);
+      operations++;
+    } while (System.nanoTime() < endNs);
+    return operations;
+  }
+
+  private static int runTimes(Benchmark benchmark, int operationCount) {
+    for (int i = 0; i < operationCount; i++) {
+      benchmark.run(i);
+    }
+    return operationCount;
+  }
+}
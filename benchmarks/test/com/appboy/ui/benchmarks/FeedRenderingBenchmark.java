@@ -0,0 +1,204 @@
+package com.appboy.ui.benchmarks;
+
+import android.app.Activity;
+import android.net.Uri;
+import android.util.Log;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.appboy.models.cards.BannerImageCard;
+import com.appboy.models.cards.CaptionedImageCard;
+import com.appboy.models.cards.Card;
+import com.appboy.models.cards.CrossPromotionSmallCard;
+import com.appboy.models.cards.ShortNewsCard;
+import com.appboy.models.cards.TextAnnouncementCard;
+import com.appboy.ui.adapters.AppboyListAdapter;
+import com.appboy.ui.support.AppboyLogger;
+import com.appboy.ui.support.UriUtils;
+import com.appboy.ui.widget.StarRatingView;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Benchmarks of the feed rendering hot path: AppboyListAdapter.replaceFeed, card view binding,
+ * StarRatingView.setRating and UriUtils.getQueryParameters.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "../android-sdk-ui/AndroidManifest.xml")
+public class FeedRenderingBenchmark {
+  private static final int[] FEED_SIZES = {100, 1000, 10000};
+  private static final int[] FEED_CHURN_PERCENTAGES = {0, 10, 100};
+  private static final String[] CARD_TYPES = {"banner_image", "captioned_image", "cross_promotion_small",
+      "short_news", "text_announcement"};
+  // An empty image URL fails to load without reaching the network, so binds measure the view work and the dispatch
+  // to the image loader, but never a download.
+  private static final String IMAGE_URL = "";
+
+  @Test
+  public void replaceFeed() {
+    BenchmarkRunner.printHeader("AppboyListAdapter.replaceFeed");
+    for (int feedSize : FEED_SIZES) {
+      for (int churnPercentage : FEED_CHURN_PERCENTAGES) {
+        BenchmarkRunner.run(createReplaceFeedBenchmark(feedSize, churnPercentage));
+      }
+    }
+  }
+
+  /**
+   * Binds with logging suppressed, the way release builds should configure AppboyLogger.
+   */
+  @Test
+  public void getView() {
+    BenchmarkRunner.printHeader("AppboyListAdapter.getView, logging suppressed");
+    Activity activity = Robolectric.setupActivity(Activity.class);
+    for (String cardType : CARD_TYPES) {
+      BenchmarkRunner.run(createGetViewBenchmark(activity, cardType, false, AppboyLogger.SUPPRESS));
+      BenchmarkRunner.run(createGetViewBenchmark(activity, cardType, true, AppboyLogger.SUPPRESS));
+    }
+  }
+
+  /**
+   * Binds with debug logging enabled, which is the default. Robolectric keeps every log line in memory, so these
+   * numbers include that cost on top of formatting the messages.
+   */
+  @Test
+  public void getViewWithLogging() {
+    BenchmarkRunner.printHeader("AppboyListAdapter.getView, debug logging enabled");
+    Activity activity = Robolectric.setupActivity(Activity.class);
+    for (String cardType : CARD_TYPES) {
+      BenchmarkRunner.run(createGetViewBenchmark(activity, cardType, false, Log.DEBUG));
+      BenchmarkRunner.run(createGetViewBenchmark(activity, cardType, true, Log.DEBUG));
+    }
+  }
+
+  @Test
+  public void setRating() {
+    BenchmarkRunner.printHeader("StarRatingView.setRating");
+    final StarRatingView starRatingView = new StarRatingView(Robolectric.setupActivity(Activity.class), null);
+    BenchmarkRunner.run(new Benchmark("StarRatingView.setRating") {
+      @Override
+      void run(int iteration) {
+        starRatingView.setRating((iteration % 11) / 2f);
+      }
+    });
+  }
+
+  @Test
+  public void getQueryParameters() {
+    BenchmarkRunner.printHeader("UriUtils.getQueryParameters");
+    final Uri uri = Uri.parse("https://www.appboy.com/feed?utm_source=appboy&utm_medium=feed&utm_campaign=benchmark"
+        + "&card=card%20id&empty=");
+    BenchmarkRunner.run(new Benchmark("UriUtils.getQueryParameters") {
+      @Override
+      void run(int iteration) {
+        UriUtils.getQueryParameters(uri);
+      }
+    });
+  }
+
+  /**
+   * Alternates between two feeds that differ in the given percentage of their cards.
+   */
+  private static Benchmark createReplaceFeedBenchmark(final int feedSize, final int churnPercentage) {
+    final AppboyListAdapter adapter = new AppboyListAdapter(Robolectric.setupActivity(Activity.class), 0,
+        new ArrayList<Card>());
+    return new Benchmark(String.format(Locale.US, "replaceFeed(%d cards, %d%% churn)", feedSize, churnPercentage)) {
+      private final List<Card> mFeed = new ArrayList<Card>(feedSize);
+      private final List<Card> mChurnedFeed = new ArrayList<Card>(feedSize);
+
+      @Override
+      void setUp() {
+        int churnedCardCount = feedSize * churnPercentage / 100;
+        for (int i = 0; i < feedSize; i++) {
+          String cardType = CARD_TYPES[i % CARD_TYPES.length];
+          mFeed.add(createCard(cardType, i, 1l));
+          mChurnedFeed.add(i < churnedCardCount ? createCard(cardType, i, 2l) : mFeed.get(i));
+        }
+      }
+
+      @Override
+      void run(int iteration) {
+        adapter.replaceFeed(iteration % 2 == 0 ? mChurnedFeed : mFeed);
+      }
+    };
+  }
+
+  /**
+   * Either creates and binds a new card view for every operation, or rebinds one view to alternating cards, the way
+   * a ListView recycles views while scrolling. AppboyLogger logs at the given level while the benchmark runs.
+   */
+  private static Benchmark createGetViewBenchmark(Activity activity, String cardType, final boolean recycle,
+                                                  final int logLevel) {
+    List<Card> cards = new ArrayList<Card>(2);
+    cards.add(createCard(cardType, 0, 1l));
+    cards.add(createCard(cardType, 1, 1l));
+    final AppboyListAdapter adapter = new AppboyListAdapter(activity, 0, cards);
+    final FrameLayout parent = new FrameLayout(activity);
+    return new Benchmark(String.format(Locale.US, "getView(%s, %s)", cardType, recycle ? "rebind" : "create")) {
+      private View mConvertView;
+      private int mPreviousLogLevel;
+
+      @Override
+      void setUp() {
+        mPreviousLogLevel = AppboyLogger.getLogLevel();
+        AppboyLogger.setLogLevel(logLevel);
+      }
+
+      @Override
+      void run(int iteration) {
+        mConvertView = adapter.getView(iteration % 2, recycle ? mConvertView : null, parent);
+      }
+
+      @Override
+      void tearDown() {
+        AppboyLogger.setLogLevel(mPreviousLogLevel);
+        ShadowLog.reset();
+      }
+    };
+  }
+
+  private static Card createCard(String cardType, int index, long updated) {
+    try {
+      JSONObject json = new JSONObject()
+          .put(Card.ID, "benchmark-card-" + index)
+          .put(Card.VIEWED, false)
+          .put(Card.CREATED, 1l)
+          .put(Card.UPDATED, updated)
+          .put("image", IMAGE_URL)
+          .put("title", "Benchmark card " + index)
+          .put("subtitle", "Benchmark")
+          .put("caption", "Benchmark")
+          .put("description", "A synthetic card used to benchmark the feed.")
+          .put("url", "https://www.appboy.com")
+          .put("domain", "appboy.com")
+          .put("rating", 4.5)
+          .put("reviews", 100)
+          .put("price", 0.99)
+          .put("package", "com.appboy.benchmarks");
+      if ("banner_image".equals(cardType)) {
+        return new BannerImageCard(json);
+      } else if ("captioned_image".equals(cardType)) {
+        return new CaptionedImageCard(json);
+      } else if ("cross_promotion_small".equals(cardType)) {
+        return new CrossPromotionSmallCard(json);
+      } else if ("short_news".equals(cardType)) {
+        return new ShortNewsCard(json);
+      } else {
+        return new TextAnnouncementCard(json);
+      }
+    } catch (JSONException e) {
+      // Never happens, the keys are never null.
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package com.appboy.ui.benchmarks;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.os.Bundle;
+
+import com.appboy.AppboyGcmReceiver;
+import com.appboy.Constants;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of push handling: the main thread cost of a burst of GCM messages, and the parsing of push extras.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "../android-sdk-ui/AndroidManifest.xml")
+public class PushBenchmark {
+  private static final String GCM_RECEIVE_INTENT_ACTION = "com.google.android.c2dm.intent.RECEIVE";
+  private static final int GCM_BURST_SIZE = 1000;
+  private static final long GCM_BURST_TIMEOUT_MS = 30000l;
+  private static final int[] PUSH_EXTRAS_SIZES_BYTES = {1024, 4096};
+
+  @Test
+  public void gcmBurst() {
+    BenchmarkRunner.printHeader("AppboyGcmReceiver.onReceive");
+    BenchmarkRunner.run(createGcmBurstBenchmark());
+  }
+
+  @Test
+  public void pushExtras() {
+    BenchmarkRunner.printHeader("Push extras parsing");
+    for (int extrasSizeBytes : PUSH_EXTRAS_SIZES_BYTES) {
+      String extras = createPushExtras(extrasSizeBytes);
+      BenchmarkRunner.run(createLegacyExtrasBenchmark(extras));
+      BenchmarkRunner.run(createExtrasBenchmark(extras, false));
+      BenchmarkRunner.run(createExtrasBenchmark(extras, true));
+    }
+  }
+
+  /**
+   * Hands a burst of synthetic Appboy data pushes to the GCM receiver, the way the system delivers them, and measures
+   * the time each one holds up the main thread. The messages themselves are handled in the background, and end up as
+   * APPBOY_PUSH_RECEIVED broadcasts, which are awaited before the next benchmark runs.
+   */
+  private static Benchmark createGcmBurstBenchmark() {
+    final AppboyGcmReceiver receiver = new AppboyGcmReceiver();
+    final BroadcastCountingContext context = new BroadcastCountingContext(RuntimeEnvironment.application,
+        GCM_BURST_SIZE);
+    final Intent[] intents = new Intent[GCM_BURST_SIZE];
+    return new Benchmark(String.format(Locale.US, "onReceive(burst of %d)", GCM_BURST_SIZE), GCM_BURST_SIZE) {
+      @Override
+      void setUp() {
+        for (int i = 0; i < intents.length; i++) {
+          intents[i] = new Intent(GCM_RECEIVE_INTENT_ACTION)
+              .putExtra(Constants.APPBOY_GCM_APPBOY_KEY, "true")
+              .putExtra(Constants.APPBOY_GCM_CAMPAIGN_ID_KEY, "benchmark-campaign")
+              .putExtra(Constants.APPBOY_GCM_EXTRAS_KEY, "{\"index\":\"" + i + "\",\"source\":\"benchmark\"}");
+        }
+      }
+
+      @Override
+      void run(int iteration) {
+        receiver.onReceive(context, intents[iteration]);
+      }
+
+      @Override
+      void tearDown() {
+        try {
+          if (!context.mBroadcastsSent.await(GCM_BURST_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            System.out.println("The GCM burst wasn't handled within " + GCM_BURST_TIMEOUT_MS + " ms.");
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+  }
+
+  /**
+   * Parses push extras the way AppboyGcmReceiver.createExtrasBundle used to, through a JSONObject, as a baseline for
+   * the streaming parser.
+   */
+  private static Benchmark createLegacyExtrasBenchmark(final String extras) {
+    return new Benchmark(String.format(Locale.US, "JSONObject extras(%dB)", extras.length())) {
+      @Override
+      void run(int iteration) {
+        try {
+          Bundle bundle = new Bundle();
+          JSONObject json = new JSONObject(extras);
+          Iterator keys = json.keys();
+          while (keys.hasNext()) {
+            String key = (String) keys.next();
+            bundle.putString(key, json.getString(key));
+          }
+        } catch (JSONException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+  }
+
+  private static Benchmark createExtrasBenchmark(final String extras, final boolean typed) {
+    return new Benchmark(String.format(Locale.US, "create%sExtrasBundle(%dB)", typed ? "Typed" : "",
+        extras.length())) {
+      @Override
+      void run(int iteration) {
+        if (typed) {
+          AppboyGcmReceiver.createTypedExtrasBundle(extras);
+        } else {
+          AppboyGcmReceiver.createExtrasBundle(extras);
+        }
+      }
+    };
+  }
+
+  /**
+   * @return Push extras of about the given size, with a mix of strings, numbers, booleans, nested objects and arrays.
+   */
+  private static String createPushExtras(int sizeBytes) {
+    try {
+      JSONObject extras = new JSONObject();
+      for (int i = 0; extras.toString().length() < sizeBytes; i++) {
+        switch (i % 5) {
+          case 0:
+            extras.put("message_" + i, "A synthetic push extra used to benchmark parsing.");
+            break;
+          case 1:
+            extras.put("count_" + i, i * 1000);
+            break;
+          case 2:
+            extras.put("enabled_" + i, i % 2 == 0);
+            break;
+          case 3:
+            extras.put("deep_link_" + i, new JSONObject().put("uri", "droidboy://feed").put("delay", 1.5));
+            break;
+          default:
+            extras.put("tags_" + i, new JSONArray().put("news").put("sale").put(i));
+            break;
+        }
+      }
+      return extras.toString();
+    } catch (JSONException e) {
+      // Never happens, the keys are never null.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Counts the broadcasts sent by the receiver, instead of delivering them. The receiver passes its application
+   * context on to its worker, so this context is its own application context.
+   */
+  private static class BroadcastCountingContext extends ContextWrapper {
+    final CountDownLatch mBroadcastsSent;
+
+    BroadcastCountingContext(Context base, int expectedBroadcastCount) {
+      super(base);
+      mBroadcastsSent = new CountDownLatch(expectedBroadcastCount);
+    }
+
+    @Override
+    public Context getApplicationContext() {
+      return this;
+    }
+
+    @Override
+    public void sendBroadcast(Intent intent) {
+      mBroadcastsSent.countDown();
+    }
+  }
+}
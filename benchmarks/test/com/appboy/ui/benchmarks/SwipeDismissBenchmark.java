@@ -0,0 +1,80 @@
+package com.appboy.ui.benchmarks;
+
+import android.app.Activity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.appboy.ui.slideups.SwipeDismissTouchListener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Benchmarks of the slideup swipe gesture, which must not allocate while the finger moves. Robolectric's shadows of
+ * MotionEvent and VelocityTracker allocate on every call, so the bytes per operation reported here are theirs. That a
+ * move doesn't allocate is checked on a device, by SwipeDismissTouchListenerAllocationTest.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "../android-sdk-ui/AndroidManifest.xml")
+public class SwipeDismissBenchmark {
+
+  @Test
+  public void onTouchMove() {
+    BenchmarkRunner.printHeader("SwipeDismissTouchListener.onTouch");
+    BenchmarkRunner.run(createSwipeBenchmark(Robolectric.setupActivity(Activity.class)));
+  }
+
+  /**
+   * Feeds a swipe in progress with move events, the way a finger dragging a slideup does.
+   */
+  private static Benchmark createSwipeBenchmark(Activity activity) {
+    final FrameLayout container = new FrameLayout(activity);
+    final View view = new View(activity);
+    final SwipeDismissTouchListener swipeListener = new SwipeDismissTouchListener(view, null,
+        new SwipeDismissTouchListener.DismissCallbacks() {
+          @Override
+          public boolean canDismiss(Object token) {
+            return true;
+          }
+
+          @Override
+          public void onDismiss(View dismissedView, Object token) {}
+        });
+    return new Benchmark("onTouch(MOVE)") {
+      // The events are obtained up front and reused. The listener only looks at their raw coordinates, which stay
+      // the same however often the events are dispatched.
+      private final MotionEvent[] mMoveEvents = {
+          MotionEvent.obtain(0l, 0l, MotionEvent.ACTION_MOVE, 200f, 0f, 0),
+          MotionEvent.obtain(0l, 0l, MotionEvent.ACTION_MOVE, 300f, 0f, 0)
+      };
+
+      @Override
+      void setUp() {
+        // The listener needs a parent to stop intercepting touches once the swipe starts.
+        container.addView(view);
+        MotionEvent downEvent = MotionEvent.obtain(0l, 0l, MotionEvent.ACTION_DOWN, 0f, 0f, 0);
+        swipeListener.onTouch(view, downEvent);
+        downEvent.recycle();
+      }
+
+      @Override
+      void run(int iteration) {
+        swipeListener.onTouch(view, mMoveEvents[iteration % 2]);
+      }
+
+      @Override
+      void tearDown() {
+        MotionEvent cancelEvent = MotionEvent.obtain(0l, 0l, MotionEvent.ACTION_CANCEL, 0f, 0f, 0);
+        swipeListener.onTouch(view, cancelEvent);
+        cancelEvent.recycle();
+        for (MotionEvent moveEvent : mMoveEvents) {
+          moveEvent.recycle();
+        }
+        container.removeView(view);
+      }
+    };
+  }
+}